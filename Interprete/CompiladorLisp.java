@@ -0,0 +1,633 @@
+package Interprete;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import Interprete.MetricasLisp.CategoriaError;
+
+/**
+ * Segundo nivel del motor RECURSIVO: el cuerpo de una función que se ha
+ * ejecutado muchas veces se traduce a bytecode y se carga como clase oculta
+ * (MethodHandles.Lookup.defineHiddenClass). La clase extiende NodoLisp, así
+ * que se instala como un CuerpoFuncion más y las llamadas lo encuentran al
+ * revisar su caché.
+ *
+ * Se traducen constantes, parámetros, llamadas a primitivas, cond, progn,
+ * let, while y setq local. Una llamada a la propia función va directa al
+ * método estático, o al principio del método si está en cola, así que el
+ * JIT ve la recursión y la aritmética como código Java normal. Lo demás
+ * sigue siendo un nodo del intérprete llamado desde el bytecode. Las
+ * primitivas, constantes y nodos llegan como datos de la clase y se guardan
+ * en campos static final.
+ *
+ * Antes de saltar a sí misma, cada llamada resuelve la función como la
+ * LlamadaFuncion original y comprueba que el cuerpo sigue siendo esta
+ * clase; si la función se redefinió, o se está perfilando, ejecuta la
+ * LlamadaFuncion, que ya usa la definición nueva.
+ *
+ * Las clases son de la versión 49 para no tener que generar StackMapTable.
+ */
+final class CompiladorLisp {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final System.Logger LOG = System.getLogger(CompiladorLisp.class.getName());
+
+    private static final String CLASE = "Interprete/FuncionCompilada";
+    private static final String NODO = "Interprete/NodoLisp";
+    private static final String CONTEXTO = "Interprete/ContextoEvaluacion";
+    private static final String CUERPO = "Interprete/NodoLisp$CuerpoFuncion";
+    private static final String LLAMADA = "Interprete/NodoLisp$LlamadaFuncion";
+    private static final String OBJETO = "java/lang/Object";
+    private static final String EJECUTAR = "([Ljava/lang/Object;LInterprete/ContextoEvaluacion;)Ljava/lang/Object;";
+
+    private final NodoLisp.CuerpoFuncion cuerpo;
+    private final Pool pool = new Pool();
+    // Datos de la clase: un campo static final por elemento
+    private final List<Object> constantes = new ArrayList<>();
+    private final List<String> tipos = new ArrayList<>();
+
+    private CompiladorLisp(NodoLisp.CuerpoFuncion cuerpo) {
+        this.cuerpo = cuerpo;
+    }
+
+    /**
+     * Cuerpo equivalente con el código en bytecode, o null si no se compila
+     * (función memoizada, ya compilada o demasiado grande). Si la JVM
+     * rechaza la clase también devuelve null y la función sigue
+     * interpretada, pero el rechazo se cuenta en fallidas y se anota en el
+     * log en DEBUG. Cualquier otro error del generador se propaga.
+     */
+    static NodoLisp.CuerpoFuncion compilar(NodoLisp.CuerpoFuncion cuerpo, LongAdder fallidas) {
+        if (cuerpo.cuerpo instanceof NodoLisp.Memo || esCompilado(cuerpo.cuerpo)) {
+            return null;
+        }
+        CompiladorLisp compilador = new CompiladorLisp(cuerpo);
+        byte[] clase;
+        try {
+            clase = compilador.generar();
+        } catch (DemasiadoGrande e) {
+            return null;
+        }
+        return cargar(cuerpo, clase, compilador.constantes.toArray(), fallidas);
+    }
+
+    static NodoLisp.CuerpoFuncion cargar(NodoLisp.CuerpoFuncion cuerpo, byte[] clase, Object[] datos, LongAdder fallidas) {
+        try {
+            MethodHandles.Lookup oculta = LOOKUP.defineHiddenClassWithClassData(clase, datos, true);
+            NodoLisp nodo = (NodoLisp) oculta.lookupClass().getDeclaredConstructor().newInstance();
+            return new NodoLisp.CuerpoFuncion(cuerpo.nombre, nodo, cuerpo.tamanoMarco);
+        } catch (LinkageError | ReflectiveOperationException e) {
+            fallidas.increment();
+            LOG.log(System.Logger.Level.DEBUG, "La JVM rechazó el bytecode de " + cuerpo.nombre, e);
+            return null;
+        }
+    }
+
+    static boolean esCompilado(NodoLisp nodo) {
+        return nodo.getClass().isHidden() && nodo.getClass().getName().startsWith(CLASE.replace('/', '.'));
+    }
+
+    // Llamada directa de una función compilada a sí misma: lo mismo que LlamadaFuncion.ejecutar
+    static void entrar(ContextoEvaluacion ctx) {
+        if (++ctx.profundidad > LispEvaluator.PROFUNDIDAD_MAXIMA) {
+            ctx.profundidad--;
+            throw new ErrorLisp(CategoriaError.PROFUNDIDAD, "Se ha excedido la profundidad máxima de recursión (" +
+                                LispEvaluator.PROFUNDIDAD_MAXIMA + ")");
+        }
+        if (ctx.profundidad > ctx.profundidadMaxima) {
+            ctx.profundidadMaxima = ctx.profundidad;
+        }
+    }
+
+    static void salir(ContextoEvaluacion ctx) {
+        ctx.profundidad--;
+    }
+
+    // Trampolín de las llamadas en cola a otras funciones
+    static Object completar(Object resultado, ContextoEvaluacion ctx) {
+        while (resultado == NodoLisp.LLAMADA_EN_COLA) {
+            NodoLisp.CuerpoFuncion siguiente = ctx.cuerpoPendiente;
+            Object[] marcoSiguiente = ctx.marcoPendiente;
+            ctx.cuerpoPendiente = null;
+            ctx.marcoPendiente = null;
+            resultado = siguiente.cuerpo.ejecutar(marcoSiguiente, ctx);
+        }
+        return resultado;
+    }
+
+    private byte[] generar() {
+        // Métodos: el constructor, ejecutar, el cuerpo como método estático y la llamada a sí misma
+        Metodo constructor = new Metodo(1);
+        constructor.op(0x2a, 1);                                            // aload_0
+        constructor.invocar(0xb7, NODO, "<init>", "()V", -1);
+        constructor.op(0xb1, 0);                                            // return
+
+        Metodo ejecutar = new Metodo(3);
+        ejecutar.op(0x2b, 1);                                               // aload_1
+        ejecutar.op(0x2c, 1);                                               // aload_2
+        ejecutar.invocar(0xb8, CLASE, "cuerpo", EJECUTAR, -1);
+        ejecutar.op(0xb0, -1);                                              // areturn
+
+        Metodo codigo = new Metodo(2);
+        expresion(codigo, cuerpo.cuerpo);
+        codigo.op(0xb0, -1);
+
+        Metodo llamar = new Metodo(3);
+        llamar.op(0x2b, 1);
+        llamar.invocar(0xb8, "Interprete/CompiladorLisp", "entrar", "(LInterprete/ContextoEvaluacion;)V", -1);
+        int inicio = llamar.posicion();
+        llamar.op(0x2a, 1);
+        llamar.op(0x2b, 1);
+        llamar.invocar(0xb8, CLASE, "cuerpo", EJECUTAR, -1);
+        llamar.op(0x2b, 1);
+        llamar.invocar(0xb8, "Interprete/CompiladorLisp", "completar",
+                       "(Ljava/lang/Object;LInterprete/ContextoEvaluacion;)Ljava/lang/Object;", -1);
+        llamar.op(0x4d, -1);                                                // astore_2
+        int fin = llamar.posicion();
+        llamar.op(0x2b, 1);
+        llamar.invocar(0xb8, "Interprete/CompiladorLisp", "salir", "(LInterprete/ContextoEvaluacion;)V", -1);
+        llamar.op(0x2c, 1);
+        llamar.op(0xb0, -1);
+        // Cualquier excepción: salir y relanzarla
+        llamar.pila = 1;
+        llamar.manejador(inicio, fin, llamar.posicion());
+        llamar.op(0x4d, -1);
+        llamar.op(0x2b, 1);
+        llamar.invocar(0xb8, "Interprete/CompiladorLisp", "salir", "(LInterprete/ContextoEvaluacion;)V", -1);
+        llamar.op(0x2c, 1);
+        llamar.op(0xbf, -1);                                                // athrow
+
+        // El inicializador se genera al final: necesita todas las constantes
+        Metodo inicializador = new Metodo(1);
+        inicializador.invocar(0xb8, "java/lang/invoke/MethodHandles", "lookup",
+                              "()Ljava/lang/invoke/MethodHandles$Lookup;", 1);
+        inicializador.ldc(pool.cadena("_"));
+        inicializador.ldc(pool.clase("[Ljava/lang/Object;"));
+        inicializador.invocar(0xb8, "java/lang/invoke/MethodHandles", "classData",
+                              "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;", -2);
+        inicializador.tipo(0xc0, "[Ljava/lang/Object;");                    // checkcast
+        inicializador.op(0x4b, -1);                                         // astore_0
+        for (int i = 0; i < constantes.size(); i++) {
+            inicializador.op(0x2a, 1);
+            inicializador.entero(i);
+            inicializador.op(0x32, -1);                                     // aaload
+            String tipo = tipos.get(i);
+            inicializador.tipo(0xc0, tipo.substring(1, tipo.length() - 1));
+            inicializador.campo(0xb3, CLASE, "K" + i, tipo, -1);            // putstatic
+        }
+        inicializador.op(0xb1, 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream salida = new DataOutputStream(bytes)) {
+            int utf8Codigo = pool.utf8("Code");
+            int esta = pool.clase(CLASE);
+            int padre = pool.clase(NODO);
+            int[][] nombresMetodos = {
+                {pool.utf8("<init>"), pool.utf8("()V")},
+                {pool.utf8("ejecutar"), pool.utf8(EJECUTAR)},
+                {pool.utf8("cuerpo"), pool.utf8(EJECUTAR)},
+                {pool.utf8("llamar"), pool.utf8(EJECUTAR)},
+                {pool.utf8("<clinit>"), pool.utf8("()V")},
+            };
+            int[][] nombresCampos = new int[constantes.size()][];
+            for (int i = 0; i < constantes.size(); i++) {
+                nombresCampos[i] = new int[] {pool.utf8("K" + i), pool.utf8(tipos.get(i))};
+            }
+
+            salida.writeInt(0xCAFEBABE);
+            salida.writeShort(0);
+            salida.writeShort(49);
+            pool.escribir(salida);
+            salida.writeShort(0x0030);                                      // final super
+            salida.writeShort(esta);
+            salida.writeShort(padre);
+            salida.writeShort(0);
+
+            salida.writeShort(constantes.size());
+            for (int[] campo : nombresCampos) {
+                salida.writeShort(0x001A);                                  // private static final
+                salida.writeShort(campo[0]);
+                salida.writeShort(campo[1]);
+                salida.writeShort(0);
+            }
+
+            Metodo[] metodos = {constructor, ejecutar, codigo, llamar, inicializador};
+            int[] accesos = {0x0001, 0x0001, 0x000A, 0x000A, 0x0008};
+            salida.writeShort(metodos.length);
+            for (int i = 0; i < metodos.length; i++) {
+                salida.writeShort(accesos[i]);
+                salida.writeShort(nombresMetodos[i][0]);
+                salida.writeShort(nombresMetodos[i][1]);
+                salida.writeShort(1);
+                metodos[i].escribir(salida, utf8Codigo);
+            }
+            salida.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Deja el valor del nodo en la pila de operandos
+    private void expresion(Metodo m, NodoLisp nodo) {
+        if (nodo instanceof NodoLisp.Constante) {
+            constante(m, ((NodoLisp.Constante) nodo).valor, "Ljava/lang/Object;");
+        } else if (nodo instanceof NodoLisp.VariableLocal) {
+            m.op(0x2a, 1);
+            m.entero(((NodoLisp.VariableLocal) nodo).posicion);
+            m.op(0x32, -1);
+        } else if (nodo instanceof NodoLisp.LlamadaPrimitiva1) {
+            NodoLisp.LlamadaPrimitiva1 llamada = (NodoLisp.LlamadaPrimitiva1) nodo;
+            constante(m, llamada.primitiva, "LInterprete/NodoLisp$Primitiva1;");
+            expresion(m, llamada.argumento);
+            m.invocarInterfaz("Interprete/NodoLisp$Primitiva1", "(Ljava/lang/Object;)Ljava/lang/Object;", 2);
+        } else if (nodo instanceof NodoLisp.LlamadaPrimitiva2) {
+            NodoLisp.LlamadaPrimitiva2 llamada = (NodoLisp.LlamadaPrimitiva2) nodo;
+            constante(m, llamada.primitiva, "LInterprete/NodoLisp$Primitiva2;");
+            expresion(m, llamada.primero);
+            expresion(m, llamada.segundo);
+            m.invocarInterfaz("Interprete/NodoLisp$Primitiva2", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", 3);
+        } else if (nodo instanceof NodoLisp.LlamadaPrimitiva) {
+            NodoLisp.LlamadaPrimitiva llamada = (NodoLisp.LlamadaPrimitiva) nodo;
+            constante(m, llamada.primitiva, "LInterprete/NodoLisp$Primitiva;");
+            arreglo(m, llamada.argumentos, llamada.argumentos.length);
+            m.op(0x2b, 1);
+            m.invocarInterfaz("Interprete/NodoLisp$Primitiva", "([Ljava/lang/Object;LInterprete/ContextoEvaluacion;)Ljava/lang/Object;", 3);
+        } else if (nodo instanceof NodoLisp.Cond && completo((NodoLisp.Cond) nodo)) {
+            cond(m, (NodoLisp.Cond) nodo);
+        } else if (nodo instanceof NodoLisp.Progn) {
+            NodoLisp[] formas = ((NodoLisp.Progn) nodo).formas;
+            for (int i = 0; i < formas.length - 1; i++) {
+                expresion(m, formas[i]);
+                m.op(0x57, -1);                                             // pop
+            }
+            expresion(m, formas[formas.length - 1]);
+        } else if (nodo instanceof NodoLisp.Let) {
+            NodoLisp.Let let = (NodoLisp.Let) nodo;
+            for (int i = 0; i < let.valores.length; i++) {
+                expresion(m, let.valores[i]);
+                guardarLocal(m, let.posiciones[i]);
+            }
+            expresion(m, let.cuerpo);
+        } else if (nodo instanceof NodoLisp.SetqLocal) {
+            NodoLisp.SetqLocal setq = (NodoLisp.SetqLocal) nodo;
+            expresion(m, setq.valor);
+            m.op(0x59, 1);                                                  // dup
+            guardarLocal(m, setq.posicion);
+        } else if (nodo instanceof NodoLisp.While) {
+            bucle(m, (NodoLisp.While) nodo);
+        } else if (nodo instanceof NodoLisp.LlamadaFuncion && ((NodoLisp.LlamadaFuncion) nodo).nombre == cuerpo.nombre) {
+            llamadaPropia(m, (NodoLisp.LlamadaFuncion) nodo);
+        } else {
+            delegar(m, nodo);
+        }
+    }
+
+    // El nodo del intérprete, ejecutado sobre el mismo marco
+    private void delegar(Metodo m, NodoLisp nodo) {
+        constante(m, nodo, "LInterprete/NodoLisp;");
+        m.op(0x2a, 1);
+        m.op(0x2b, 1);
+        m.invocar(0xb6, NODO, "ejecutar", EJECUTAR, -2);
+    }
+
+    // Las cláusulas inválidas no tienen cuerpo: ese cond se deja al intérprete
+    private static boolean completo(NodoLisp.Cond cond) {
+        for (NodoLisp cuerpo : cond.cuerpos) {
+            if (cuerpo == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void cond(Metodo m, NodoLisp.Cond cond) {
+        int base = m.pila;
+        List<Integer> salidas = new ArrayList<>();
+        for (int i = 0; i < cond.condiciones.length; i++) {
+            prueba(m, cond.condiciones[i]);
+            int siguiente = m.saltar(0x99, -1);                              // ifeq
+            expresion(m, cond.cuerpos[i]);
+            salidas.add(m.saltar(0xa7, 0));                                 // goto
+            m.pila = base;
+            m.fijar(siguiente);
+        }
+        constante(m, SimboloLisp.NIL, "Ljava/lang/Object;");
+        for (int salida : salidas) {
+            m.fijar(salida);
+        }
+    }
+
+    private void bucle(Metodo m, NodoLisp.While bucle) {
+        int inicio = m.posicion();
+        prueba(m, bucle.prueba);
+        int fin = m.saltar(0x99, -1);
+        m.op(0x2b, 1);
+        m.invocar(0xb6, CONTEXTO, "paso", "()V", -1);
+        expresion(m, bucle.cuerpo);
+        m.op(0x57, -1);
+        m.saltarA(0xa7, inicio);
+        m.fijar(fin);
+        constante(m, SimboloLisp.NIL, "Ljava/lang/Object;");
+    }
+
+    // Deja un int: 1 si el valor es verdadero
+    private void prueba(Metodo m, NodoLisp nodo) {
+        expresion(m, nodo);
+        m.invocar(0xb8, "Interprete/LispEvaluator", "isTrue", "(Ljava/lang/Object;)Z", 0);
+    }
+
+    // marco[posicion] = valor en la cima de la pila
+    private void guardarLocal(Metodo m, int posicion) {
+        m.op(0x2a, 1);
+        m.op(0x5f, 0);                                                      // swap
+        m.entero(posicion);
+        m.op(0x5f, 0);
+        m.op(0x53, -3);                                                     // aastore
+    }
+
+    // new Object[tamano] con los valores de los nodos en las primeras posiciones
+    private void arreglo(Metodo m, NodoLisp[] nodos, int tamano) {
+        m.entero(tamano);
+        m.tipo(0xbd, OBJETO);                                               // anewarray
+        for (int i = 0; i < nodos.length; i++) {
+            m.op(0x59, 1);
+            m.entero(i);
+            expresion(m, nodos[i]);
+            m.op(0x53, -3);
+        }
+    }
+
+    private void llamadaPropia(Metodo m, NodoLisp.LlamadaFuncion llamada) {
+        if (llamada.enCola && m.pila != 0) {
+            // No debería pasar: en posición de cola la pila de operandos está vacía
+            delegar(m, llamada);
+            return;
+        }
+        int base = m.pila;
+        constante(m, llamada, "LInterprete/NodoLisp$LlamadaFuncion;");
+        m.op(0x2b, 1);
+        m.invocar(0xb6, LLAMADA, "resolver", "(LInterprete/ContextoEvaluacion;)LInterprete/NodoLisp$CuerpoFuncion;", 0);
+        m.campo(0xb4, CUERPO, "cuerpo", "LInterprete/NodoLisp;", 0);        // getfield
+        m.tipo(0xc1, CLASE);                                                // instanceof
+        int generica = m.saltar(0x99, -1);
+        m.op(0x2b, 1);
+        m.campo(0xb4, CONTEXTO, "perfil", "LInterprete/PerfilLisp;", 0);
+        int perfilada = m.saltar(0xc7, -1);                                 // ifnonnull
+        m.op(0x2b, 1);
+        m.invocar(0xb6, CONTEXTO, "paso", "()V", -1);
+        arreglo(m, llamada.argumentos, cuerpo.tamanoMarco);
+        int fin;
+        if (llamada.enCola) {
+            // El marco nuevo sustituye al actual y se vuelve al principio del cuerpo
+            m.op(0x4b, -1);
+            m.saltarA(0xa7, 0);
+            fin = -1;
+        } else {
+            m.op(0x2b, 1);
+            m.invocar(0xb8, CLASE, "llamar", EJECUTAR, -1);
+            fin = m.saltar(0xa7, 0);
+        }
+        m.pila = base;
+        m.fijar(generica);
+        m.fijar(perfilada);
+        delegar(m, llamada);
+        if (fin >= 0) {
+            m.fijar(fin);
+        }
+    }
+
+    private void constante(Metodo m, Object valor, String tipo) {
+        int indice = -1;
+        for (int i = 0; i < constantes.size(); i++) {
+            if (constantes.get(i) == valor && tipos.get(i).equals(tipo)) {
+                indice = i;
+                break;
+            }
+        }
+        if (indice < 0) {
+            indice = constantes.size();
+            constantes.add(valor);
+            tipos.add(tipo);
+        }
+        m.campo(0xb2, CLASE, "K" + indice, tipo, 1);                        // getstatic
+    }
+
+    // Cuerpo demasiado grande para un método o un salto de 16 bits
+    private static final class DemasiadoGrande extends RuntimeException {
+        DemasiadoGrande() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Bytecode de un método con la profundidad de la pila de operandos
+    private final class Metodo {
+        private final ByteArrayOutputStream codigo = new ByteArrayOutputStream();
+        private final List<int[]> manejadores = new ArrayList<>();
+        // {posición del desplazamiento, desplazamiento}: se escriben al final
+        private final List<int[]> parches = new ArrayList<>();
+        private final int locales;
+        int pila;
+        private int maximo;
+
+        Metodo(int locales) {
+            this.locales = locales;
+        }
+
+        int posicion() {
+            return codigo.size();
+        }
+
+        void op(int codigoOp, int efecto) {
+            codigo.write(codigoOp);
+            apilar(efecto);
+        }
+
+        private void apilar(int efecto) {
+            pila += efecto;
+            maximo = Math.max(maximo, pila);
+        }
+
+        private void u2(int valor) {
+            codigo.write(valor >> 8);
+            codigo.write(valor);
+        }
+
+        void entero(int valor) {
+            if (valor >= -1 && valor <= 5) {
+                op(0x03 + valor, 1);                                        // iconst_<n>
+            } else if (valor >= Byte.MIN_VALUE && valor <= Byte.MAX_VALUE) {
+                op(0x10, 1);                                                // bipush
+                codigo.write(valor);
+            } else if (valor >= Short.MIN_VALUE && valor <= Short.MAX_VALUE) {
+                op(0x11, 1);                                                // sipush
+                u2(valor);
+            } else {
+                ldc(pool.entero(valor));
+            }
+        }
+
+        void ldc(int indice) {
+            op(0x13, 1);                                                    // ldc_w
+            u2(indice);
+        }
+
+        void tipo(int codigoOp, String clase) {
+            op(codigoOp, 0);
+            u2(pool.clase(clase));
+        }
+
+        void campo(int codigoOp, String clase, String nombre, String tipo, int efecto) {
+            op(codigoOp, efecto);
+            u2(pool.referencia(9, clase, nombre, tipo));
+        }
+
+        void invocar(int codigoOp, String clase, String nombre, String tipo, int efecto) {
+            op(codigoOp, efecto);
+            u2(pool.referencia(10, clase, nombre, tipo));
+        }
+
+        // argumentos cuenta también el receptor
+        void invocarInterfaz(String interfaz, String tipo, int argumentos) {
+            op(0xb9, 1 - argumentos);
+            u2(pool.referencia(11, interfaz, "aplicar", tipo));
+            codigo.write(argumentos);
+            codigo.write(0);
+        }
+
+        // Salto hacia delante; devuelve la posición a completar con fijar
+        int saltar(int codigoOp, int efecto) {
+            int origen = posicion();
+            op(codigoOp, efecto);
+            u2(0);
+            return origen;
+        }
+
+        void saltarA(int codigoOp, int destino) {
+            int origen = posicion();
+            op(codigoOp, 0);
+            u2(desplazamiento(origen, destino));
+        }
+
+        void fijar(int origen) {
+            parches.add(new int[] {origen + 1, desplazamiento(origen, posicion())});
+        }
+
+        private int desplazamiento(int origen, int destino) {
+            int desplazamiento = destino - origen;
+            if (desplazamiento < Short.MIN_VALUE || desplazamiento > Short.MAX_VALUE) {
+                throw new DemasiadoGrande();
+            }
+            return desplazamiento;
+        }
+
+        void manejador(int inicio, int fin, int destino) {
+            manejadores.add(new int[] {inicio, fin, destino});
+        }
+
+        void escribir(DataOutputStream salida, int utf8Codigo) throws IOException {
+            byte[] bytes = codigo.toByteArray();
+            if (bytes.length > 65535) {
+                throw new DemasiadoGrande();
+            }
+            for (int[] parche : parches) {
+                bytes[parche[0]] = (byte) (parche[1] >> 8);
+                bytes[parche[0] + 1] = (byte) parche[1];
+            }
+            salida.writeShort(utf8Codigo);
+            salida.writeInt(2 + 2 + 4 + bytes.length + 2 + 8 * manejadores.size() + 2);
+            salida.writeShort(maximo);
+            salida.writeShort(locales);
+            salida.writeInt(bytes.length);
+            salida.write(bytes);
+            salida.writeShort(manejadores.size());
+            for (int[] excepcion : manejadores) {
+                salida.writeShort(excepcion[0]);
+                salida.writeShort(excepcion[1]);
+                salida.writeShort(excepcion[2]);
+                salida.writeShort(0);                                       // cualquier excepción
+            }
+            salida.writeShort(0);
+        }
+    }
+
+    // Tabla de constantes de la clase
+    private static final class Pool {
+        private final ByteArrayOutputStream datos = new ByteArrayOutputStream();
+        private final DataOutputStream salida = new DataOutputStream(datos);
+        private final Map<String, Integer> indices = new HashMap<>();
+        private int siguiente = 1;
+
+        int utf8(String texto) {
+            Integer indice = indices.get("U" + texto);
+            if (indice != null) {
+                return indice;
+            }
+            return agregar("U" + texto, 1, s -> s.writeUTF(texto));
+        }
+
+        int clase(String nombre) {
+            int texto = utf8(nombre);
+            return buscar("C" + nombre, 7, s -> s.writeShort(texto));
+        }
+
+        int cadena(String valor) {
+            int texto = utf8(valor);
+            return buscar("S" + valor, 8, s -> s.writeShort(texto));
+        }
+
+        int entero(int valor) {
+            return buscar("I" + valor, 3, s -> s.writeInt(valor));
+        }
+
+        int referencia(int etiqueta, String clase, String nombre, String tipo) {
+            int propietario = clase(clase);
+            int nombreTexto = utf8(nombre);
+            int tipoTexto = utf8(tipo);
+            int nombreYTipo = buscar("N" + nombre + ":" + tipo, 12, s -> {
+                s.writeShort(nombreTexto);
+                s.writeShort(tipoTexto);
+            });
+            return buscar(etiqueta + clase + "." + nombre + ":" + tipo, etiqueta, s -> {
+                s.writeShort(propietario);
+                s.writeShort(nombreYTipo);
+            });
+        }
+
+        private int buscar(String clave, int etiqueta, Entrada entrada) {
+            Integer indice = indices.get(clave);
+            return indice != null ? indice : agregar(clave, etiqueta, entrada);
+        }
+
+        private int agregar(String clave, int etiqueta, Entrada entrada) {
+            try {
+                salida.writeByte(etiqueta);
+                entrada.escribir(salida);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (siguiente > 65535) {
+                throw new DemasiadoGrande();
+            }
+            indices.put(clave, siguiente);
+            return siguiente++;
+        }
+
+        void escribir(DataOutputStream destino) throws IOException {
+            destino.writeShort(siguiente);
+            datos.writeTo(destino);
+        }
+
+        private interface Entrada {
+            void escribir(DataOutputStream salida) throws IOException;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Test;
+
+public class CompiladorLispTest {
+
+    private static final String[] DEFINICIONES = {
+        "(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))",
+        "(defun cuenta (n acc) (cond ((= n 0) acc) (t (cuenta (- n 1) (+ acc 1)))))",
+        "(defun suma-hasta (n) (let ((i 0) (total 0)) (while (< i n) (setq i (+ i 1)) (setq total (+ total i))) total))",
+        "(defun clasifica (x) (cond ((< x 0) 'negativo) ((= x 0) 'cero) (t (list x (* x x)))))"
+    };
+
+    private static final String[] EXPRESIONES = {
+        "(fib 20)", "(cuenta 100000 0)", "(suma-hasta 1000)",
+        "(clasifica -3)", "(clasifica 0)", "(clasifica 7)"
+    };
+
+    private final LispProcessor interpretado = new LispProcessor(LispEvaluator.Motor.RECURSIVO);
+    private final LispProcessor compilado = new LispProcessor(LispEvaluator.Motor.RECURSIVO);
+
+    private void definirEnAmbos(String... definiciones) {
+        for (String definicion : definiciones) {
+            interpretado.procesar(definicion);
+            compilado.procesar(definicion);
+        }
+    }
+
+    private boolean enBytecode(String funcion) {
+        return compilado.nuevaSesion().getEntorno().obtenerFuncion(funcion).isEnBytecode();
+    }
+
+    @Test
+    public void testHotFunctionsMoveToBytecodeWithSameResults() {
+        compilado.setUmbralCompilacion(3);
+        definirEnAmbos(DEFINICIONES);
+
+        assertEquals(interpretado.procesar("(clasifica 1)"), compilado.procesar("(clasifica 1)"));
+        assertFalse(enBytecode("clasifica"));
+        for (int vuelta = 0; vuelta < 3; vuelta++) {
+            for (String expresion : EXPRESIONES) {
+                assertEquals(expresion, interpretado.procesar(expresion), compilado.procesar(expresion));
+            }
+        }
+        for (String funcion : new String[] { "fib", "cuenta", "suma-hasta", "clasifica" }) {
+            assertTrue(funcion, enBytecode(funcion));
+        }
+    }
+
+    @Test
+    public void testTailCallsInBytecodeDoNotGrowTheStack() {
+        compilado.setUmbralCompilacion(1);
+        compilado.procesar(DEFINICIONES[1]);
+        compilado.procesar("(cuenta 1 0)");
+        assertTrue(enBytecode("cuenta"));
+        assertEquals(1_000_000, compilado.procesar("(cuenta 1000000 0)"));
+    }
+
+    @Test
+    public void testRedefinitionReplacesCompiledBody() {
+        compilado.setUmbralCompilacion(1);
+        compilado.procesar("(defun f (n) (cond ((= n 0) 'viejo) (t (f (- n 1)))))");
+        compilado.procesar("(defun g (n) (list (f n)))");
+        compilado.procesar("(g 3)");
+        compilado.procesar("(g 3)");
+        assertTrue(enBytecode("f"));
+        assertTrue(enBytecode("g"));
+
+        compilado.procesar("(defun f (n) (cond ((= n 0) 'nuevo) (t (f (- n 1)))))");
+        assertFalse(enBytecode("f"));
+        assertEquals(ConsLisp.de(SimboloLisp.intern("nuevo")), compilado.procesar("(g 3)"));
+
+        // Una función que se redefine a sí misma a mitad de su recursión
+        compilado.procesar("(defun h (n) (cond ((= n 5) (progn (defun h (n) n) (h n))) ((= n 0) 'fin) (t (h (- n 1)))))");
+        compilado.procesar("(h 2)");
+        assertTrue(enBytecode("h"));
+        assertEquals(5, compilado.procesar("(h 9)"));
+    }
+
+    @Test
+    public void testErrorsMatchInterpreter() {
+        compilado.setUmbralCompilacion(1);
+        definirEnAmbos("(defun divide (a b) (cond ((= b 0) (/ a b)) (t (divide a (- b 1)))))",
+                       "(defun hondo (n) (+ 1 (hondo n)))",
+                       "(defun mal (x) (car x))");
+        for (int vuelta = 0; vuelta < 2; vuelta++) {
+            for (String expresion : new String[] { "(divide 1 3)", "(hondo 0)", "(mal 5)" }) {
+                assertEquals(expresion, mensajeDeError(interpretado, expresion), mensajeDeError(compilado, expresion));
+            }
+        }
+        assertTrue(enBytecode("hondo"));
+        // Tras el error la profundidad vuelve a cero
+        compilado.procesar(DEFINICIONES[0]);
+        assertEquals(6765, compilado.procesar("(fib 20)"));
+    }
+
+    @Test
+    public void testMemoizedAndProfiledFunctionsStayCorrect() {
+        compilado.setUmbralCompilacion(1);
+        compilado.procesar("(defun-memo fibm (n) (cond ((< n 2) n) (t (+ (fibm (- n 1)) (fibm (- n 2))))))");
+        compilado.procesar("(fibm 30)");
+        assertFalse(enBytecode("fibm"));
+        assertEquals(832040, compilado.procesar("(fibm 30)"));
+
+        compilado.procesar(DEFINICIONES[0]);
+        compilado.procesar("(fib 2)");
+        assertTrue(enBytecode("fib"));
+        compilado.setPerfilado(true);
+        assertEquals(55, compilado.procesar("(fib 10)"));
+        assertEquals(177, compilado.getPerfil().getEstadistica("fib").getLlamadas());
+    }
+
+    @Test
+    public void testRejectedClassIsCountedAndFunctionStaysInterpreted() {
+        compilado.setUmbralCompilacion(1);
+        compilado.procesar(DEFINICIONES[0]);
+        compilado.procesar("(fib 2)");
+        assertTrue(enBytecode("fib"));
+        assertEquals(0, compilado.getMetricas().getCompilacionesFallidas());
+
+        NodoLisp.CuerpoFuncion cuerpo = new NodoLisp.CuerpoFuncion(SimboloLisp.intern("roto"), new NodoLisp.Constante(1), 0);
+        LongAdder fallidas = new LongAdder();
+        assertNull(CompiladorLisp.cargar(cuerpo, new byte[] { (byte) 0xCA, (byte) 0xFE }, new Object[0], fallidas));
+        assertEquals(1, fallidas.sum());
+    }
+
+    @Test
+    public void testThresholdOnlyForRecursiveEngine() {
+        LispProcessor pila = new LispProcessor(LispEvaluator.Motor.PILA);
+        try {
+            pila.setUmbralCompilacion(1);
+            fail("Se esperaba IllegalStateException");
+        } catch (IllegalStateException e) {
+            // esperado
+        }
+        pila.setUmbralCompilacion(0);
+        try {
+            compilado.setUmbralCompilacion(-1);
+            fail("Se esperaba IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // esperado
+        }
+    }
+
+    private static String mensajeDeError(LispProcessor processor, String expresion) {
+        try {
+            processor.procesar(expresion);
+            fail("Se esperaba un error en " + expresion);
+            return null;
+        } catch (ErrorLisp e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package Interprete;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lista inmutable formada por celdas cons. car, cdr y cons son O(1) y las
+ * listas comparten estructura: (cons x l) no copia l. Implementa List para
+ * que el resto del intérprete (y printResult) la recorra como cualquier otra
+ * lista; el acceso por índice es lineal, así que se recorre con el iterador.
+ */
+public final class ConsLisp extends AbstractList<Object> {
+
+    public static final ConsLisp VACIA = new ConsLisp(null, null, 0);
+    // Cabecera y tres campos, con referencias comprimidas; para reservar memoria antes de crear listas
+    static final int BYTES_CELDA = 24;
+
+    private final Object car;
+    private final ConsLisp cdr;
+    private final int tamano;
+
+    private ConsLisp(Object car, ConsLisp cdr, int tamano) {
+        this.car = car;
+        this.cdr = cdr;
+        this.tamano = tamano;
+    }
+
+    public static ConsLisp cons(Object car, ConsLisp cdr) {
+        return new ConsLisp(car, cdr, cdr.tamano + 1);
+    }
+
+    public static ConsLisp de(Object... elementos) {
+        return de(elementos, 0, elementos.length);
+    }
+
+    public static ConsLisp de(Object[] elementos, int desde, int hasta) {
+        ConsLisp lista = VACIA;
+        for (int i = hasta - 1; i >= desde; i--) {
+            lista = cons(elementos[i], lista);
+        }
+        return lista;
+    }
+
+    // Convierte cualquier List (p. ej. las construidas desde Java) en celdas cons
+    public static ConsLisp desde(List<?> lista) {
+        if (lista instanceof ConsLisp) {
+            return (ConsLisp) lista;
+        }
+        return de(lista.toArray());
+    }
+
+    public boolean esVacia() {
+        return tamano == 0;
+    }
+
+    public Object car() {
+        return car;
+    }
+
+    public ConsLisp cdr() {
+        return tamano == 0 ? VACIA : cdr;
+    }
+
+    @Override
+    public int size() {
+        return tamano;
+    }
+
+    @Override
+    public Object get(int indice) {
+        if (indice < 0 || indice >= tamano) {
+            throw new IndexOutOfBoundsException("Índice " + indice + " fuera de la lista de tamaño " + tamano);
+        }
+        ConsLisp actual = this;
+        for (int i = 0; i < indice; i++) {
+            actual = actual.cdr;
+        }
+        return actual.car;
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return new Iterator<Object>() {
+            private ConsLisp actual = ConsLisp.this;
+
+            @Override
+            public boolean hasNext() {
+                return actual.tamano > 0;
+            }
+
+            @Override
+            public Object next() {
+                if (actual.tamano == 0) {
+                    throw new NoSuchElementException();
+                }
+                Object valor = actual.car;
+                actual = actual.cdr;
+                return valor;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        if (this == otro) {
+            return true;
+        }
+        if (!(otro instanceof List) || ((List<?>) otro).size() != tamano) {
+            return false;
+        }
+        Iterator<?> elementos = ((List<?>) otro).iterator();
+        for (ConsLisp actual = this; actual.tamano > 0; actual = actual.cdr) {
+            Object valor = elementos.next();
+            if (actual.car == null ? valor != null : !actual.car.equals(valor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (ConsLisp actual = this; actual.tamano > 0; actual = actual.cdr) {
+            hash = 31 * hash + (actual.car == null ? 0 : actual.car.hashCode());
+        }
+        return hash;
+    }
+}
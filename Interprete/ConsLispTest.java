@@ -0,0 +1,37 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ConsLispTest {
+
+    @Test
+    public void testConsSharesStructure() {
+        ConsLisp tail = ConsLisp.de(2, 3);
+        ConsLisp list = ConsLisp.cons(1, tail);
+        assertSame(tail, list.cdr());
+        assertEquals(3, list.size());
+        assertEquals(List.of(1, 2, 3), list);
+    }
+
+    @Test
+    public void testEmptyList() {
+        assertTrue(ConsLisp.de().esVacia());
+        assertSame(ConsLisp.VACIA, ConsLisp.de(1).cdr());
+        assertSame(ConsLisp.VACIA, ConsLisp.VACIA.cdr());
+    }
+
+    @Test
+    public void testListPrimitives() {
+        LispProcessor processor = new LispProcessor();
+        assertEquals(1, processor.procesar("(car '(1 2 3))"));
+        assertEquals(List.of(2, 3), processor.procesar("(cdr '(1 2 3))"));
+        assertEquals(List.of(0, 1), processor.procesar("(cons 0 (list 1))"));
+        assertSame(SimboloLisp.T, processor.procesar("(null (cdr '(1)))"));
+    }
+}
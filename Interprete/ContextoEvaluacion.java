@@ -0,0 +1,64 @@
+package Interprete;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estado de una evaluación en curso: la tabla global de variables y funciones
+ * y la profundidad de llamadas actual. Los parámetros viven en el marco
+ * (Object[]) que recibe cada nodo, no aquí.
+ */
+public class ContextoEvaluacion {
+
+    static final Object[] MARCO_VACIO = new Object[0];
+
+    private final EntornoLisp entorno;
+    int profundidad;
+    // Mayor profundidad alcanzada: llamadas anidadas, o continuaciones pendientes con el motor PILA
+    int profundidadMaxima;
+
+    // Llamada en posición de cola pendiente de ejecutar por el trampolín
+    NodoLisp.CuerpoFuncion cuerpoPendiente;
+    Object[] marcoPendiente;
+
+    // Perfil de las funciones de usuario; null si no se está perfilando
+    PerfilLisp perfil;
+    // Perfiles de las formas (profile ...) ya terminadas; null si no hubo ninguna
+    List<PerfilLisp> perfilesTerminados;
+
+    // Límites de recursos; null si la evaluación no tiene. lote y pendientes
+    // son los pasos que puede dar este contexto antes de la siguiente revisión
+    GobernadorLisp gobernador;
+    int lote;
+    int pendientes;
+    long bytesRevisados;
+
+    public ContextoEvaluacion(EntornoLisp entorno) {
+        this.entorno = entorno;
+    }
+
+    public EntornoLisp getEntorno() {
+        return entorno;
+    }
+
+    void guardarPerfil(PerfilLisp terminado) {
+        if (perfilesTerminados == null) {
+            perfilesTerminados = new ArrayList<>();
+        }
+        perfilesTerminados.add(terminado);
+    }
+
+    // Antes de una asignación cuyo tamaño depende de los argumentos (make-array, vector, list)
+    void reservar(long bytes) {
+        if (gobernador != null) {
+            gobernador.reservar(this, bytes);
+        }
+    }
+
+    // Una llamada a función o una vuelta de bucle
+    void paso() {
+        if (gobernador != null && --pendientes < 0) {
+            gobernador.revisar(this);
+        }
+    }
+}
@@ -1,13 +1,36 @@
 package Interprete;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import Interprete.MetricasLisp.CategoriaError;
+
+/**
+ * Tablas de variables y funciones. Ambas son ConcurrentHashMap, así que un
+ * entorno puede leerse desde varios hilos mientras otro define funciones.
+ * Las sesiones (ver nuevaSesion) tienen variables propias y comparten con el
+ * entorno del que salen la tabla de funciones.
+ *
+ * Cada tabla de funciones tiene su versión, que cambia con cada defun en
+ * ella; las llamadas guardan en caché la suma de las versiones de su
+ * cadena de tablas, así que un defun solo invalida las de los entornos que
+ * ven esa tabla.
+ */
 public class EntornoLisp {
 
-    private final Map<String, Object> tablaVariables;
-    private final Map<String, DefinicionFuncion> tablaFunciones;
+    // ConcurrentHashMap no admite null: un valor null se guarda como NULO
+    private static final Object NULO = new Object();
+    private static final Object AUSENTE = new Object();
+
+    // Las claves son símbolos internados: la búsqueda compara por identidad
+    private final ConcurrentHashMap<SimboloLisp, Object> tablaVariables;
+    private final ConcurrentHashMap<SimboloLisp, DefinicionFuncion> tablaFunciones;
+    // Versión de tablaFunciones; la comparten las sesiones que comparten la tabla
+    private final AtomicInteger versionTabla;
     private final EntornoLisp entornoPadre;
 
     public EntornoLisp() {
@@ -15,76 +38,190 @@ public class EntornoLisp {
     }
 
     public EntornoLisp(EntornoLisp entornoPadre) {
-        this.tablaVariables = new HashMap<>();
-        this.tablaFunciones = new HashMap<>();
+        this(entornoPadre, new ConcurrentHashMap<>(), new AtomicInteger());
+    }
+
+    private EntornoLisp(EntornoLisp entornoPadre, ConcurrentHashMap<SimboloLisp, DefinicionFuncion> tablaFunciones,
+                        AtomicInteger versionTabla) {
+        this.tablaVariables = new ConcurrentHashMap<>();
+        this.tablaFunciones = tablaFunciones;
+        this.versionTabla = versionTabla;
         this.entornoPadre = entornoPadre;
     }
 
-    // Método optimizado para evitar recursión excesiva
+    /**
+     * Entorno hijo para una sesión: lee las variables de este entorno pero
+     * asigna en las suyas, y define funciones en la tabla compartida.
+     */
+    public EntornoLisp nuevaSesion() {
+        return new EntornoLisp(this, tablaFunciones, versionTabla);
+    }
+
     public Object obtenerVariable(String nombre) {
+        return obtenerVariable(SimboloLisp.intern(nombre));
+    }
+
+    public Object obtenerVariable(SimboloLisp nombre) {
+        Object valor = buscarVariable(nombre, AUSENTE);
+        if (valor == AUSENTE) {
+            throw new ErrorLisp(CategoriaError.VARIABLE_NO_DEFINIDA, "Variable no encontrada: " + nombre);
+        }
+        return valor;
+    }
+
+    // Una sola búsqueda por la cadena de entornos; devuelve siNoExiste si no está definida
+    Object buscarVariable(SimboloLisp nombre, Object siNoExiste) {
         EntornoLisp entornoActual = this;
         while (entornoActual != null) {
-            if (entornoActual.tablaVariables.containsKey(nombre)) {
-                return entornoActual.tablaVariables.get(nombre);
+            Object valor = entornoActual.tablaVariables.get(nombre);
+            if (valor != null) {
+                return valor == NULO ? null : valor;
             }
             entornoActual = entornoActual.entornoPadre;
         }
-        throw new RuntimeException("Variable no encontrada: " + nombre);
+        return siNoExiste;
     }
 
     public Object asignarVariable(String nombre, Object valor) {
-        tablaVariables.put(nombre, valor);
+        return asignarVariable(SimboloLisp.intern(nombre), valor);
+    }
+
+    public Object asignarVariable(SimboloLisp nombre, Object valor) {
+        tablaVariables.put(nombre, valor == null ? NULO : valor);
         return valor;
     }
 
-    // Método optimizado para evitar recursión excesiva
     public boolean existeVariable(String nombre) {
-        EntornoLisp entornoActual = this;
-        while (entornoActual != null) {
-            if (entornoActual.tablaVariables.containsKey(nombre)) {
-                return true;
-            }
-            entornoActual = entornoActual.entornoPadre;
-        }
-        return false;
+        return existeVariable(SimboloLisp.intern(nombre));
+    }
+
+    public boolean existeVariable(SimboloLisp nombre) {
+        return buscarVariable(nombre, AUSENTE) != AUSENTE;
     }
 
     public String registrarFuncion(String nombre, List<String> parametros, Object cuerpo) {
-        tablaFunciones.put(nombre, new DefinicionFuncion(parametros, cuerpo));
+        registrar(SimboloLisp.intern(nombre), new DefinicionFuncion(parametros, cuerpo));
+        return nombre;
+    }
+
+    SimboloLisp registrarFuncion(SimboloLisp nombre, List<String> parametros, Object cuerpo, NodoLisp.CuerpoFuncion compilado) {
+        DefinicionFuncion funcion = new DefinicionFuncion(parametros, cuerpo);
+        funcion.setCuerpoCompilado(compilado);
+        return registrar(nombre, funcion);
+    }
+
+    // defun-memo y memoize: el cuerpo se compila en la primera llamada, ya con la caché
+    SimboloLisp registrarFuncionMemo(SimboloLisp nombre, List<String> parametros, Object cuerpo, int capacidad) {
+        return registrar(nombre, new DefinicionFuncion(parametros, cuerpo, new MemoLisp(capacidad)));
+    }
+
+    // (memoize 'f): la misma definición con una caché nueva, aunque ya tuviera una
+    SimboloLisp memoizar(SimboloLisp nombre, int capacidad) {
+        DefinicionFuncion funcion = buscarFuncion(nombre);
+        if (funcion == null) {
+            throw new ErrorLisp(CategoriaError.FUNCION_NO_DEFINIDA, "Error: función " + nombre + " no definida");
+        }
+        return registrarFuncionMemo(nombre, funcion.getParametros(), funcion.getCuerpo(), capacidad);
+    }
+
+    private SimboloLisp registrar(SimboloLisp nombre, DefinicionFuncion funcion) {
+        funcion.versionTabla = versionTabla;
+        tablaFunciones.put(nombre, funcion);
+        // Después de put: quien lea la versión nueva ya encuentra la definición nueva
+        versionTabla.incrementAndGet();
         return nombre;
     }
 
-    // Método optimizado para evitar recursión excesiva
     public DefinicionFuncion obtenerFuncion(String nombre) {
-        EntornoLisp entornoActual = this;
-        while (entornoActual != null) {
-            if (entornoActual.tablaFunciones.containsKey(nombre)) {
-                return entornoActual.tablaFunciones.get(nombre);
+        DefinicionFuncion funcion = buscarFuncion(SimboloLisp.intern(nombre));
+        if (funcion == null) {
+            throw new RuntimeException("Función no encontrada: " + nombre);
+        }
+        return funcion;
+    }
+
+    // Suma de las versiones de las tablas de la cadena; crece con cualquier defun que este entorno pueda ver
+    int versionFunciones() {
+        int version = 0;
+        AtomicInteger anterior = null;
+        for (EntornoLisp entornoActual = this; entornoActual != null; entornoActual = entornoActual.entornoPadre) {
+            if (entornoActual.versionTabla != anterior) {
+                anterior = entornoActual.versionTabla;
+                version += anterior.get();
             }
-            entornoActual = entornoActual.entornoPadre;
         }
-        throw new RuntimeException("Función no encontrada: " + nombre);
+        return version;
+    }
+
+    /**
+     * Identifica la cadena de tablas de funciones de este entorno: dos
+     * entornos con la misma tabla propia (un entorno y sus sesiones)
+     * resuelven igual cualquier nombre.
+     */
+    Object tablaFunciones() {
+        return tablaFunciones;
     }
 
     // Método optimizado para evitar recursión excesiva
-    public boolean existeFuncion(String nombre) {
+    DefinicionFuncion buscarFuncion(SimboloLisp nombre) {
         EntornoLisp entornoActual = this;
         while (entornoActual != null) {
-            if (entornoActual.tablaFunciones.containsKey(nombre)) {
-                return true;
+            DefinicionFuncion funcion = entornoActual.tablaFunciones.get(nombre);
+            if (funcion != null) {
+                return funcion;
             }
             entornoActual = entornoActual.entornoPadre;
         }
-        return false;
+        return null;
+    }
+
+    /**
+     * Caché de resultados de una función memoizada, con sus aciertos, fallos
+     * y desalojos; null si la función no existe o no está memoizada.
+     */
+    public MemoLisp obtenerMemo(String nombre) {
+        DefinicionFuncion funcion = buscarFuncion(SimboloLisp.intern(nombre));
+        return funcion == null ? null : funcion.getMemo();
+    }
+
+    public boolean existeFuncion(String nombre) {
+        return buscarFuncion(SimboloLisp.intern(nombre)) != null;
+    }
+
+    // Funciones y variables definidas en este nivel, sin contar las del padre
+    public int cantidadFunciones() {
+        return tablaFunciones.size();
+    }
+
+    public int cantidadVariables() {
+        return tablaVariables.size();
+    }
+
+    // Para ImagenLisp: las funciones de este nivel, sin las del padre
+    Map<SimboloLisp, DefinicionFuncion> funcionesPropias() {
+        return Collections.unmodifiableMap(tablaFunciones);
+    }
+
+    void recorrerVariables(BiConsumer<SimboloLisp, Object> accion) {
+        tablaVariables.forEach((nombre, valor) -> accion.accept(nombre, valor == NULO ? null : valor));
     }
 
     public static class DefinicionFuncion {
         private final List<String> parametros;
         private final Object cuerpo;
+        private final MemoLisp memo;
+        private volatile NodoLisp.CuerpoFuncion cuerpoCompilado;
+        // Versión de la tabla en la que se registró; null hasta entonces
+        private volatile AtomicInteger versionTabla;
 
         public DefinicionFuncion(List<String> parametros, Object cuerpo) {
+            this(parametros, cuerpo, null);
+        }
+
+        DefinicionFuncion(List<String> parametros, Object cuerpo, MemoLisp memo) {
             this.parametros = parametros;
             this.cuerpo = cuerpo;
+            this.memo = memo;
         }
 
         public List<String> getParametros() {
@@ -94,5 +231,36 @@ public class EntornoLisp {
         public Object getCuerpo() {
             return cuerpo;
         }
+
+        // null si la función no está memoizada
+        public MemoLisp getMemo() {
+            return memo;
+        }
+
+        // true si el cuerpo ya pasó al segundo nivel (CompiladorLisp)
+        public boolean isEnBytecode() {
+            NodoLisp.CuerpoFuncion cuerpo = cuerpoCompilado;
+            return cuerpo != null && CompiladorLisp.esCompilado(cuerpo.cuerpo);
+        }
+
+        // Cambia el cuerpo si sigue siendo anterior; las llamadas lo ven al revisar su caché
+        synchronized boolean reemplazarCuerpo(NodoLisp.CuerpoFuncion anterior, NodoLisp.CuerpoFuncion nuevo) {
+            if (cuerpoCompilado != anterior) {
+                return false;
+            }
+            cuerpoCompilado = nuevo;
+            if (versionTabla != null) {
+                versionTabla.incrementAndGet();
+            }
+            return true;
+        }
+
+        NodoLisp.CuerpoFuncion getCuerpoCompilado() {
+            return cuerpoCompilado;
+        }
+
+        void setCuerpoCompilado(NodoLisp.CuerpoFuncion cuerpoCompilado) {
+            this.cuerpoCompilado = cuerpoCompilado;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package Interprete;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
@@ -35,4 +36,43 @@ public class EntornoLispTest {
         env.registrarFuncion("suma", params, "(+ a b)");
         assertTrue(env.existeFuncion("suma"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDefunOnlyChangesTheVersionOfEnvironmentsThatSeeIt() {
+        EntornoLisp global = new EntornoLisp();
+        EntornoLisp sesion = global.nuevaSesion();
+        EntornoLisp aislado = new EntornoLisp(global);
+        EntornoLisp otro = new EntornoLisp();
+
+        int versionGlobal = global.versionFunciones();
+        int versionSesion = sesion.versionFunciones();
+        int versionAislado = aislado.versionFunciones();
+        int versionOtro = otro.versionFunciones();
+
+        aislado.registrarFuncion("propia", List.of(), "1");
+        assertEquals(versionGlobal, global.versionFunciones());
+        assertEquals(versionSesion, sesion.versionFunciones());
+        assertNotEquals(versionAislado, aislado.versionFunciones());
+        versionAislado = aislado.versionFunciones();
+
+        sesion.registrarFuncion("compartida", List.of(), "2");
+        assertNotEquals(versionGlobal, global.versionFunciones());
+        assertNotEquals(versionAislado, aislado.versionFunciones());
+        assertEquals(versionOtro, otro.versionFunciones());
+    }
+
+    @Test
+    public void testIsolatedSessionSeesParentRedefinition() {
+        LispProcessor processor = new LispProcessor();
+        processor.procesar("(defun valor () 1)");
+        SesionLisp aislada = processor.nuevaSesionAislada();
+        aislada.procesar("(defun usa () (valor))");
+        assertEquals(1, aislada.procesar("(usa)"));
+
+        // Un defun en otro procesador no afecta; uno en el padre sí
+        new LispProcessor().procesar("(defun valor () 3)");
+        assertEquals(1, aislada.procesar("(usa)"));
+        processor.procesar("(defun valor () 2)");
+        assertEquals(2, aislada.procesar("(usa)"));
+    }
+}
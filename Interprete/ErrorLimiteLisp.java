@@ -0,0 +1,24 @@
+package Interprete;
+
+/**
+ * Evaluación detenida por su GobernadorLisp. procesar y evaluar la lanzan
+ * tal cual, sin envolverla, para que quien aloja al intérprete la distinga
+ * de un error del programa.
+ */
+public class ErrorLimiteLisp extends ErrorLisp {
+
+    public enum Motivo {
+        PASOS, TIEMPO, MEMORIA, CANCELADA
+    }
+
+    private final Motivo motivo;
+
+    public ErrorLimiteLisp(Motivo motivo, String mensaje) {
+        super(MetricasLisp.CategoriaError.LIMITE, mensaje);
+        this.motivo = motivo;
+    }
+
+    public Motivo getMotivo() {
+        return motivo;
+    }
+}
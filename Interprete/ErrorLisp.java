@@ -1,29 +1,47 @@
-
 package Interprete;
 
+import Interprete.MetricasLisp.CategoriaError;
+
+/**
+ * Error de un programa LISP. La categoría la pone quien lo lanza y es la
+ * que cuentan las métricas; los mensajes se pueden cambiar sin moverla.
+ */
 public class ErrorLisp extends RuntimeException {
 
+    private final CategoriaError categoria;
     private final int fila;
     private final int columna;
 
     public ErrorLisp(String mensaje) {
+        this(CategoriaError.OTRO, mensaje);
+    }
+
+    public ErrorLisp(CategoriaError categoria, String mensaje) {
         super(mensaje);
+        this.categoria = categoria;
         this.fila = -1;
         this.columna = -1;
     }
 
     public ErrorLisp(String mensaje, int fila, int columna) {
         super(String.format("Fallo en la línea %d, posición %d: %s", fila, columna, mensaje));
+        this.categoria = CategoriaError.SINTAXIS;
         this.fila = fila;
         this.columna = columna;
     }
 
+    // Conserva la categoría de la causa si también es un ErrorLisp
     public ErrorLisp(String mensaje, Throwable causa) {
         super(mensaje, causa);
+        this.categoria = MetricasLisp.categoria(causa);
         this.fila = -1;
         this.columna = -1;
     }
 
+    public CategoriaError getCategoria() {
+        return categoria;
+    }
+
     public int obtenerFila() {
         return fila;
     }
@@ -0,0 +1,138 @@
+package Interprete;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reparto de trabajo de pcall y pmap sobre el ForkJoinPool común. Las tareas
+ * se agrupan en bloques contiguos que se dividen por la mitad hasta un
+ * tamaño mínimo, y cada bloque evalúa sus elementos en orden con su propio
+ * ContextoEvaluacion (la profundidad y la llamada en cola pendiente no se
+ * pueden compartir entre hilos). El gobernador sí se comparte: cada bloque
+ * lleva su propio lote de pasos contra el mismo presupuesto. Si se está
+ * perfilando, cada bloque tiene su propio PerfilLisp; al terminar, sus
+ * estadísticas y la profundidad máxima de cada bloque pasan al contexto
+ * que lanzó la evaluación.
+ *
+ * Todas las tareas se ejecutan aunque alguna falle; al terminar se lanza el
+ * error de la tarea con el índice más bajo, así que el error que ve el
+ * programa no depende del orden en que terminen los hilos.
+ */
+final class EvaluacionParalela {
+
+    // Bloques por hilo del pool: más de uno para que el robo de trabajo reparta la carga
+    private static final int BLOQUES_POR_HILO = 4;
+
+    @FunctionalInterface
+    interface Tarea {
+        Object ejecutar(int indice, ContextoEvaluacion ctx);
+    }
+
+    private EvaluacionParalela() {
+    }
+
+    /**
+     * Ejecuta las tareas 0..n-1 y devuelve sus resultados en orden. Con menos
+     * de umbral tareas se ejecutan en el hilo actual, sin pasar por el pool.
+     */
+    static Object[] ejecutar(int n, Tarea tarea, ContextoEvaluacion ctx, int umbral) {
+        Object[] resultados = new Object[n];
+        if (n < umbral || n < 2) {
+            for (int i = 0; i < n; i++) {
+                resultados[i] = tarea.ejecutar(i, ctx);
+            }
+            return resultados;
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int tamanoBloque = Math.max(1, n / (pool.getParallelism() * BLOQUES_POR_HILO));
+        RuntimeException[] errores = new RuntimeException[n];
+        Queue<ContextoEvaluacion> ramas = new ConcurrentLinkedQueue<>();
+        Bloque raiz = new Bloque(tarea, ctx, resultados, errores, ramas, 0, n, tamanoBloque);
+        if (ForkJoinTask.inForkJoinPool()) {
+            raiz.invoke();
+        } else {
+            pool.invoke(raiz);
+        }
+
+        for (ContextoEvaluacion rama : ramas) {
+            if (rama.profundidadMaxima > ctx.profundidadMaxima) {
+                ctx.profundidadMaxima = rama.profundidadMaxima;
+            }
+            if (ctx.perfil != null) {
+                ctx.perfil.combinar(rama.perfil);
+            }
+            if (rama.perfilesTerminados != null) {
+                rama.perfilesTerminados.forEach(ctx::guardarPerfil);
+            }
+        }
+
+        for (RuntimeException error : errores) {
+            if (error != null) {
+                throw error;
+            }
+        }
+        return resultados;
+    }
+
+    private static final class Bloque extends RecursiveAction {
+        private final Tarea tarea;
+        private final ContextoEvaluacion padre;
+        private final Object[] resultados;
+        private final RuntimeException[] errores;
+        private final Queue<ContextoEvaluacion> ramas;
+        private final int desde;
+        private final int hasta;
+        private final int tamanoBloque;
+
+        Bloque(Tarea tarea, ContextoEvaluacion padre, Object[] resultados, RuntimeException[] errores,
+               Queue<ContextoEvaluacion> ramas, int desde, int hasta, int tamanoBloque) {
+            this.tarea = tarea;
+            this.padre = padre;
+            this.resultados = resultados;
+            this.errores = errores;
+            this.ramas = ramas;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.tamanoBloque = tamanoBloque;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde <= tamanoBloque) {
+                ContextoEvaluacion ctx = new ContextoEvaluacion(padre.getEntorno());
+                ctx.profundidad = padre.profundidad;
+                if (padre.perfil != null) {
+                    ctx.perfil = new PerfilLisp();
+                }
+                if (padre.gobernador != null) {
+                    padre.gobernador.preparar(ctx);
+                }
+                for (int i = desde; i < hasta; i++) {
+                    try {
+                        resultados[i] = tarea.ejecutar(i, ctx);
+                    } catch (RuntimeException e) {
+                        errores[i] = e;
+                    }
+                }
+                if (ctx.gobernador != null) {
+                    try {
+                        ctx.gobernador.terminar(ctx);
+                    } catch (RuntimeException e) {
+                        if (errores[hasta - 1] == null) {
+                            errores[hasta - 1] = e;
+                        }
+                    }
+                }
+                ramas.add(ctx);
+                return;
+            }
+            int medio = (desde + hasta) >>> 1;
+            invokeAll(new Bloque(tarea, padre, resultados, errores, ramas, desde, medio, tamanoBloque),
+                      new Bloque(tarea, padre, resultados, errores, ramas, medio, hasta, tamanoBloque));
+        }
+    }
+}
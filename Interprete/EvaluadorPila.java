@@ -0,0 +1,389 @@
+package Interprete;
+
+import java.util.Arrays;
+
+import Interprete.MetricasLisp.CategoriaError;
+
+/**
+ * Ejecuta los nodos compilados con una pila de continuaciones propia en el
+ * heap en lugar de la pila de Java. La recursión que no está en cola queda
+ * limitada solo por {@code capacidadMaxima} (número de continuaciones
+ * pendientes) y no por -Xss ni por {@link LispEvaluator#PROFUNDIDAD_MAXIMA}.
+ *
+ * Las llamadas a funciones no apilan nada propio: el cuerpo se evalúa en el
+ * lugar de la llamada y solo quedan apiladas las formas que esperan su valor,
+ * así que las llamadas en cola no consumen pila. Con perfil activo cada
+ * cuerpo apila además una marca de salida para cerrar su activación, y
+ * entonces las llamadas en cola sí ocupan una entrada.
+ */
+class EvaluadorPila {
+
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    // Marca apilada al entrar en un cuerpo de función cuando se perfila
+    private static final NodoLisp SALIDA_PERFIL = new NodoLisp() {
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            throw new IllegalStateException("marca de perfil ejecutada");
+        }
+    };
+
+    private final int capacidadMaxima;
+
+    EvaluadorPila(int capacidadMaxima) {
+        if (capacidadMaxima < 1) {
+            throw new IllegalArgumentException("La capacidad de la pila debe ser positiva");
+        }
+        this.capacidadMaxima = capacidadMaxima;
+    }
+
+    int getCapacidadMaxima() {
+        return capacidadMaxima;
+    }
+
+    Object ejecutar(NodoLisp raiz, Object[] marcoInicial, ContextoEvaluacion ctx) {
+        Pila pila = new Pila(ctx);
+        try {
+            return pila.ejecutar(raiz, marcoInicial);
+        } finally {
+            if (pila.topeMaximo > ctx.profundidadMaxima) {
+                ctx.profundidadMaxima = pila.topeMaximo;
+            }
+        }
+    }
+
+    // Pila de continuaciones en arreglos paralelos; una entrada por forma pendiente
+    private final class Pila {
+        private final ContextoEvaluacion ctx;
+        private final PerfilLisp perfil;
+        private NodoLisp[] nodos = new NodoLisp[CAPACIDAD_INICIAL];
+        private Object[][] marcos = new Object[CAPACIDAD_INICIAL][];
+        private Object[][] valores = new Object[CAPACIDAD_INICIAL][];
+        private NodoLisp.CuerpoFuncion[] cuerpos = new NodoLisp.CuerpoFuncion[CAPACIDAD_INICIAL];
+        // Un valor intermedio por entrada: primer argumento de una primitiva binaria, clave de Memo
+        private Object[] parciales = new Object[CAPACIDAD_INICIAL];
+        private int[] indices = new int[CAPACIDAD_INICIAL];
+        private int tope;
+        private int topeMaximo;
+
+        Pila(ContextoEvaluacion ctx) {
+            this.ctx = ctx;
+            this.perfil = ctx.perfil;
+        }
+
+        Object ejecutar(NodoLisp raiz, Object[] marcoInicial) {
+            NodoLisp nodo = raiz;
+            Object[] marco = marcoInicial;
+            Object valor;
+
+            while (true) {
+                // Descender por el nodo actual hasta obtener un valor
+                if (nodo instanceof NodoLisp.LlamadaPrimitiva) {
+                    NodoLisp.LlamadaPrimitiva primitiva = (NodoLisp.LlamadaPrimitiva) nodo;
+                    int n = primitiva.argumentos.length;
+                    if (n > 0) {
+                        apilar(primitiva, marco, new Object[n], null);
+                        nodo = primitiva.argumentos[0];
+                        continue;
+                    }
+                    valor = primitiva.primitiva.aplicar(new Object[0], ctx);
+                } else if (nodo instanceof NodoLisp.LlamadaPrimitiva1) {
+                    NodoLisp.LlamadaPrimitiva1 primitiva = (NodoLisp.LlamadaPrimitiva1) nodo;
+                    if (!esHoja(primitiva.argumento)) {
+                        apilar(primitiva, marco, null, null);
+                        nodo = primitiva.argumento;
+                        continue;
+                    }
+                    valor = primitiva.primitiva.aplicar(primitiva.argumento.ejecutar(marco, ctx));
+                } else if (nodo instanceof NodoLisp.LlamadaPrimitiva2) {
+                    NodoLisp.LlamadaPrimitiva2 primitiva = (NodoLisp.LlamadaPrimitiva2) nodo;
+                    if (!esHoja(primitiva.primero) || !esHoja(primitiva.segundo)) {
+                        apilar(primitiva, marco, null, null);
+                        nodo = primitiva.primero;
+                        continue;
+                    }
+                    // Sin llamadas en los argumentos: se evalúa sin pasar por la pila
+                    Object a = primitiva.primero.ejecutar(marco, ctx);
+                    valor = primitiva.primitiva.aplicar(a, primitiva.segundo.ejecutar(marco, ctx));
+                } else if (nodo instanceof NodoLisp.LlamadaFuncion) {
+                    NodoLisp.LlamadaFuncion llamada = (NodoLisp.LlamadaFuncion) nodo;
+                    ctx.paso();
+                    NodoLisp.CuerpoFuncion cuerpo = llamada.resolver(ctx);
+                    Object[] marcoLocal = new Object[cuerpo.tamanoMarco];
+                    if (llamada.argumentos.length > 0) {
+                        apilar(llamada, marco, marcoLocal, cuerpo);
+                        nodo = llamada.argumentos[0];
+                    } else {
+                        if (perfil != null) {
+                            entrarPerfilado(cuerpo);
+                        }
+                        marco = marcoLocal;
+                        nodo = cuerpo.cuerpo;
+                    }
+                    continue;
+                } else if (nodo instanceof NodoLisp.Cond) {
+                    NodoLisp.Cond cond = (NodoLisp.Cond) nodo;
+                    if (cond.condiciones.length > 0) {
+                        apilar(cond, marco, null, null);
+                        nodo = cond.condiciones[0];
+                        continue;
+                    }
+                    valor = SimboloLisp.NIL;
+                } else if (nodo instanceof NodoLisp.Progn) {
+                    apilar(nodo, marco, null, null);
+                    nodo = ((NodoLisp.Progn) nodo).formas[0];
+                    continue;
+                } else if (nodo instanceof NodoLisp.Let) {
+                    NodoLisp.Let let = (NodoLisp.Let) nodo;
+                    if (let.valores.length > 0) {
+                        apilar(let, marco, null, null);
+                        nodo = let.valores[0];
+                    } else {
+                        nodo = let.cuerpo;
+                    }
+                    continue;
+                } else if (nodo instanceof NodoLisp.While) {
+                    apilar(nodo, marco, null, null);
+                    nodo = ((NodoLisp.While) nodo).prueba;
+                    continue;
+                } else if (nodo instanceof NodoLisp.Dotimes) {
+                    apilar(nodo, marco, null, null);
+                    nodo = ((NodoLisp.Dotimes) nodo).cantidad;
+                    continue;
+                } else if (nodo instanceof NodoLisp.Memo) {
+                    NodoLisp.Memo memo = (NodoLisp.Memo) nodo;
+                    Object clave = MemoLisp.clave(marco, memo.aridad);
+                    valor = memo.memo.obtener(clave);
+                    if (valor == null) {
+                        apilar(memo, marco, null, null);
+                        parciales[tope - 1] = clave;
+                        nodo = memo.cuerpo;
+                        continue;
+                    }
+                } else if (nodo instanceof NodoLisp.ConMarco) {
+                    marco = new Object[((NodoLisp.ConMarco) nodo).tamanoMarco];
+                    nodo = ((NodoLisp.ConMarco) nodo).cuerpo;
+                    continue;
+                } else if (nodo instanceof NodoLisp.SetqLocal) {
+                    apilar(nodo, marco, null, null);
+                    nodo = ((NodoLisp.SetqLocal) nodo).valor;
+                    continue;
+                } else if (nodo instanceof NodoLisp.SetqGlobal) {
+                    apilar(nodo, marco, null, null);
+                    nodo = ((NodoLisp.SetqGlobal) nodo).valor;
+                    continue;
+                } else {
+                    // Hojas y nodos sin tratamiento propio se ejecutan directamente
+                    valor = nodo.ejecutar(marco, ctx);
+                    if (valor == NodoLisp.LLAMADA_EN_COLA) {
+                        if (perfil != null) {
+                            entrarPerfilado(ctx.cuerpoPendiente);
+                        }
+                        marco = ctx.marcoPendiente;
+                        nodo = ctx.cuerpoPendiente.cuerpo;
+                        ctx.cuerpoPendiente = null;
+                        ctx.marcoPendiente = null;
+                        continue;
+                    }
+                }
+
+                // Entregar el valor a las continuaciones pendientes
+                nodo = null;
+                while (nodo == null) {
+                    if (tope == 0) {
+                        return valor;
+                    }
+                    int i = tope - 1;
+                    NodoLisp pendiente = nodos[i];
+
+                    if (pendiente instanceof NodoLisp.LlamadaPrimitiva) {
+                        NodoLisp.LlamadaPrimitiva primitiva = (NodoLisp.LlamadaPrimitiva) pendiente;
+                        Object[] args = valores[i];
+                        int siguiente = indices[i] + 1;
+                        args[siguiente - 1] = valor;
+                        if (siguiente < args.length) {
+                            indices[i] = siguiente;
+                            marco = marcos[i];
+                            nodo = primitiva.argumentos[siguiente];
+                        } else {
+                            desapilar();
+                            valor = primitiva.primitiva.aplicar(args, ctx);
+                        }
+                    } else if (pendiente instanceof NodoLisp.LlamadaPrimitiva1) {
+                        desapilar();
+                        valor = ((NodoLisp.LlamadaPrimitiva1) pendiente).primitiva.aplicar(valor);
+                    } else if (pendiente instanceof NodoLisp.LlamadaPrimitiva2) {
+                        NodoLisp.LlamadaPrimitiva2 primitiva = (NodoLisp.LlamadaPrimitiva2) pendiente;
+                        if (indices[i] == 0) {
+                            parciales[i] = valor;
+                            indices[i] = 1;
+                            marco = marcos[i];
+                            nodo = primitiva.segundo;
+                        } else {
+                            Object a = parciales[i];
+                            desapilar();
+                            valor = primitiva.primitiva.aplicar(a, valor);
+                        }
+                    } else if (pendiente instanceof NodoLisp.LlamadaFuncion) {
+                        NodoLisp.LlamadaFuncion llamada = (NodoLisp.LlamadaFuncion) pendiente;
+                        Object[] marcoLocal = valores[i];
+                        int siguiente = indices[i] + 1;
+                        marcoLocal[siguiente - 1] = valor;
+                        if (siguiente < llamada.argumentos.length) {
+                            indices[i] = siguiente;
+                            marco = marcos[i];
+                            nodo = llamada.argumentos[siguiente];
+                        } else {
+                            NodoLisp.CuerpoFuncion cuerpo = cuerpos[i];
+                            desapilar();
+                            if (perfil != null) {
+                                entrarPerfilado(cuerpo);
+                            }
+                            marco = marcoLocal;
+                            nodo = cuerpo.cuerpo;
+                        }
+                    } else if (pendiente instanceof NodoLisp.Cond) {
+                        NodoLisp.Cond cond = (NodoLisp.Cond) pendiente;
+                        int clausula = indices[i];
+                        marco = marcos[i];
+                        if (LispEvaluator.isTrue(valor)) {
+                            desapilar();
+                            nodo = cond.cuerpos[clausula];
+                        } else if (clausula + 1 < cond.condiciones.length) {
+                            indices[i] = clausula + 1;
+                            nodo = cond.condiciones[clausula + 1];
+                        } else {
+                            desapilar();
+                            valor = SimboloLisp.NIL;
+                        }
+                    } else if (pendiente instanceof NodoLisp.Progn) {
+                        NodoLisp[] formas = ((NodoLisp.Progn) pendiente).formas;
+                        int siguiente = indices[i] + 1;
+                        marco = marcos[i];
+                        nodo = formas[siguiente];
+                        if (siguiente < formas.length - 1) {
+                            indices[i] = siguiente;
+                        } else {
+                            // La última forma no deja nada pendiente: puede ser una llamada en cola
+                            desapilar();
+                        }
+                    } else if (pendiente instanceof NodoLisp.Let) {
+                        NodoLisp.Let let = (NodoLisp.Let) pendiente;
+                        int actual = indices[i];
+                        marco = marcos[i];
+                        marco[let.posiciones[actual]] = valor;
+                        if (actual + 1 < let.valores.length) {
+                            indices[i] = actual + 1;
+                            nodo = let.valores[actual + 1];
+                        } else {
+                            desapilar();
+                            nodo = let.cuerpo;
+                        }
+                    } else if (pendiente instanceof NodoLisp.While) {
+                        NodoLisp.While bucle = (NodoLisp.While) pendiente;
+                        // indices: 0 mientras se evalúa la prueba, 1 mientras se evalúa el cuerpo
+                        if (indices[i] == 1) {
+                            indices[i] = 0;
+                            marco = marcos[i];
+                            nodo = bucle.prueba;
+                        } else if (LispEvaluator.isTrue(valor)) {
+                            ctx.paso();
+                            indices[i] = 1;
+                            marco = marcos[i];
+                            nodo = bucle.cuerpo;
+                        } else {
+                            desapilar();
+                            valor = SimboloLisp.NIL;
+                        }
+                    } else if (pendiente instanceof NodoLisp.Dotimes) {
+                        NodoLisp.Dotimes dotimes = (NodoLisp.Dotimes) pendiente;
+                        // valores: {límite, contador} una vez evaluada la cantidad
+                        Object[] estado = valores[i];
+                        long siguiente;
+                        if (estado == null) {
+                            estado = new Object[] {NodoLisp.Dotimes.limite(valor), null};
+                            valores[i] = estado;
+                            siguiente = 0;
+                        } else {
+                            siguiente = ((Number) estado[1]).longValue() + 1;
+                        }
+                        long n = (Long) estado[0];
+                        marco = marcos[i];
+                        if (siguiente < n) {
+                            ctx.paso();
+                            Number contador = NumerosLisp.entero(siguiente);
+                            estado[1] = contador;
+                            marco[dotimes.posicion] = contador;
+                            nodo = dotimes.cuerpo;
+                        } else {
+                            marco[dotimes.posicion] = NumerosLisp.entero(Math.max(n, 0));
+                            desapilar();
+                            nodo = dotimes.resultado;
+                        }
+                    } else if (pendiente instanceof NodoLisp.Memo) {
+                        ((NodoLisp.Memo) pendiente).memo.guardar(parciales[i], valor);
+                        desapilar();
+                    } else if (pendiente instanceof NodoLisp.SetqLocal) {
+                        marcos[i][((NodoLisp.SetqLocal) pendiente).posicion] = valor;
+                        desapilar();
+                    } else if (pendiente instanceof NodoLisp.SetqGlobal) {
+                        ctx.getEntorno().asignarVariable(((NodoLisp.SetqGlobal) pendiente).variable, valor);
+                        desapilar();
+                    } else {
+                        // SALIDA_PERFIL: termina el cuerpo de una función perfilada
+                        desapilar();
+                        perfil.salir();
+                    }
+                }
+            }
+        }
+
+        // Nodos que dan su valor sin evaluar otros nodos
+        private boolean esHoja(NodoLisp nodo) {
+            return nodo instanceof NodoLisp.Constante || nodo instanceof NodoLisp.VariableLocal
+                   || nodo instanceof NodoLisp.VariableGlobal;
+        }
+
+        private void entrarPerfilado(NodoLisp.CuerpoFuncion cuerpo) {
+            apilar(SALIDA_PERFIL, null, null, null);
+            perfil.entrar(cuerpo.nombre);
+        }
+
+        private void apilar(NodoLisp nodo, Object[] marco, Object[] valoresNodo, NodoLisp.CuerpoFuncion cuerpo) {
+            if (tope == nodos.length) {
+                crecer();
+            }
+            nodos[tope] = nodo;
+            marcos[tope] = marco;
+            valores[tope] = valoresNodo;
+            cuerpos[tope] = cuerpo;
+            indices[tope] = 0;
+            if (++tope > topeMaximo) {
+                topeMaximo = tope;
+            }
+        }
+
+        private void desapilar() {
+            tope--;
+            nodos[tope] = null;
+            marcos[tope] = null;
+            valores[tope] = null;
+            cuerpos[tope] = null;
+            parciales[tope] = null;
+        }
+
+        private void crecer() {
+            if (nodos.length >= capacidadMaxima) {
+                throw new ErrorLisp(CategoriaError.PROFUNDIDAD, "Se ha excedido la capacidad de la pila de evaluación (" +
+                                    capacidadMaxima + ")");
+            }
+            int nueva = (int) Math.min((long) nodos.length * 2, capacidadMaxima);
+            nodos = Arrays.copyOf(nodos, nueva);
+            marcos = Arrays.copyOf(marcos, nueva);
+            valores = Arrays.copyOf(valores, nueva);
+            cuerpos = Arrays.copyOf(cuerpos, nueva);
+            parciales = Arrays.copyOf(parciales, nueva);
+            indices = Arrays.copyOf(indices, nueva);
+        }
+    }
+}
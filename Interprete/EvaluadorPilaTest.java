@@ -0,0 +1,34 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class EvaluadorPilaTest {
+
+    private static final String SUMA =
+        "(defun suma (n) (cond ((equal n 0) 0) (t (+ n (suma (- n 1))))))";
+
+    @Test
+    public void testDeepNonTailRecursion() {
+        LispProcessor processor = new LispProcessor(LispEvaluator.Motor.PILA);
+        processor.procesar(SUMA);
+        assertEquals(1250025000, processor.procesar("(suma 50000)"));
+    }
+
+    @Test
+    public void testCapacityLimit() {
+        LispProcessor processor = new LispProcessor(LispEvaluator.Motor.PILA);
+        processor.setCapacidadPila(1000);
+        processor.procesar(SUMA);
+        assertEquals(5050, processor.procesar("(suma 100)"));
+        try {
+            processor.procesar("(suma 5000)");
+            fail("Se esperaba un error por capacidad de pila");
+        } catch (ErrorLisp e) {
+            assertTrue(e.getMessage().contains("capacidad de la pila"));
+        }
+    }
+}
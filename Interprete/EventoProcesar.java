@@ -0,0 +1,43 @@
+package Interprete;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de Flight Recorder por cada expresión de nivel superior que procesa
+ * una SesionLisp. Solo se registra cuando hay una grabación con el evento
+ * activado; si no, begin() y commit() no hacen nada.
+ */
+@Name("interprete.Procesar")
+@Label("Procesar expresión Lisp")
+@Category("Interprete")
+@Description("Análisis y evaluación de una expresión de nivel superior")
+@StackTrace(false)
+final class EventoProcesar extends jdk.jfr.Event {
+
+    // Las expresiones largas se recortan para no inflar la grabación
+    private static final int LONGITUD_MAXIMA = 200;
+
+    @Label("Expresión")
+    String expresion;
+
+    @Label("Correcta")
+    boolean correcta;
+
+    @Label("Error")
+    String error;
+
+    void terminar(Object forma, RuntimeException fallo) {
+        end();
+        if (shouldCommit()) {
+            String texto = String.valueOf(forma);
+            expresion = texto.length() > LONGITUD_MAXIMA ? texto.substring(0, LONGITUD_MAXIMA) + "..." : texto;
+            correcta = fallo == null;
+            error = fallo == null ? null : fallo.getMessage();
+            commit();
+        }
+    }
+}
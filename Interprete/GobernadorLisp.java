@@ -0,0 +1,148 @@
+package Interprete;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aplica unos LimitesLisp a las evaluaciones que lo reciben y permite
+ * cancelarlas desde otro hilo. Los pasos y los bytes se acumulan entre
+ * todas esas evaluaciones; el tiempo cuenta desde la primera.
+ *
+ * Cada paso solo descuenta un contador del contexto. Cada INTERVALO pasos
+ * (o antes, si quedan menos pasos de presupuesto) se suman al total y se
+ * miran la cancelación, el reloj y la memoria, así que la cancelación y el
+ * tiempo se notan con ese retraso. Sin gobernador, un paso es una
+ * comprobación de null.
+ *
+ * La memoria también se mira al terminar cada evaluación o rama, y antes
+ * de las asignaciones cuyo tamaño depende de los argumentos (make-array,
+ * vector, list): esas piden su tamaño estimado con reservar y fallan sin
+ * asignar nada si no cabe en lo que queda del límite.
+ */
+public final class GobernadorLisp {
+
+    static final int INTERVALO = 1024;
+
+    private final LimitesLisp limites;
+    private final AtomicLong pasos = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private long finNanos;
+    private boolean iniciado;
+    // Primer motivo por el que se detuvo; las demás ramas paralelas lo ven en su siguiente revisión
+    private volatile ErrorLimiteLisp.Motivo detenido;
+
+    public GobernadorLisp(LimitesLisp limites) {
+        this.limites = limites;
+    }
+
+    public LimitesLisp getLimites() {
+        return limites;
+    }
+
+    // Seguro desde cualquier hilo; la evaluación se detiene en su siguiente revisión
+    public void cancelar() {
+        if (detenido == null) {
+            detenido = ErrorLimiteLisp.Motivo.CANCELADA;
+        }
+    }
+
+    public boolean isDetenido() {
+        return detenido != null;
+    }
+
+    // Pasos contados hasta la última revisión o el final de una evaluación
+    public long getPasos() {
+        return pasos.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    // Instala el gobernador en el contexto de una evaluación o de una rama paralela
+    void preparar(ContextoEvaluacion ctx) {
+        synchronized (this) {
+            if (!iniciado) {
+                iniciado = true;
+                finNanos = System.nanoTime() + limites.getTiempoNanos();
+            }
+        }
+        ctx.gobernador = this;
+        ctx.lote = 0;
+        ctx.pendientes = 0;
+        ctx.bytesRevisados = limites.getMemoria() > 0 ? PerfilLisp.bytesAsignados() : 0;
+    }
+
+    // Suma al total los pasos y los bytes del lote en curso del contexto; lanza si los bytes pasan del límite
+    void terminar(ContextoEvaluacion ctx) {
+        pasos.addAndGet(ctx.lote - ctx.pendientes);
+        ctx.lote = 0;
+        ctx.pendientes = 0;
+        if (limites.getMemoria() > 0) {
+            contarBytes(ctx);
+        }
+    }
+
+    // Antes de asignar unos bytes que dependen de los argumentos: falla si no caben en el límite
+    void reservar(ContextoEvaluacion ctx, long solicitados) {
+        if (limites.getMemoria() > 0 && contarBytes(ctx) + solicitados > limites.getMemoria()) {
+            throw detener(ErrorLimiteLisp.Motivo.MEMORIA);
+        }
+    }
+
+    // Suma al total los bytes que asignó el hilo del contexto desde la última vez
+    private long contarBytes(ContextoEvaluacion ctx) {
+        long actual = PerfilLisp.bytesAsignados();
+        long total = bytes.addAndGet(actual - ctx.bytesRevisados);
+        ctx.bytesRevisados = actual;
+        if (total > limites.getMemoria()) {
+            throw detener(ErrorLimiteLisp.Motivo.MEMORIA);
+        }
+        return total;
+    }
+
+    // El lote del contexto se agotó: cuenta el paso actual contra todos los límites
+    void revisar(ContextoEvaluacion ctx) {
+        long consumidos = pasos.addAndGet(ctx.lote);
+        ctx.lote = 0;
+        ctx.pendientes = 0;
+
+        ErrorLimiteLisp.Motivo motivo = detenido;
+        if (motivo != null) {
+            throw error(motivo);
+        }
+        if (limites.getMemoria() > 0) {
+            contarBytes(ctx);
+        }
+        if (limites.getTiempoNanos() > 0 && System.nanoTime() - finNanos > 0) {
+            throw detener(ErrorLimiteLisp.Motivo.TIEMPO);
+        }
+        long restantes = limites.getPasos() > 0 ? limites.getPasos() - consumidos : Long.MAX_VALUE;
+        if (restantes <= 0) {
+            throw detener(ErrorLimiteLisp.Motivo.PASOS);
+        }
+        ctx.lote = (int) Math.min(INTERVALO, restantes);
+        ctx.pendientes = ctx.lote - 1;
+    }
+
+    private ErrorLimiteLisp detener(ErrorLimiteLisp.Motivo motivo) {
+        if (detenido == null) {
+            detenido = motivo;
+        }
+        return error(detenido);
+    }
+
+    private ErrorLimiteLisp error(ErrorLimiteLisp.Motivo motivo) {
+        switch (motivo) {
+            case PASOS:
+                return new ErrorLimiteLisp(motivo, "Se ha excedido el límite de pasos (" + limites.getPasos() + ")");
+            case TIEMPO:
+                return new ErrorLimiteLisp(motivo, "Se ha excedido el tiempo máximo de evaluación ("
+                                                   + limites.getTiempoNanos() / 1_000_000 + " ms)");
+            case MEMORIA:
+                return new ErrorLimiteLisp(motivo, "Se ha excedido el límite de memoria ("
+                                                   + limites.getMemoria() + " bytes)");
+            default:
+                return new ErrorLimiteLisp(motivo, "Evaluación cancelada");
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class GobernadorLispTest {
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> motores() {
+        return Arrays.asList(new Object[][] {
+            { LispEvaluator.Motor.RECURSIVO },
+            { LispEvaluator.Motor.PILA }
+        });
+    }
+
+    private final LispProcessor processor;
+
+    public GobernadorLispTest(LispEvaluator.Motor motor) {
+        this.processor = new LispProcessor(motor);
+    }
+
+    private ErrorLimiteLisp detener(String forma, GobernadorLisp gobernador) {
+        try {
+            processor.procesar(forma, gobernador);
+            fail("Se esperaba que el gobernador detuviera " + forma);
+            return null;
+        } catch (ErrorLimiteLisp e) {
+            // Sin envolver en "Error en la evaluación"
+            assertSame(ErrorLimiteLisp.class, e.getClass());
+            return e;
+        }
+    }
+
+    @Test
+    public void testStepBudgetIsExact() {
+        processor.procesar("(defun f (n) n)");
+        // 2000 vueltas, 2000 llamadas en el cuerpo y una en el resultado
+        GobernadorLisp justo = new GobernadorLisp(LimitesLisp.NINGUNO.conPasos(4001));
+        assertEquals(2000, processor.procesar("(dotimes (i 2000 (f i)) (f i))", justo));
+        assertEquals(4001, justo.getPasos());
+
+        GobernadorLisp corto = new GobernadorLisp(LimitesLisp.NINGUNO.conPasos(4000));
+        ErrorLimiteLisp e = detener("(dotimes (i 2000 (f i)) (f i))", corto);
+        assertEquals(ErrorLimiteLisp.Motivo.PASOS, e.getMotivo());
+        assertEquals(4000, corto.getPasos());
+    }
+
+    @Test
+    public void testStopsRunawayLoopsAndRecursion() {
+        LimitesLisp limites = LimitesLisp.NINGUNO.conPasos(100000);
+        detener("(while t 1)", new GobernadorLisp(limites));
+
+        processor.procesar("(defun gira (n) (gira (+ n 1)))");
+        detener("(gira 0)", new GobernadorLisp(limites));
+
+        // Las ramas paralelas descuentan del mismo presupuesto
+        processor.procesar("(defun bucle (x) (while t x))");
+        detener("(pmap bucle '(1 2 3 4 5 6 7 8))", new GobernadorLisp(limites));
+    }
+
+    @Test
+    public void testDeadline() {
+        long inicio = System.nanoTime();
+        ErrorLimiteLisp e = detener("(while t 1)", new GobernadorLisp(LimitesLisp.NINGUNO.conTiempo(Duration.ofMillis(50))));
+        assertEquals(ErrorLimiteLisp.Motivo.TIEMPO, e.getMotivo());
+        assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    public void testMemoryLimit() {
+        processor.procesar("(setq l nil)");
+        GobernadorLisp gobernador = new GobernadorLisp(LimitesLisp.NINGUNO.conMemoria(8_000_000));
+        ErrorLimiteLisp e = detener("(while t (setq l (cons 1 l)))", gobernador);
+        assertEquals(ErrorLimiteLisp.Motivo.MEMORIA, e.getMotivo());
+        assertTrue(gobernador.getBytes() > 8_000_000);
+    }
+
+    @Test
+    public void testBulkAllocationsAreChargedBeforeAllocating() {
+        GobernadorLisp gobernador = new GobernadorLisp(LimitesLisp.NINGUNO.conMemoria(1_000_000));
+        ErrorLimiteLisp e = detener("(length (make-array 10000000 'long))", gobernador);
+        assertEquals(ErrorLimiteLisp.Motivo.MEMORIA, e.getMotivo());
+        assertTrue(gobernador.getBytes() < 1_000_000);
+
+        // 100000 celdas de lista o 200000 huecos de vector pasan de 1 MB
+        String unos = " 1".repeat(100_000);
+        detener("(length (list" + unos + "))", new GobernadorLisp(LimitesLisp.NINGUNO.conMemoria(1_000_000)));
+        detener("(length (vector" + unos + unos + "))", new GobernadorLisp(LimitesLisp.NINGUNO.conMemoria(1_000_000)));
+    }
+
+    @Test
+    public void testShortEvaluationsCountTheirBytesAtTheEnd() {
+        // Muy pocos pasos para que revisar llegue a mirar la memoria
+        GobernadorLisp gobernador = new GobernadorLisp(LimitesLisp.NINGUNO.conMemoria(100_000_000));
+        assertEquals(1_000_000, processor.procesar("(length (make-array 1000000 'long))", gobernador));
+        assertTrue(gobernador.getBytes() >= 8_000_000);
+    }
+
+    @Test
+    public void testCancelFromAnotherThread() throws InterruptedException {
+        GobernadorLisp gobernador = new GobernadorLisp(LimitesLisp.NINGUNO);
+        CompletableFuture<Object> evaluacion = CompletableFuture.supplyAsync(() -> processor.procesar("(while t 1)", gobernador));
+        Thread.sleep(50);
+        gobernador.cancelar();
+        try {
+            evaluacion.get(5, TimeUnit.SECONDS);
+            fail("Se esperaba la cancelación");
+        } catch (ExecutionException e) {
+            assertEquals(ErrorLimiteLisp.Motivo.CANCELADA, ((ErrorLimiteLisp) e.getCause()).getMotivo());
+        } catch (java.util.concurrent.TimeoutException e) {
+            fail("La evaluación no se detuvo");
+        }
+        // Un gobernador cancelado detiene cualquier evaluación que lo use
+        detener("(dotimes (i 10) i)", gobernador);
+    }
+
+    @Test
+    public void testSessionLimitsApplyToEachCall() {
+        processor.setLimites(LimitesLisp.NINGUNO.conPasos(1000));
+        assertEquals(SimboloLisp.NIL, processor.procesar("(dotimes (i 900))"));
+        assertEquals(SimboloLisp.NIL, processor.procesar("(dotimes (i 900))"));
+        try {
+            processor.procesar("(dotimes (i 1001))");
+            fail("Se esperaba el límite de pasos");
+        } catch (ErrorLimiteLisp e) {
+            assertEquals(ErrorLimiteLisp.Motivo.PASOS, e.getMotivo());
+        }
+        assertEquals(1, processor.getMetricas().instantanea().getErrores(MetricasLisp.CategoriaError.LIMITE));
+
+        processor.setLimites(LimitesLisp.NINGUNO);
+        assertEquals(SimboloLisp.NIL, processor.procesar("(dotimes (i 5000))"));
+    }
+}
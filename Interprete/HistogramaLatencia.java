@@ -0,0 +1,114 @@
+package Interprete;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias en nanosegundos con cubetas log-lineales, como
+ * HdrHistogram: cada potencia de dos se divide en SUBCUBETAS partes iguales,
+ * así que el error relativo de un percentil es menor que 1/SUBCUBETAS
+ * (~3%) en todo el rango. Registrar es un incremento atómico sin bloqueos
+ * y no asigna memoria; varios hilos pueden registrar a la vez.
+ */
+public final class HistogramaLatencia {
+
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    // Valores < SUBCUBETAS van a cubetas exactas; luego una fila por exponente
+    private static final int CUBETAS = (64 - BITS_SUBCUBETA + 1) * SUBCUBETAS;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    public void registrar(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        cubetas.incrementAndGet(indice(nanos));
+        cantidad.increment();
+        suma.add(nanos);
+        long actual = maximo.get();
+        while (nanos > actual && !maximo.compareAndSet(actual, nanos)) {
+            actual = maximo.get();
+        }
+    }
+
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int desplazamiento = exponente - BITS_SUBCUBETA;
+        int sub = (int) (valor >>> desplazamiento) & (SUBCUBETAS - 1);
+        return (desplazamiento + 1) * SUBCUBETAS + sub;
+    }
+
+    // Mayor valor que cae en la cubeta
+    static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int desplazamiento = indice / SUBCUBETAS - 1;
+        long base = (long) (SUBCUBETAS + indice % SUBCUBETAS) << desplazamiento;
+        return base + (1L << desplazamiento) - 1;
+    }
+
+    public long cantidad() {
+        return cantidad.sum();
+    }
+
+    public long maximo() {
+        return maximo.get();
+    }
+
+    public double media() {
+        long n = cantidad.sum();
+        return n == 0 ? 0 : (double) suma.sum() / n;
+    }
+
+    /**
+     * Valor por debajo del cual queda la fracción p (0..1) de los registros,
+     * redondeado al límite superior de su cubeta. Con registros concurrentes
+     * el resultado es aproximado.
+     */
+    public long percentil(double p) {
+        return percentiles(p)[0];
+    }
+
+    // Varios percentiles, en orden creciente, con una sola pasada por las cubetas
+    public long[] percentiles(double... ps) {
+        long[] copia = new long[CUBETAS];
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cubetas.get(i);
+            total += copia[i];
+        }
+        long[] resultado = new long[ps.length];
+        if (total == 0) {
+            return resultado;
+        }
+        long max = maximo.get();
+        long acumulado = 0;
+        int i = -1;
+        for (int k = 0; k < ps.length; k++) {
+            long objetivo = Math.max(1, (long) Math.ceil(ps[k] * total));
+            while (acumulado < objetivo && i + 1 < CUBETAS) {
+                acumulado += copia[++i];
+            }
+            resultado[k] = acumulado >= objetivo ? Math.min(limiteSuperior(i), max) : max;
+        }
+        return resultado;
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        cantidad.reset();
+        suma.reset();
+        maximo.set(0);
+    }
+}
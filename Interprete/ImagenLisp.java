@@ -0,0 +1,411 @@
+package Interprete;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Imagen binaria de un EntornoLisp: variables y funciones (parámetros y
+ * cuerpo tal como se leyó) de su propio nivel. Cargarla evita volver a
+ * tokenizar y analizar el programa; los cuerpos se compilan la primera
+ * vez que se llaman, como con defun.
+ *
+ * Formato: cabecera big-endian (MAGIA, FORMATO, huella de la fuente, CRC32
+ * del resto), tabla de símbolos (UTF-8), variables y funciones. Los
+ * símbolos se guardan una vez y después se referencian por índice; índices,
+ * tamaños y enteros van en base 128 (los enteros en zigzag). La
+ * imagen se lee con un mapeo en memoria del archivo.
+ *
+ * Los vectores y las tablas hash se guardan por valor: si dos variables
+ * apuntan al mismo vector, al cargar tendrán dos copias. Un vector o una
+ * tabla que se contiene a sí mismo no se puede guardar.
+ *
+ * De una función memoizada se guarda la capacidad de su caché, no los
+ * resultados: al cargarla empieza vacía.
+ */
+final class ImagenLisp {
+
+    private static final int MAGIA = 0x4C495350; // "LISP"
+    // Cambiar al modificar el formato: las imágenes viejas se rechazan
+    static final int FORMATO = 3;
+    private static final int CABECERA = 4 + 4 + 8 + 8;
+
+    private static final byte NULO = 0;
+    private static final byte ENTERO = 1;
+    private static final byte LARGO = 2;
+    private static final byte GRANDE = 3;
+    private static final byte DECIMAL = 4;
+    private static final byte SIMBOLO = 5;
+    private static final byte LISTA = 6;
+    private static final byte VECTOR = 7;
+    private static final byte VECTOR_ENTEROS = 8;
+    private static final byte VECTOR_DECIMALES = 9;
+    private static final byte TABLA = 10;
+
+    private ImagenLisp() {
+    }
+
+    // CRC32 del contenido de la fuente, para saber si la imagen sigue valiendo
+    static long huella(Path fuente) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(fuente));
+        return crc.getValue();
+    }
+
+    /**
+     * Escribe la imagen en un archivo temporal y lo mueve a destino, así que
+     * un lector nunca ve una imagen a medio escribir.
+     */
+    static void guardar(EntornoLisp entorno, Path destino, long huella) throws IOException {
+        Escritor escritor = new Escritor();
+        escritor.escribir(entorno);
+        byte[] simbolos = escritor.tablaSimbolos();
+        byte[] cuerpo = escritor.datos.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(simbolos);
+        crc.update(cuerpo);
+
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (OutputStream archivo = Files.newOutputStream(temporal);
+             DataOutputStream salida = new DataOutputStream(archivo)) {
+            salida.writeInt(MAGIA);
+            salida.writeInt(FORMATO);
+            salida.writeLong(huella);
+            salida.writeLong(crc.getValue());
+            salida.write(simbolos);
+            salida.write(cuerpo);
+        }
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Carga la imagen en el entorno. Con huella distinta de 0 la imagen debe
+     * haberse guardado con esa huella. Una imagen de otro formato, de otra
+     * fuente o dañada se rechaza con IOException antes de tocar el entorno.
+     */
+    static void cargar(EntornoLisp entorno, Path origen, long huella) throws IOException {
+        ByteBuffer datos;
+        try (FileChannel canal = FileChannel.open(origen, StandardOpenOption.READ)) {
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            datos = mapa;
+        }
+
+        if (datos.remaining() < CABECERA || datos.getInt() != MAGIA) {
+            throw new IOException("No es una imagen LISP: " + origen);
+        }
+        int formato = datos.getInt();
+        if (formato != FORMATO) {
+            throw new IOException("Formato de imagen " + formato + ", se esperaba " + FORMATO);
+        }
+        long huellaGuardada = datos.getLong();
+        if (huella != 0 && huellaGuardada != huella) {
+            throw new IOException("La imagen no corresponde a la fuente actual");
+        }
+        long crcGuardado = datos.getLong();
+        CRC32 crc = new CRC32();
+        crc.update(datos.duplicate());
+        if (crc.getValue() != crcGuardado) {
+            throw new IOException("Imagen dañada: " + origen);
+        }
+
+        Lector lector = new Lector(datos);
+        try {
+            lector.leer();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | NegativeArraySizeException e) {
+            throw new IOException("Imagen mal formada: " + origen, e);
+        }
+        for (int i = 0; i < lector.variables.size(); i += 2) {
+            entorno.asignarVariable((SimboloLisp) lector.variables.get(i), lector.variables.get(i + 1));
+        }
+        for (Object[] funcion : lector.funciones) {
+            @SuppressWarnings("unchecked")
+            List<String> parametros = (List<String>) funcion[1];
+            int capacidadMemo = (Integer) funcion[3];
+            if (capacidadMemo > 0) {
+                entorno.registrarFuncionMemo((SimboloLisp) funcion[0], parametros, funcion[2], capacidadMemo);
+            } else {
+                entorno.registrarFuncion(((SimboloLisp) funcion[0]).getNombre(), parametros, funcion[2]);
+            }
+        }
+    }
+
+    private static final class Escritor {
+        private final ByteArrayOutputStream datos = new ByteArrayOutputStream();
+        private final DataOutputStream salida = new DataOutputStream(datos);
+        private final Map<SimboloLisp, Integer> indices = new HashMap<>();
+        private final List<SimboloLisp> simbolos = new ArrayList<>();
+        // Vectores y tablas que se están escribiendo, para detectar ciclos
+        private final Set<Object> abiertos = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        void escribir(EntornoLisp entorno) throws IOException {
+            List<Object> variables = new ArrayList<>();
+            entorno.recorrerVariables((nombre, valor) -> {
+                variables.add(nombre);
+                variables.add(valor);
+            });
+            entero(salida, variables.size() / 2);
+            for (int i = 0; i < variables.size(); i += 2) {
+                entero(salida, indice((SimboloLisp) variables.get(i)));
+                valor(variables.get(i + 1));
+            }
+
+            Map<SimboloLisp, EntornoLisp.DefinicionFuncion> funciones = entorno.funcionesPropias();
+            entero(salida, funciones.size());
+            for (Map.Entry<SimboloLisp, EntornoLisp.DefinicionFuncion> funcion : funciones.entrySet()) {
+                entero(salida, indice(funcion.getKey()));
+                List<String> parametros = funcion.getValue().getParametros();
+                entero(salida, parametros.size());
+                for (String parametro : parametros) {
+                    entero(salida, indice(SimboloLisp.intern(parametro)));
+                }
+                valor(funcion.getValue().getCuerpo());
+                // 0: sin memoizar
+                MemoLisp memo = funcion.getValue().getMemo();
+                entero(salida, memo == null ? 0 : memo.getCapacidad());
+            }
+        }
+
+        // Entero sin signo en base 128: los índices y tamaños pequeños ocupan un byte
+        private static void entero(DataOutputStream salida, int valor) throws IOException {
+            while ((valor & ~0x7F) != 0) {
+                salida.writeByte((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            salida.writeByte(valor);
+        }
+
+        private int indice(SimboloLisp simbolo) {
+            Integer indice = indices.get(simbolo);
+            if (indice == null) {
+                indice = simbolos.size();
+                indices.put(simbolo, indice);
+                simbolos.add(simbolo);
+            }
+            return indice;
+        }
+
+        private void valor(Object valor) throws IOException {
+            if (valor == null) {
+                salida.writeByte(NULO);
+            } else if (valor instanceof Integer) {
+                int numero = (Integer) valor;
+                salida.writeByte(ENTERO);
+                entero(salida, (numero << 1) ^ (numero >> 31));
+            } else if (valor instanceof Long) {
+                salida.writeByte(LARGO);
+                salida.writeLong((Long) valor);
+            } else if (valor instanceof BigInteger) {
+                byte[] bytes = ((BigInteger) valor).toByteArray();
+                salida.writeByte(GRANDE);
+                entero(salida, bytes.length);
+                salida.write(bytes);
+            } else if (valor instanceof Double) {
+                salida.writeByte(DECIMAL);
+                salida.writeDouble((Double) valor);
+            } else if (valor instanceof SimboloLisp) {
+                salida.writeByte(SIMBOLO);
+                entero(salida, indice((SimboloLisp) valor));
+            } else if (valor instanceof List) {
+                List<?> lista = (List<?>) valor;
+                salida.writeByte(LISTA);
+                entero(salida, lista.size());
+                for (Object elemento : lista) {
+                    valor(elemento);
+                }
+            } else if (valor instanceof VectorLisp.Enteros) {
+                long[] elementos = ((VectorLisp.Enteros) valor).elementos;
+                salida.writeByte(VECTOR_ENTEROS);
+                entero(salida, elementos.length);
+                for (long elemento : elementos) {
+                    salida.writeLong(elemento);
+                }
+            } else if (valor instanceof VectorLisp.Decimales) {
+                double[] elementos = ((VectorLisp.Decimales) valor).elementos;
+                salida.writeByte(VECTOR_DECIMALES);
+                entero(salida, elementos.length);
+                for (double elemento : elementos) {
+                    salida.writeDouble(elemento);
+                }
+            } else if (valor instanceof VectorLisp.General || valor instanceof TablaLisp) {
+                if (!abiertos.add(valor)) {
+                    throw new IllegalArgumentException("No se puede guardar en una imagen un valor que se contiene a sí mismo");
+                }
+                if (valor instanceof TablaLisp) {
+                    tabla((TablaLisp) valor);
+                } else {
+                    Object[] elementos = ((VectorLisp.General) valor).elementos;
+                    salida.writeByte(VECTOR);
+                    entero(salida, elementos.length);
+                    for (Object elemento : elementos) {
+                        valor(elemento);
+                    }
+                }
+                abiertos.remove(valor);
+            } else {
+                throw new IllegalArgumentException("No se puede guardar en una imagen un valor de tipo " +
+                                                   valor.getClass().getSimpleName());
+            }
+        }
+
+        private void tabla(TablaLisp tabla) throws IOException {
+            List<Object> entradas = new ArrayList<>();
+            tabla.recorrer((clave, valor) -> {
+                entradas.add(clave);
+                entradas.add(valor);
+            });
+            salida.writeByte(TABLA);
+            entero(salida, entradas.size() / 2);
+            for (Object entrada : entradas) {
+                valor(entrada);
+            }
+        }
+
+        byte[] tablaSimbolos() throws IOException {
+            ByteArrayOutputStream tabla = new ByteArrayOutputStream();
+            DataOutputStream salidaTabla = new DataOutputStream(tabla);
+            entero(salidaTabla, simbolos.size());
+            for (SimboloLisp simbolo : simbolos) {
+                byte[] nombre = simbolo.getNombre().getBytes(StandardCharsets.UTF_8);
+                entero(salidaTabla, nombre.length);
+                salidaTabla.write(nombre);
+            }
+            return tabla.toByteArray();
+        }
+    }
+
+    private static final class Lector {
+        private final ByteBuffer datos;
+        private SimboloLisp[] simbolos;
+        private byte[] texto = new byte[64];
+        // Se completan antes de tocar el entorno, para no cargar imágenes a medias
+        final List<Object> variables = new ArrayList<>();
+        final List<Object[]> funciones = new ArrayList<>();
+
+        Lector(ByteBuffer datos) {
+            this.datos = datos;
+        }
+
+        void leer() {
+            simbolos = new SimboloLisp[entero()];
+            for (int i = 0; i < simbolos.length; i++) {
+                int longitud = entero();
+                if (longitud > texto.length) {
+                    texto = new byte[Math.max(longitud, texto.length * 2)];
+                }
+                datos.get(texto, 0, longitud);
+                simbolos[i] = SimboloLisp.intern(new String(texto, 0, longitud, StandardCharsets.UTF_8));
+            }
+
+            int nVariables = entero();
+            for (int i = 0; i < nVariables; i++) {
+                variables.add(simbolos[entero()]);
+                variables.add(valor());
+            }
+
+            int nFunciones = entero();
+            for (int i = 0; i < nFunciones; i++) {
+                SimboloLisp nombre = simbolos[entero()];
+                int nParametros = entero();
+                List<String> parametros = new ArrayList<>(nParametros);
+                for (int j = 0; j < nParametros; j++) {
+                    parametros.add(simbolos[entero()].getNombre());
+                }
+                Object cuerpo = valor();
+                funciones.add(new Object[] {nombre, parametros, cuerpo, entero()});
+            }
+        }
+
+        private int entero() {
+            int valor = 0;
+            for (int desplazamiento = 0; desplazamiento < 32; desplazamiento += 7) {
+                byte b = datos.get();
+                valor |= (b & 0x7F) << desplazamiento;
+                if (b >= 0) {
+                    return valor;
+                }
+            }
+            throw new IllegalArgumentException("Entero mal codificado en la imagen");
+        }
+
+        private Object valor() {
+            byte tipo = datos.get();
+            switch (tipo) {
+                case NULO:
+                    return null;
+                case ENTERO: {
+                    int zigzag = entero();
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+                case LARGO:
+                    return datos.getLong();
+                case GRANDE: {
+                    byte[] bytes = new byte[entero()];
+                    datos.get(bytes);
+                    return new BigInteger(bytes);
+                }
+                case DECIMAL:
+                    return datos.getDouble();
+                case SIMBOLO:
+                    return simbolos[entero()];
+                case LISTA: {
+                    Object[] elementos = new Object[entero()];
+                    for (int i = 0; i < elementos.length; i++) {
+                        elementos[i] = valor();
+                    }
+                    return ConsLisp.de(elementos);
+                }
+                case VECTOR: {
+                    Object[] elementos = new Object[entero()];
+                    for (int i = 0; i < elementos.length; i++) {
+                        elementos[i] = valor();
+                    }
+                    return new VectorLisp.General(elementos);
+                }
+                case VECTOR_ENTEROS: {
+                    long[] elementos = new long[entero()];
+                    datos.asLongBuffer().get(elementos);
+                    datos.position(datos.position() + elementos.length * 8);
+                    return new VectorLisp.Enteros(elementos);
+                }
+                case VECTOR_DECIMALES: {
+                    double[] elementos = new double[entero()];
+                    datos.asDoubleBuffer().get(elementos);
+                    datos.position(datos.position() + elementos.length * 8);
+                    return new VectorLisp.Decimales(elementos);
+                }
+                case TABLA: {
+                    TablaLisp tabla = new TablaLisp();
+                    int entradas = entero();
+                    for (int i = 0; i < entradas; i++) {
+                        Object clave = valor();
+                        tabla.poner(clave, valor());
+                    }
+                    return tabla;
+                }
+                default:
+                    throw new IllegalArgumentException("Tipo de valor desconocido en la imagen: " + tipo);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ImagenLispTest {
+
+    private Path directorio;
+
+    @Before
+    public void crearDirectorio() throws IOException {
+        directorio = Files.createTempDirectory("imagen");
+    }
+
+    @After
+    public void borrarDirectorio() throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            archivos.sorted((a, b) -> b.compareTo(a)).forEach(archivo -> archivo.toFile().delete());
+        }
+    }
+
+    private Path archivo(String nombre, String contenido) throws IOException {
+        return Files.write(directorio.resolve(nombre), contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRoundTripKeepsFunctionsAndVariables() throws IOException {
+        LispProcessor origen = new LispProcessor();
+        origen.procesar("(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))");
+        origen.procesar("(defun primero (l) (car l))");
+        origen.procesar("(defun constante () '(a (b 2.5) 123456789012345678901234567890 ñandú))");
+        origen.procesar("(setq grande 123456789012345678901234567890)");
+        origen.procesar("(setq largo 12345678901)");
+        origen.procesar("(setq lista '(1 (2 3) x))");
+        origen.procesar("(setq vacio nil)");
+        origen.procesar("(setq negativos '(-1 -300 -2147483648 2147483647))");
+        Path imagen = directorio.resolve("prog.img");
+        origen.guardarImagen(imagen);
+
+        LispProcessor destino = new LispProcessor();
+        destino.cargarImagen(imagen);
+        assertEquals(55, destino.procesar("(fib 10)"));
+        assertEquals(1, destino.procesar("(primero '(1 2))"));
+        assertEquals(origen.procesar("(constante)"), destino.procesar("(constante)"));
+        assertEquals(new BigInteger("123456789012345678901234567890"), destino.procesar("grande"));
+        assertEquals(12345678901L, destino.procesar("largo"));
+        assertEquals(Arrays.asList(1, Arrays.asList(2, 3), SimboloLisp.intern("x")), destino.procesar("lista"));
+        assertEquals(SimboloLisp.NIL, destino.procesar("vacio"));
+        assertEquals(Arrays.asList(-1, -300, Integer.MIN_VALUE, Integer.MAX_VALUE), destino.procesar("negativos"));
+        assertEquals(origen.getMetricas().getFunciones(), destino.getMetricas().getFunciones());
+    }
+
+    @Test
+    public void testRoundTripKeepsVectorsAndTables() throws IOException {
+        LispProcessor origen = new LispProcessor();
+        origen.procesar("(setq v (vector 1 'a (vector 2.5)))");
+        origen.procesar("(setq l (make-array 3 'long -7))");
+        origen.procesar("(setq d (make-array 2 'double 1.5))");
+        origen.procesar("(setq h (make-hash-table))");
+        origen.procesar("(puthash '(x 1) v h)");
+        origen.procesar("(puthash 12345678901 'largo h)");
+        Path imagen = directorio.resolve("datos.img");
+        origen.guardarImagen(imagen);
+
+        LispProcessor destino = new LispProcessor();
+        destino.cargarImagen(imagen);
+        assertEquals("#[1, a, #[2.5]]", destino.procesar("v").toString());
+        assertEquals("#[-7, -7, -7]", destino.procesar("l").toString());
+        assertTrue(destino.procesar("l") instanceof VectorLisp.Enteros);
+        assertEquals("#[1.5, 1.5]", destino.procesar("d").toString());
+        assertEquals(SimboloLisp.intern("a"), destino.procesar("(aref (gethash '(x 1) h) 1)"));
+        assertEquals(SimboloLisp.intern("largo"), destino.procesar("(gethash 12345678901 h)"));
+
+        origen.procesar("(aset v 0 v)");
+        try {
+            origen.guardarImagen(imagen);
+            fail("Se esperaba un error por el ciclo");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("se contiene a sí mismo"));
+        }
+    }
+
+    @Test
+    public void testRoundTripKeepsMemoizationButNotResults() throws IOException {
+        LispProcessor origen = new LispProcessor();
+        origen.procesar("(defun cuadrado (n) (* n n))");
+        origen.procesar("(memoize 'cuadrado 64)");
+        origen.procesar("(cuadrado 3)");
+        Path imagen = directorio.resolve("memo.img");
+        origen.guardarImagen(imagen);
+
+        LispProcessor destino = new LispProcessor();
+        destino.cargarImagen(imagen);
+        MemoLisp memo = destino.obtenerMemo("cuadrado");
+        assertEquals(64, memo.getCapacidad());
+        assertEquals(0, memo.getTamano());
+        assertEquals(9, destino.procesar("(cuadrado 3)"));
+        assertEquals(1, memo.getFallos());
+    }
+
+    @Test
+    public void testPreludeFallsBackToSourceAndRebuildsImage() throws IOException {
+        Path fuente = archivo("preludio.lisp", "(defun doble (x) (* 2 x))\n(setq base 10)\n");
+        Path imagen = directorio.resolve("preludio.img");
+
+        LispProcessor primero = new LispProcessor();
+        assertFalse(primero.cargarPreludio(fuente, imagen));
+        assertTrue(Files.exists(imagen));
+
+        LispProcessor segundo = new LispProcessor();
+        assertTrue(segundo.cargarPreludio(fuente, imagen));
+        assertEquals(20, segundo.procesar("(doble base)"));
+
+        // Fuente modificada: la imagen ya no vale
+        archivo("preludio.lisp", "(defun doble (x) (* 3 x))\n(setq base 10)\n");
+        LispProcessor tercero = new LispProcessor();
+        assertFalse(tercero.cargarPreludio(fuente, imagen));
+        assertEquals(30, tercero.procesar("(doble base)"));
+        assertTrue(new LispProcessor().cargarPreludio(fuente, imagen));
+    }
+
+    @Test
+    public void testRejectsDamagedOrForeignImages() throws IOException {
+        LispProcessor origen = new LispProcessor();
+        origen.procesar("(defun uno () 1)");
+        Path imagen = directorio.resolve("prog.img");
+        origen.guardarImagen(imagen);
+
+        byte[] bytes = Files.readAllBytes(imagen);
+        bytes[bytes.length - 3] ^= 0x55;
+        Path danada = Files.write(directorio.resolve("danada.img"), bytes);
+        rechazar(danada, "dañada");
+
+        byte[] otroFormato = Files.readAllBytes(imagen);
+        otroFormato[7] = (byte) (ImagenLisp.FORMATO + 1);
+        rechazar(Files.write(directorio.resolve("formato.img"), otroFormato), "Formato");
+
+        rechazar(archivo("texto.img", "(defun uno () 1)"), "No es una imagen");
+    }
+
+    private static void rechazar(Path imagen, String mensaje) {
+        LispProcessor destino = new LispProcessor();
+        try {
+            destino.cargarImagen(imagen);
+            fail("Se esperaba una imagen rechazada: " + imagen);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(mensaje));
+        }
+        // Nada de la imagen rechazada llega al entorno
+        try {
+            destino.procesar("(uno)");
+            fail("uno no debería estar definida");
+        } catch (ErrorLisp e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("no definida"));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package Interprete;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lector incremental de programas. Consume un Reader por bloques y devuelve
+ * las formas de nivel superior de una en una, ya analizadas. El anidamiento
+ * se lleva en una pila explícita mientras se lee, así que cada carácter se
+ * examina una sola vez y la memoria depende de la forma actual, no del
+ * tamaño del archivo. Los comentarios (';' hasta fin de línea) se ignoran,
+ * incluidos los paréntesis que contengan.
+ */
+public class LectorLisp implements Closeable {
+
+    /** Valor devuelto por leer() cuando no quedan más formas. */
+    public static final Object FIN = new Object();
+
+    private static final int TAMANO_BLOQUE = 8192;
+
+    // Marca en la pila: el siguiente dato completo va dentro de (quote ...)
+    private static final Object COMILLA = new Object();
+    // Resultado de completar() cuando la forma de nivel superior sigue abierta
+    private static final Object PENDIENTE = new Object();
+
+    private final Reader origen;
+    private final char[] bloque = new char[TAMANO_BLOQUE];
+    private int posicion;
+    private int limite;
+
+    private final List<Object> pila = new ArrayList<>();
+    private char[] atomo = new char[64];
+
+    private int fila = 1;
+    private int columna = 1;
+
+    public LectorLisp(Reader origen) {
+        this.origen = origen;
+    }
+
+    /**
+     * Lee la siguiente forma de nivel superior, o FIN al agotarse la entrada.
+     * Un error de sintaxis descarta la forma en curso; la lectura puede
+     * continuar con la siguiente.
+     */
+    public Object leer() {
+        pila.clear();
+        int c;
+        while ((c = siguiente()) != -1) {
+            if (c == ';') {
+                saltarComentario();
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+
+            Object dato;
+            if (c == '(') {
+                pila.add(new ArrayList<>());
+                continue;
+            } else if (c == '\'') {
+                pila.add(COMILLA);
+                continue;
+            } else if (c == ')') {
+                if (pila.isEmpty() || !(pila.get(pila.size() - 1) instanceof ArrayList)) {
+                    throw new ErrorLisp("paréntesis extra detectado", fila, columna - 1);
+                }
+                List<?> elementos = (List<?>) pila.remove(pila.size() - 1);
+                dato = ConsLisp.de(elementos.toArray());
+            } else {
+                dato = leerAtomo((char) c);
+            }
+
+            Object forma = completar(dato);
+            if (forma != PENDIENTE) {
+                return forma;
+            }
+        }
+
+        if (!pila.isEmpty()) {
+            pila.clear();
+            throw new ErrorLisp("Se esperaba un paréntesis de cierre", fila, columna);
+        }
+        return FIN;
+    }
+
+    public int getFila() {
+        return fila;
+    }
+
+    @Override
+    public void close() throws IOException {
+        origen.close();
+    }
+
+    // Añade un dato ya completo a la lista abierta; si no queda ninguna, es la forma leída
+    @SuppressWarnings("unchecked")
+    private Object completar(Object dato) {
+        while (!pila.isEmpty() && pila.get(pila.size() - 1) == COMILLA) {
+            pila.remove(pila.size() - 1);
+            dato = ConsLisp.de(SimboloLisp.QUOTE, dato);
+        }
+        if (pila.isEmpty()) {
+            return dato;
+        }
+        ((List<Object>) pila.get(pila.size() - 1)).add(dato);
+        return PENDIENTE;
+    }
+
+    private Object leerAtomo(char primero) {
+        atomo[0] = primero;
+        int longitud = 1;
+        int c;
+        while ((c = mirar()) != -1 && !TokenizadorLisp.esDelimitador((char) c)) {
+            if (longitud == atomo.length) {
+                atomo = Arrays.copyOf(atomo, longitud * 2);
+            }
+            atomo[longitud++] = (char) siguiente();
+        }
+        return LispParser.atomo(atomo, 0, longitud, TokenizadorLisp.clasificar(atomo, 0, longitud));
+    }
+
+    private void saltarComentario() {
+        int c;
+        while ((c = mirar()) != -1 && c != '\n') {
+            siguiente();
+        }
+    }
+
+    private int siguiente() {
+        if (posicion == limite && !rellenar()) {
+            return -1;
+        }
+        char c = bloque[posicion++];
+        if (c == '\n') {
+            fila++;
+            columna = 1;
+        } else {
+            columna++;
+        }
+        return c;
+    }
+
+    private int mirar() {
+        if (posicion == limite && !rellenar()) {
+            return -1;
+        }
+        return bloque[posicion];
+    }
+
+    private boolean rellenar() {
+        try {
+            int leidos;
+            do {
+                leidos = origen.read(bloque, 0, bloque.length);
+            } while (leidos == 0);
+            if (leidos < 0) {
+                return false;
+            }
+            posicion = 0;
+            limite = leidos;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class LectorLispTest {
+
+    private static SimboloLisp s(String nombre) {
+        return SimboloLisp.intern(nombre);
+    }
+
+    @Test
+    public void testReadsTopLevelFormsOneAtATime() {
+        LectorLisp lector = new LectorLisp(new StringReader(
+                "(defun doble (x)\n  (* 2 x))\n(doble 21) 7\n"));
+
+        assertEquals(Arrays.asList(s("defun"), s("doble"), Arrays.asList(s("x")),
+                                   Arrays.asList(s("*"), 2, s("x"))), lector.leer());
+        assertEquals(Arrays.asList(s("doble"), 21), lector.leer());
+        assertEquals(7, lector.leer());
+        assertSame(LectorLisp.FIN, lector.leer());
+    }
+
+    @Test
+    public void testCommentsAreIgnoredIncludingParens() {
+        LectorLisp lector = new LectorLisp(new StringReader(
+                "; (no es código\n(+ 1 ; 2)\n 3) ;)\n"));
+
+        assertEquals(Arrays.asList(s("+"), 1, 3), lector.leer());
+        assertSame(LectorLisp.FIN, lector.leer());
+    }
+
+    @Test
+    public void testQuoteWrapsNextDatum() {
+        LectorLisp lector = new LectorLisp(new StringReader("'(a 'b)"));
+
+        assertEquals(Arrays.asList(SimboloLisp.QUOTE,
+                                   Arrays.asList(s("a"), Arrays.asList(SimboloLisp.QUOTE, s("b")))),
+                     lector.leer());
+    }
+
+    @Test
+    public void testFormsSpanningBufferBoundaries() {
+        StringBuilder texto = new StringBuilder("(list");
+        for (int i = 0; i < 20000; i++) {
+            texto.append('\n').append(i);
+        }
+        texto.append(")");
+
+        Object forma = new LectorLisp(new StringReader(texto.toString())).leer();
+        assertEquals(20001, ((ConsLisp) forma).size());
+        assertEquals(19999, ((ConsLisp) forma).get(20000));
+    }
+
+    @Test
+    public void testSyntaxErrorsReportLineAndAllowRecovery() {
+        LectorLisp lector = new LectorLisp(new StringReader("(a)\n) (b)"));
+        lector.leer();
+        try {
+            lector.leer();
+            fail("Se esperaba un error por paréntesis extra");
+        } catch (ErrorLisp e) {
+            assertEquals(2, e.obtenerFila());
+        }
+        assertEquals(Arrays.asList(s("b")), lector.leer());
+
+        try {
+            new LectorLisp(new StringReader("(a (b)")).leer();
+            fail("Se esperaba un error por paréntesis sin cerrar");
+        } catch (ErrorLisp e) {
+            // esperado
+        }
+    }
+
+    @Test
+    public void testProcessorEvaluatesReadForms() {
+        LispProcessor processor = new LispProcessor();
+        LectorLisp lector = new LectorLisp(new StringReader(
+                "(defun cuadrado (x) (* x x))\n(cuadrado 12)"));
+
+        processor.evaluar(lector.leer());
+        assertEquals(144, processor.evaluar(lector.leer()));
+    }
+}
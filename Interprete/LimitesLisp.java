@@ -0,0 +1,68 @@
+package Interprete;
+
+import java.time.Duration;
+
+/**
+ * Límites de recursos para una evaluación: pasos (llamadas a funciones de
+ * usuario y vueltas de while o dotimes), tiempo de reloj y bytes asignados.
+ * Inmutable; un 0 significa sin límite. Cada evaluación los aplica con su
+ * propio GobernadorLisp.
+ */
+public final class LimitesLisp {
+
+    public static final LimitesLisp NINGUNO = new LimitesLisp(0, 0, 0);
+
+    private final long pasos;
+    private final long tiempoNanos;
+    private final long memoria;
+
+    private LimitesLisp(long pasos, long tiempoNanos, long memoria) {
+        this.pasos = pasos;
+        this.tiempoNanos = tiempoNanos;
+        this.memoria = memoria;
+    }
+
+    public LimitesLisp conPasos(long pasos) {
+        if (pasos < 0) {
+            throw new IllegalArgumentException("El límite de pasos no puede ser negativo");
+        }
+        return new LimitesLisp(pasos, tiempoNanos, memoria);
+    }
+
+    public LimitesLisp conTiempo(Duration tiempo) {
+        if (tiempo.isNegative()) {
+            throw new IllegalArgumentException("El límite de tiempo no puede ser negativo");
+        }
+        return new LimitesLisp(pasos, tiempo.toNanos(), memoria);
+    }
+
+    /**
+     * Bytes que puede asignar la evaluación, medidos con el contador de
+     * asignación de cada hilo de la JVM (incluye las ramas de pcall y pmap).
+     */
+    public LimitesLisp conMemoria(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("El límite de memoria no puede ser negativo");
+        }
+        if (bytes > 0 && !PerfilLisp.midePorHilo()) {
+            throw new UnsupportedOperationException("Esta JVM no mide la memoria asignada por hilo");
+        }
+        return new LimitesLisp(pasos, tiempoNanos, bytes);
+    }
+
+    public long getPasos() {
+        return pasos;
+    }
+
+    public long getTiempoNanos() {
+        return tiempoNanos;
+    }
+
+    public long getMemoria() {
+        return memoria;
+    }
+
+    boolean sinLimites() {
+        return pasos == 0 && tiempoNanos == 0 && memoria == 0;
+    }
+}
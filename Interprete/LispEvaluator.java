@@ -1,263 +1,756 @@
 package Interprete;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import Interprete.MetricasLisp.CategoriaError;
 
 public class LispEvaluator {
 
+    static final int PROFUNDIDAD_MAXIMA = 1000;
+    static final int CAPACIDAD_PILA_POR_DEFECTO = 10_000_000;
+    static final int UMBRAL_PARALELO_POR_DEFECTO = 2;
+
+    // Forma de ejecutar los nodos compilados
+    public enum Motor {
+        RECURSIVO,  // cada nodo se evalúa sobre la pila de Java
+        PILA        // pila de continuaciones explícita en el heap (EvaluadorPila)
+    }
+
     @FunctionalInterface
     private interface LispOperator {
-        Object apply(List<?> list, EntornoLisp env, int depth);
+        NodoLisp compilar(List<?> list, Ambito ambito, boolean cola);
+    }
+
+    /**
+     * Nombres léxicos visibles mientras se compila un cuerpo de función. Cada
+     * nombre ocupa una posición fija del marco de la llamada; let y dotimes
+     * abren ámbitos hijos cuyas variables ocupan posiciones nuevas del mismo
+     * marco, nunca reutilizadas (las ramas de pcall comparten el marco).
+     */
+    static final class Ambito {
+        private final List<SimboloLisp> nombres;
+        private final int base;
+        private final Ambito padre;
+        // Tamaño del marco, compartido por todos los ámbitos de la misma función
+        private final int[] tamano;
+
+        Ambito(List<SimboloLisp> nombres) {
+            this(nombres, 0, null, new int[] {nombres.size()});
+        }
+
+        private Ambito(List<SimboloLisp> nombres, int base, Ambito padre, int[] tamano) {
+            this.nombres = nombres;
+            this.base = base;
+            this.padre = padre;
+            this.tamano = tamano;
+        }
+
+        int posicion(SimboloLisp nombre) {
+            int i = nombres.lastIndexOf(nombre);
+            if (i >= 0) return base + i;
+            return padre != null ? padre.posicion(nombre) : -1;
+        }
+
+        Ambito extender(List<SimboloLisp> nuevos) {
+            Ambito hijo = new Ambito(nuevos, tamano[0], this, tamano);
+            tamano[0] += nuevos.size();
+            return hijo;
+        }
+
+        int tamanoMarco() {
+            return tamano[0];
+        }
     }
 
-    private final Map<String, LispOperator> operators = new HashMap<>();
+    private final Map<SimboloLisp, LispOperator> operators = new HashMap<>();
+    // Primitivas sin efectos: el optimizador puede evaluarlas con argumentos constantes
+    private final Map<SimboloLisp, NodoLisp.Primitiva> primitivas = new HashMap<>();
+    // Crean o leen datos mutables: nunca se evalúan al optimizar
+    private final Set<SimboloLisp> operaciones = new HashSet<>();
+    // Versiones de uno y dos argumentos que se compilan sin arreglo de argumentos
+    private final Map<SimboloLisp, NodoLisp.Primitiva1> unarias = new HashMap<>();
+    private final Map<SimboloLisp, NodoLisp.Primitiva2> binarias = new HashMap<>();
+    private final OptimizadorLisp optimizador = new OptimizadorLisp(this);
+    private volatile boolean optimizar;
+    private final Motor motor;
+    private EvaluadorPila evaluadorPila;
+    private volatile int umbralParalelo = UMBRAL_PARALELO_POR_DEFECTO;
+    private volatile int umbralCompilacion;
+    private final LongAdder compilacionesFallidas = new LongAdder();
 
     public LispEvaluator() {
+        this(Motor.RECURSIVO);
+    }
+
+    public LispEvaluator(Motor motor) {
+        this.motor = motor;
+        if (motor == Motor.PILA) {
+            this.evaluadorPila = new EvaluadorPila(CAPACIDAD_PILA_POR_DEFECTO);
+        }
+
         // Formas especiales
-        operators.put("quote", this::handleQuote);
-        operators.put("setq", this::handleSetq);
-        operators.put("defun", this::handleDefun);
-        operators.put("cond", this::handleCond);
+        operators.put(SimboloLisp.QUOTE, this::handleQuote);
+        operators.put(SimboloLisp.intern("setq"), this::handleSetq);
+        operators.put(SimboloLisp.intern("defun"), this::handleDefun);
+        operators.put(SimboloLisp.intern("defun-memo"), this::handleDefunMemo);
+        operators.put(SimboloLisp.intern("memoize"), this::handleMemoize);
+        operators.put(SimboloLisp.intern("cond"), this::handleCond);
+        operators.put(SimboloLisp.intern("pcall"), this::handlePcall);
+        operators.put(SimboloLisp.intern("pmap"), this::handlePmap);
+        operators.put(SimboloLisp.intern("profile"), this::handleProfile);
+        operators.put(SimboloLisp.intern("progn"), this::handleProgn);
+        operators.put(SimboloLisp.intern("let"), this::handleLet);
+        operators.put(SimboloLisp.intern("while"), this::handleWhile);
+        operators.put(SimboloLisp.intern("dotimes"), this::handleDotimes);
 
         // Valores especiales
-        operators.put("t", (list, env, depth) -> "t");
-        operators.put("nil", (list, env, depth) -> "nil");
+        operators.put(SimboloLisp.T, (list, ambito, cola) -> new NodoLisp.Constante(SimboloLisp.T));
+        operators.put(SimboloLisp.NIL, (list, ambito, cola) -> new NodoLisp.Constante(SimboloLisp.NIL));
 
         // Operaciones aritméticas
-        operators.put("+", this::evaluateAdd);
-        operators.put("-", this::evaluateSubtract);
-        operators.put("*", this::evaluateMultiply);
-        operators.put("/", this::evaluateDivide);
+        registrarPrimitiva("+", this::evaluateAdd);
+        registrarPrimitiva("-", this::evaluateSubtract);
+        registrarPrimitiva("*", this::evaluateMultiply);
+        registrarPrimitiva("/", this::evaluateDivide);
+        especializar("+", a -> NumerosLisp.sumar(0, NumerosLisp.numero(a)));
+        especializar("+", (a, b) -> NumerosLisp.sumar(NumerosLisp.numero(a), NumerosLisp.numero(b)));
+        especializar("-", a -> NumerosLisp.negar(NumerosLisp.numero(a)));
+        especializar("-", (a, b) -> NumerosLisp.restar(NumerosLisp.numero(a), NumerosLisp.numero(b)));
+        especializar("*", a -> NumerosLisp.multiplicar(1, NumerosLisp.numero(a)));
+        especializar("*", (a, b) -> NumerosLisp.multiplicar(NumerosLisp.numero(a), NumerosLisp.numero(b)));
+        especializar("/", a -> NumerosLisp.dividir(1, NumerosLisp.numero(a)));
+        especializar("/", (a, b) -> NumerosLisp.dividir(NumerosLisp.numero(a), NumerosLisp.numero(b)));
 
         // Predicados
-        operators.put("equal", this::evaluateEqual);
-        operators.put("=", this::evaluateEqual);
-        operators.put("<", this::evaluateLessThan);
-        operators.put(">", this::evaluateGreaterThan);
-        operators.put("atom", this::evaluateAtom);
-        operators.put("list", this::evaluateList);
+        registrarPrimitiva2("equal", this::evaluateEqual);
+        registrarPrimitiva2("=", this::evaluateNumericEqual);
+        registrarPrimitiva2("<", (a, b) -> comparar(a, b, "<") < 0 ? SimboloLisp.T : SimboloLisp.NIL);
+        registrarPrimitiva2(">", (a, b) -> comparar(a, b, ">") > 0 ? SimboloLisp.T : SimboloLisp.NIL);
+        registrarPrimitiva2("<=", (a, b) -> comparar(a, b, "<=") <= 0 ? SimboloLisp.T : SimboloLisp.NIL);
+        registrarPrimitiva2(">=", (a, b) -> comparar(a, b, ">=") >= 0 ? SimboloLisp.T : SimboloLisp.NIL);
+        registrarPrimitiva1("atom", this::evaluateAtom);
+        registrarPrimitiva("list", (NodoLisp.PrimitivaConContexto) this::evaluateList);
+
+        // Listas
+        registrarPrimitiva1("car", this::evaluateCar);
+        registrarPrimitiva1("cdr", this::evaluateCdr);
+        registrarPrimitiva2("cons", this::evaluateCons);
+        registrarPrimitiva1("null", this::evaluateNull);
+        registrarPrimitiva1("length", this::evaluateLength);
+
+        // Vectores
+        registrarOperacion("vector", (NodoLisp.PrimitivaConContexto) this::evaluateVector);
+        registrarOperacion("make-array", (NodoLisp.PrimitivaConContexto) this::evaluateMakeArray);
+        registrarOperacion("aref", aridad("aref", this::evaluateAref));
+        especializar("aref", this::evaluateAref);
+        registrarOperacion("aset", this::evaluateAset);
+
+        // Tablas hash
+        registrarOperacion("make-hash-table", this::evaluateMakeHashTable);
+        registrarOperacion("gethash", this::evaluateGethash);
+        especializar("gethash", (clave, tabla) -> tabla(tabla, "gethash").obtener(clave, SimboloLisp.NIL));
+        registrarOperacion("puthash", this::evaluatePuthash);
+        registrarOperacion("remhash", aridad("remhash", this::evaluateRemhash));
+        especializar("remhash", this::evaluateRemhash);
+        registrarOperacion("hash-table-count", aridad("hash-table-count", this::evaluateHashTableCount));
+        especializar("hash-table-count", this::evaluateHashTableCount);
     }
 
     public Object evaluate(Object expr, EntornoLisp env) {
-        return evaluate(expr, env, 0); // Iniciar con profundidad 0
+        return ejecutar(compilar(expr), new ContextoEvaluacion(env));
+    }
+
+    public Object ejecutar(NodoLisp programa, ContextoEvaluacion ctx) {
+        return ejecutar(programa, ContextoEvaluacion.MARCO_VACIO, ctx);
+    }
+
+    Object ejecutar(NodoLisp nodo, Object[] marco, ContextoEvaluacion ctx) {
+        if (motor == Motor.PILA) {
+            return evaluadorPila.ejecutar(nodo, marco, ctx);
+        }
+        return nodo.ejecutar(marco, ctx);
+    }
+
+    public int getUmbralParalelo() {
+        return umbralParalelo;
+    }
+
+    // pcall y pmap con menos elementos que el umbral se evalúan sin usar el pool
+    public void setUmbralParalelo(int umbral) {
+        if (umbral < 1) {
+            throw new IllegalArgumentException("El umbral paralelo debe ser positivo");
+        }
+        this.umbralParalelo = umbral;
+    }
+
+    public Motor getMotor() {
+        return motor;
     }
 
-    private Object evaluate(Object expr, EntornoLisp env, int depth) {
-        if (depth > 1000) {
-            throw new ErrorLisp("Se ha excedido la profundidad máxima de recursión (1000)");
+    // Número máximo de formas pendientes que admite el motor PILA
+    public void setCapacidadPila(int capacidad) {
+        if (motor != Motor.PILA) {
+            throw new IllegalStateException("La capacidad de pila solo aplica al motor " + Motor.PILA);
         }
+        this.evaluadorPila = new EvaluadorPila(capacidad);
+    }
 
-        if (expr instanceof Number) return expr;
-        if (expr instanceof String) {
-            String symbol = (String) expr;
-            return env.existeVariable(symbol) ? env.obtenerVariable(symbol) : symbol;
+    public int getUmbralCompilacion() {
+        return umbralCompilacion;
+    }
+
+    /**
+     * Con umbral positivo, el cuerpo de una función se compila a bytecode
+     * (CompiladorLisp) después de ejecutarse umbral veces; 0 lo desactiva.
+     * Solo el motor RECURSIVO: PILA no usa la pila de Java. Como setOptimizar,
+     * afecta a los cuerpos que se compilen después.
+     */
+    public void setUmbralCompilacion(int umbral) {
+        if (umbral < 0) {
+            throw new IllegalArgumentException("El umbral de compilación no puede ser negativo");
+        }
+        if (umbral > 0 && motor != Motor.RECURSIVO) {
+            throw new IllegalStateException("La compilación a bytecode solo aplica al motor " + Motor.RECURSIVO);
         }
-        if (!(expr instanceof List)) return expr;
+        this.umbralCompilacion = umbral;
+    }
+
+    // Cuerpos cuyo bytecode rechazó la JVM y siguen interpretados
+    public long getCompilacionesFallidas() {
+        return compilacionesFallidas.sum();
+    }
+
+    public boolean isOptimizar() {
+        return optimizar;
+    }
+
+    /**
+     * Activa el OptimizadorLisp entre el análisis y la compilación. Solo
+     * afecta a lo que se compile después: los cuerpos de función ya
+     * compilados se quedan como estaban.
+     */
+    public void setOptimizar(boolean optimizar) {
+        this.optimizar = optimizar;
+    }
+
+    // Análisis previo: resuelve cada forma de nivel superior a un nodo ejecutable
+    public NodoLisp compilar(Object expr) {
+        // Las variables de let y dotimes de nivel superior necesitan un marco propio
+        Ambito ambito = new Ambito(List.of());
+        NodoLisp nodo = compilar(optimizar ? optimizador.optimizar(expr) : expr, ambito, false);
+        return ambito.tamanoMarco() == 0 ? nodo : new NodoLisp.ConMarco(nodo, ambito.tamanoMarco());
+    }
+
+    NodoLisp.Primitiva primitiva(SimboloLisp nombre) {
+        return primitivas.get(nombre);
+    }
+
+    // Formas especiales y valores como t o nil: todo lo que no es una primitiva ni una llamada a función
+    boolean esFormaEspecial(SimboloLisp nombre) {
+        return operators.containsKey(nombre) && !primitivas.containsKey(nombre) && !operaciones.contains(nombre);
+    }
+
+    // cola indica si el valor de expr es directamente el valor de la función que la contiene
+    private NodoLisp compilar(Object expr, Ambito ambito, boolean cola) {
+        if (expr instanceof Number) return new NodoLisp.Constante(expr);
+        SimboloLisp symbol = simbolo(expr);
+        if (symbol != null) {
+            if (symbol == SimboloLisp.T || symbol == SimboloLisp.NIL) return new NodoLisp.Constante(symbol);
+            int posicion = ambito.posicion(symbol);
+            return posicion >= 0 ? new NodoLisp.VariableLocal(posicion) : new NodoLisp.VariableGlobal(symbol);
+        }
+        if (!(expr instanceof List)) return new NodoLisp.Constante(expr);
 
         List<?> list = (List<?>) expr;
-        if (list.isEmpty()) return list;
+        if (list.isEmpty()) return new NodoLisp.Constante(list);
+        if (list instanceof ConsLisp) {
+            // El análisis accede por índice; se copia una vez a un arreglo
+            list = Arrays.asList(list.toArray());
+        }
 
-        String operator = list.get(0).toString();
+        SimboloLisp operator = simbolo(list.get(0));
+        if (operator == null) {
+            // Cabeza que no es un símbolo: se reporta como función no definida
+            operator = SimboloLisp.intern(list.get(0).toString());
+        }
         LispOperator op = operators.get(operator);
-        return (op != null) ? op.apply(list, env, depth + 1) : applyUserFunction(operator, list, env, depth + 1);
+        try {
+            return (op != null) ? op.compilar(list, ambito, cola) : compileUserCall(operator, list, ambito, cola);
+        } catch (ErrorLisp e) {
+            return new NodoLisp.FormaInvalida(e.getCategoria(), e.getMessage());
+        }
     }
 
-    private Object handleQuote(List<?> list, EntornoLisp env, int depth) {
-        if (list.size() != 2) throw new ErrorLisp("Error: quote requiere exactamente un argumento");
-        return list.get(1);
+    // Las cadenas de Java en posición de código se aceptan como nombres de símbolo
+    static SimboloLisp simbolo(Object expr) {
+        if (expr instanceof SimboloLisp) return (SimboloLisp) expr;
+        if (expr instanceof String) return SimboloLisp.intern((String) expr);
+        return null;
     }
 
-    private Object handleSetq(List<?> list, EntornoLisp env, int depth) {
-        if (list.size() != 3) throw new ErrorLisp("Error: setq requiere exactamente dos argumentos");
-        if (!(list.get(1) instanceof String)) throw new ErrorLisp("Error: el primer argumento de setq debe ser un símbolo");
+    // Compila el cuerpo de una función resolviendo sus parámetros a posiciones del marco
+    NodoLisp.CuerpoFuncion compilarFuncion(SimboloLisp nombre, List<String> params, Object body) {
+        return compilarFuncion(nombre, params, body, null);
+    }
 
-        String variable = list.get(1).toString();
-        Object value = evaluate(list.get(2), env, depth + 1);
-        return env.asignarVariable(variable, value);
+    // Con memo, el cuerpo no está en posición de cola: su valor se guarda antes de devolverlo
+    private NodoLisp.CuerpoFuncion compilarFuncion(SimboloLisp nombre, List<String> params, Object body, MemoLisp memo) {
+        List<SimboloLisp> nombres = new ArrayList<>();
+        for (String param : params) nombres.add(SimboloLisp.intern(param));
+        Ambito ambito = new Ambito(nombres);
+        Object cuerpo = optimizar ? optimizador.optimizar(body) : body;
+        NodoLisp nodo = compilar(cuerpo, ambito, memo == null);
+        NodoLisp.CuerpoFuncion compilado;
+        if (memo != null) {
+            compilado = new NodoLisp.CuerpoFuncion(nombre, new NodoLisp.Memo(memo, params.size(), nodo), ambito.tamanoMarco());
+        } else {
+            compilado = new NodoLisp.CuerpoFuncion(nombre, nodo, ambito.tamanoMarco());
+            compilado.restantes = umbralCompilacion;
+        }
+        return compilado;
     }
 
-    private Object handleDefun(List<?> list, EntornoLisp env, int depth) {
-        if (list.size() != 4) throw new ErrorLisp("Error: defun requiere exactamente tres argumentos");
+    // Segundo nivel: si la definición no cambió, su cuerpo pasa a ser el compilado a bytecode
+    NodoLisp.CuerpoFuncion compilarEnCaliente(NodoLisp.CuerpoFuncion cuerpo, ContextoEvaluacion ctx) {
+        EntornoLisp.DefinicionFuncion funcion = ctx.getEntorno().buscarFuncion(cuerpo.nombre);
+        if (funcion == null || funcion.getCuerpoCompilado() != cuerpo) {
+            return cuerpo;
+        }
+        NodoLisp.CuerpoFuncion compilado = CompiladorLisp.compilar(cuerpo, compilacionesFallidas);
+        return compilado != null && funcion.reemplazarCuerpo(cuerpo, compilado) ? compilado : cuerpo;
+    }
 
-        String functionName = list.get(1).toString();
-        if (!(list.get(2) instanceof List)) throw new ErrorLisp("Error: los parámetros de defun deben ser una lista");
+    NodoLisp.CuerpoFuncion cuerpoCompilado(SimboloLisp nombre, EntornoLisp.DefinicionFuncion funcion) {
+        NodoLisp.CuerpoFuncion cuerpo = funcion.getCuerpoCompilado();
+        if (cuerpo == null) {
+            cuerpo = compilarFuncion(nombre, funcion.getParametros(), funcion.getCuerpo(), funcion.getMemo());
+            funcion.setCuerpoCompilado(cuerpo);
+        }
+        return cuerpo;
+    }
+
+    private NodoLisp handleQuote(List<?> list, Ambito ambito, boolean cola) {
+        if (list.size() != 2) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: quote requiere exactamente un argumento");
+        return new NodoLisp.Constante(list.get(1));
+    }
+
+    private NodoLisp handleSetq(List<?> list, Ambito ambito, boolean cola) {
+        if (list.size() != 3) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: setq requiere exactamente dos argumentos");
+        SimboloLisp variable = simbolo(list.get(1));
+        if (variable == null) throw new ErrorLisp(CategoriaError.TIPO, "Error: el primer argumento de setq debe ser un símbolo");
+        if (variable == SimboloLisp.T || variable == SimboloLisp.NIL) {
+            throw new ErrorLisp(CategoriaError.OTRO, "Error: no se puede asignar a la constante " + variable);
+        }
+
+        NodoLisp value = compilar(list.get(2), ambito, false);
+        int posicion = ambito.posicion(variable);
+        return posicion >= 0 ? new NodoLisp.SetqLocal(posicion, value) : new NodoLisp.SetqGlobal(variable, value);
+    }
+
+    private NodoLisp handleDefun(List<?> list, Ambito ambito, boolean cola) {
+        List<String> params = parametrosDefun(list, "defun");
+        SimboloLisp functionName = SimboloLisp.intern(list.get(1).toString());
+        return new NodoLisp.Defun(functionName, params, list.get(3), compilarFuncion(functionName, params, list.get(3)));
+    }
+
+    // (defun-memo f (params) cuerpo): como defun, con caché de resultados de capacidad por defecto
+    private NodoLisp handleDefunMemo(List<?> list, Ambito ambito, boolean cola) {
+        List<String> params = parametrosDefun(list, "defun-memo");
+        return new NodoLisp.DefunMemo(SimboloLisp.intern(list.get(1).toString()), params, list.get(3));
+    }
+
+    private static List<String> parametrosDefun(List<?> list, String operador) {
+        if (list.size() != 4) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: " + operador + " requiere exactamente tres argumentos");
+        if (!(list.get(2) instanceof List)) throw new ErrorLisp(CategoriaError.TIPO, "Error: los parámetros de " + operador + " deben ser una lista");
 
         List<String> params = new ArrayList<>();
         for (Object param : (List<?>) list.get(2)) params.add(param.toString());
+        return params;
+    }
 
-        return env.registrarFuncion(functionName, params, list.get(3));
+    // (memoize 'f [capacidad])
+    private NodoLisp handleMemoize(List<?> list, Ambito ambito, boolean cola) {
+        if (list.size() != 2 && list.size() != 3) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: memoize requiere uno o dos argumentos");
+        SimboloLisp funcion = nombreFuncion(list.get(1), "memoize");
+        return new NodoLisp.Memoizar(funcion, list.size() == 3 ? compilar(list.get(2), ambito, false) : null);
     }
 
-    private Object handleCond(List<?> list, EntornoLisp env, int depth) {
+    private NodoLisp handleCond(List<?> list, Ambito ambito, boolean cola) {
+        NodoLisp[] conditions = new NodoLisp[list.size() - 1];
+        NodoLisp[] bodies = new NodoLisp[list.size() - 1];
         for (int i = 1; i < list.size(); i++) {
-            if (!(list.get(i) instanceof List)) throw new ErrorLisp("Error: cláusula de cond debe ser una lista");
+            if (!(list.get(i) instanceof List)) {
+                conditions[i - 1] = new NodoLisp.FormaInvalida(CategoriaError.TIPO, "Error: cláusula de cond debe ser una lista");
+                continue;
+            }
             List<?> clause = (List<?>) list.get(i);
-            if (clause.size() != 2) throw new ErrorLisp("Error: cláusula de cond debe tener exactamente dos elementos");
+            if (clause.size() < 2) {
+                conditions[i - 1] = new NodoLisp.FormaInvalida(CategoriaError.ARGUMENTOS, "Error: cláusula de cond debe tener una prueba y un cuerpo");
+                continue;
+            }
+            if (clause instanceof ConsLisp) clause = Arrays.asList(clause.toArray());
 
-            Object condition = evaluate(clause.get(0), env, depth + 1);
-            if (isTrue(condition)) return evaluate(clause.get(1), env, depth + 1);
+            conditions[i - 1] = compilar(clause.get(0), ambito, false);
+            bodies[i - 1] = compilarSecuencia(clause, 1, ambito, cola);
         }
-        return "nil";
+        return new NodoLisp.Cond(conditions, bodies);
     }
 
-    private Object evaluateAdd(List<?> list, EntornoLisp env, int depth) {
-        List<Object> args = evaluateArguments(list, env, depth + 1);
-        if (args.isEmpty()) return 0.0;
+    private NodoLisp handleProgn(List<?> list, Ambito ambito, boolean cola) {
+        return compilarSecuencia(list, 1, ambito, cola);
+    }
 
-        double result = 0.0;
-        for (Object arg : args) {
-            if (!(arg instanceof Number)) {
-                throw new ErrorLisp("Error: se esperaba un número pero se encontró: " + arg);
+    // (let ((x 1) (y 2) z) cuerpo...): los valores se evalúan en el ámbito exterior
+    private NodoLisp handleLet(List<?> list, Ambito ambito, boolean cola) {
+        if (list.size() < 2 || !(list.get(1) instanceof List)) {
+            throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: let requiere una lista de variables");
+        }
+        List<SimboloLisp> nombres = new ArrayList<>();
+        List<NodoLisp> valores = new ArrayList<>();
+        for (Object enlace : (List<?>) list.get(1)) {
+            SimboloLisp nombre = simbolo(enlace);
+            NodoLisp valor = new NodoLisp.Constante(SimboloLisp.NIL);
+            if (nombre == null && enlace instanceof List && ((List<?>) enlace).size() == 2) {
+                nombre = simbolo(((List<?>) enlace).get(0));
+                valor = compilar(((List<?>) enlace).get(1), ambito, false);
             }
-            result += ((Number) arg).doubleValue();
+            if (nombre == null) throw new ErrorLisp(CategoriaError.OTRO, "Error: enlace de let inválido: " + enlace);
+            if (nombre == SimboloLisp.T || nombre == SimboloLisp.NIL) {
+                throw new ErrorLisp(CategoriaError.OTRO, "Error: no se puede asignar a la constante " + nombre);
+            }
+            nombres.add(nombre);
+            valores.add(valor);
+        }
+
+        Ambito interior = ambito.extender(nombres);
+        int[] posiciones = new int[nombres.size()];
+        for (int i = 0; i < posiciones.length; i++) {
+            posiciones[i] = interior.posicion(nombres.get(i));
         }
-        return simplifyNumber(result);
+        NodoLisp cuerpo = compilarSecuencia(list, 2, interior, cola);
+        return new NodoLisp.Let(posiciones, valores.toArray(new NodoLisp[0]), cuerpo);
     }
 
-    private Object evaluateSubtract(List<?> list, EntornoLisp env, int depth) {
-        List<Object> args = evaluateArguments(list, env, depth + 1);
-        if (args.isEmpty()) throw new ErrorLisp("Error: - requiere al menos un argumento");
+    private NodoLisp handleWhile(List<?> list, Ambito ambito, boolean cola) {
+        if (list.size() < 2) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: while requiere una condición");
+        return new NodoLisp.While(compilar(list.get(1), ambito, false), compilarSecuencia(list, 2, ambito, false));
+    }
 
-        if (args.size() == 1) {
-            if (!(args.get(0) instanceof Number)) {
-                throw new ErrorLisp("Error: se esperaba un número pero se encontró: " + args.get(0));
-            }
-            return simplifyNumber(-((Number) args.get(0)).doubleValue());
+    // (dotimes (i n [resultado]) cuerpo...)
+    private NodoLisp handleDotimes(List<?> list, Ambito ambito, boolean cola) {
+        if (list.size() < 2 || !(list.get(1) instanceof List)) {
+            throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: dotimes requiere (variable cantidad [resultado])");
         }
-
-        double result = ((Number) args.get(0)).doubleValue();
-        for (int i = 1; i < args.size(); i++) {
-            if (!(args.get(i) instanceof Number)) {
-                throw new ErrorLisp("Error: se esperaba un número pero se encontró: " + args.get(i));
-            }
-            result -= ((Number) args.get(i)).doubleValue();
+        List<?> especificacion = Arrays.asList(((List<?>) list.get(1)).toArray());
+        if (especificacion.size() < 2 || especificacion.size() > 3 || simbolo(especificacion.get(0)) == null) {
+            throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: dotimes requiere (variable cantidad [resultado])");
         }
-        return simplifyNumber(result);
+        NodoLisp cantidad = compilar(especificacion.get(1), ambito, false);
+        Ambito interior = ambito.extender(List.of(simbolo(especificacion.get(0))));
+        int posicion = interior.posicion(simbolo(especificacion.get(0)));
+        NodoLisp resultado = especificacion.size() == 3
+                ? compilar(especificacion.get(2), interior, cola)
+                : new NodoLisp.Constante(SimboloLisp.NIL);
+        return new NodoLisp.Dotimes(posicion, cantidad, compilarSecuencia(list, 2, interior, false), resultado);
     }
 
-    private Object evaluateMultiply(List<?> list, EntornoLisp env, int depth) {
-        List<Object> args = evaluateArguments(list, env, depth + 1);
-        if (args.isEmpty()) return 1.0;
+    // Formas list[desde..] evaluadas en orden; el valor es el de la última (nil si no hay)
+    private NodoLisp compilarSecuencia(List<?> list, int desde, Ambito ambito, boolean cola) {
+        int n = list.size() - desde;
+        if (n <= 0) return new NodoLisp.Constante(SimboloLisp.NIL);
+        if (n == 1) return compilar(list.get(desde), ambito, cola);
+        NodoLisp[] formas = new NodoLisp[n];
+        for (int i = 0; i < n; i++) {
+            formas[i] = compilar(list.get(desde + i), ambito, cola && i == n - 1);
+        }
+        return new NodoLisp.Progn(formas);
+    }
 
-        double result = 1.0;
-        for (Object arg : args) {
-            if (!(arg instanceof Number)) {
-                throw new ErrorLisp("Error: se esperaba un número pero se encontró: " + arg);
-            }
-            result *= ((Number) arg).doubleValue();
+    private NodoLisp handlePcall(List<?> list, Ambito ambito, boolean cola) {
+        if (list.size() < 2) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: pcall requiere una función");
+        SimboloLisp funcion = nombreFuncion(list.get(1), "pcall");
+        NodoLisp[] args = new NodoLisp[list.size() - 2];
+        for (int i = 2; i < list.size(); i++) {
+            args[i - 2] = compilar(list.get(i), ambito, false);
         }
-        return simplifyNumber(result);
+        return new NodoLisp.Pcall(this, args, aplicacion(funcion, args.length));
     }
 
-    private Object evaluateDivide(List<?> list, EntornoLisp env, int depth) {
-        List<Object> args = evaluateArguments(list, env, depth + 1);
-        if (args.isEmpty()) throw new ErrorLisp("Error: / requiere al menos un argumento");
+    private NodoLisp handlePmap(List<?> list, Ambito ambito, boolean cola) {
+        if (list.size() != 3) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: pmap requiere exactamente dos argumentos");
+        SimboloLisp funcion = nombreFuncion(list.get(1), "pmap");
+        return new NodoLisp.Pmap(this, compilar(list.get(2), ambito, false), aplicacion(funcion, 1));
+    }
 
-        if (args.size() == 1) {
-            if (!(args.get(0) instanceof Number)) {
-                throw new ErrorLisp("Error: se esperaba un número pero se encontró: " + args.get(0));
-            }
-            double value = ((Number) args.get(0)).doubleValue();
-            if (value == 0) throw new ErrorLisp("Error: división por cero");
-            return simplifyNumber(1.0 / value);
+    private NodoLisp handleProfile(List<?> list, Ambito ambito, boolean cola) {
+        if (list.size() != 2) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: profile requiere exactamente un argumento");
+        return new NodoLisp.Perfilar(this, compilar(list.get(1), ambito, false));
+    }
+
+    // La función de pcall/pmap/memoize se nombra con un símbolo, citado o no
+    private static SimboloLisp nombreFuncion(Object expr, String operador) {
+        if (expr instanceof List && ((List<?>) expr).size() == 2 && simbolo(((List<?>) expr).get(0)) == SimboloLisp.QUOTE) {
+            expr = ((List<?>) expr).get(1);
         }
+        SimboloLisp nombre = simbolo(expr);
+        if (nombre == null) throw new ErrorLisp(CategoriaError.TIPO, "Error: el primer argumento de " + operador + " debe ser el nombre de una función");
+        return nombre;
+    }
 
-        double result = ((Number) args.get(0)).doubleValue();
-        for (int i = 1; i < args.size(); i++) {
-            if (!(args.get(i) instanceof Number)) {
-                throw new ErrorLisp("Error: se esperaba un número pero se encontró: " + args.get(i));
-            }
-            double divisor = ((Number) args.get(i)).doubleValue();
-            if (divisor == 0) throw new ErrorLisp("Error: división por cero");
-            result /= divisor;
+    // (funcion %0 ... %n-1) compilada sobre un marco cuyas posiciones son los argumentos
+    private NodoLisp.CuerpoFuncion aplicacion(SimboloLisp funcion, int aridad) {
+        List<SimboloLisp> params = new ArrayList<>();
+        List<Object> llamada = new ArrayList<>();
+        llamada.add(funcion);
+        for (int i = 0; i < aridad; i++) {
+            SimboloLisp param = SimboloLisp.intern("%" + i);
+            params.add(param);
+            llamada.add(param);
         }
-        return simplifyNumber(result);
+        Ambito ambitoAplicacion = new Ambito(params);
+        return new NodoLisp.CuerpoFuncion(funcion, compilar(llamada, ambitoAplicacion, false), aridad);
     }
 
-    private Object evaluateEqual(List<?> list, EntornoLisp env, int depth) {
-        List<Object> args = evaluateArguments(list, env, depth + 1);
-        if (args.size() != 2) throw new ErrorLisp("Error: equal requiere exactamente dos argumentos");
-        return args.get(0).equals(args.get(1)) ? "t" : "nil";
+    private NodoLisp compileUserCall(SimboloLisp functionName, List<?> list, Ambito ambito, boolean cola) {
+        return new NodoLisp.LlamadaFuncion(this, functionName, compileArguments(list, ambito), cola);
     }
 
-    private Object evaluateLessThan(List<?> list, EntornoLisp env, int depth) {
-        List<Object> args = evaluateArguments(list, env, depth + 1);
-        if (args.size() != 2) throw new ErrorLisp("Error: < requiere exactamente dos argumentos");
-        if (!(args.get(0) instanceof Number)) throw new ErrorLisp("Error: los argumentos de < deben ser números");
-        if (!(args.get(1) instanceof Number)) throw new ErrorLisp("Error: los argumentos de < deben ser números");
+    private void registrarPrimitiva(String nombre, NodoLisp.Primitiva primitiva) {
+        primitivas.put(SimboloLisp.intern(nombre), primitiva);
+        registrar(nombre, primitiva);
+    }
 
-        double a = ((Number) args.get(0)).doubleValue();
-        double b = ((Number) args.get(1)).doubleValue();
-        return a < b ? "t" : "nil";
+    private void registrarOperacion(String nombre, NodoLisp.Primitiva primitiva) {
+        operaciones.add(SimboloLisp.intern(nombre));
+        registrar(nombre, primitiva);
     }
 
-    private Object evaluateGreaterThan(List<?> list, EntornoLisp env, int depth) {
-        List<Object> args = evaluateArguments(list, env, depth + 1);
-        if (args.size() != 2) throw new ErrorLisp("Error: > requiere exactamente dos argumentos");
-        if (!(args.get(0) instanceof Number)) throw new ErrorLisp("Error: los argumentos de > deben ser números");
-        if (!(args.get(1) instanceof Number)) throw new ErrorLisp("Error: los argumentos de > deben ser números");
+    private void registrar(String nombre, NodoLisp.Primitiva primitiva) {
+        SimboloLisp simbolo = SimboloLisp.intern(nombre);
+        operators.put(simbolo, (list, ambito, cola) -> llamadaPrimitiva(simbolo, primitiva, compileArguments(list, ambito)));
+    }
 
-        double a = ((Number) args.get(0)).doubleValue();
-        double b = ((Number) args.get(1)).doubleValue();
-        return a > b ? "t" : "nil";
+    // Primitivas de aridad fija: la forma general solo comprueba la cantidad de argumentos
+    private void registrarPrimitiva1(String nombre, NodoLisp.Primitiva1 primitiva) {
+        registrarPrimitiva(nombre, aridad(nombre, primitiva));
+        especializar(nombre, primitiva);
     }
 
-    private Object evaluateAtom(List<?> list, EntornoLisp env, int depth) {
-        List<Object> args = evaluateArguments(list, env, depth + 1);
-        if (args.size() != 1) throw new ErrorLisp("Error: atom requiere exactamente un argumento");
-        return !(args.get(0) instanceof List) ? "t" : "nil";
+    private void registrarPrimitiva2(String nombre, NodoLisp.Primitiva2 primitiva) {
+        registrarPrimitiva(nombre, aridad(nombre, primitiva));
+        especializar(nombre, primitiva);
     }
 
-    private Object evaluateList(List<?> list, EntornoLisp env, int depth) {
-        List<Object> args = evaluateArguments(list, env, depth + 1);
-        return args;
+    private void especializar(String nombre, NodoLisp.Primitiva1 primitiva) {
+        unarias.put(SimboloLisp.intern(nombre), primitiva);
     }
 
-    private Number simplifyNumber(double value) {
-        if (value == Math.floor(value)) {
-            return (int) value;
-        }
-        return value;
+    private void especializar(String nombre, NodoLisp.Primitiva2 primitiva) {
+        binarias.put(SimboloLisp.intern(nombre), primitiva);
+    }
+
+    private static NodoLisp.Primitiva aridad(String nombre, NodoLisp.Primitiva1 primitiva) {
+        return args -> {
+            if (args.length != 1) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: " + nombre + " requiere exactamente un argumento");
+            return primitiva.aplicar(args[0]);
+        };
+    }
+
+    private static NodoLisp.Primitiva aridad(String nombre, NodoLisp.Primitiva2 primitiva) {
+        return args -> {
+            if (args.length != 2) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: " + nombre + " requiere exactamente dos argumentos");
+            return primitiva.aplicar(args[0], args[1]);
+        };
     }
 
-    private boolean isTrue(Object value) {
-        return value != null && !"nil".equals(value);
+    private NodoLisp llamadaPrimitiva(SimboloLisp nombre, NodoLisp.Primitiva primitiva, NodoLisp[] args) {
+        if (args.length == 1 && unarias.containsKey(nombre)) {
+            return new NodoLisp.LlamadaPrimitiva1(unarias.get(nombre), args[0]);
+        }
+        if (args.length == 2 && binarias.containsKey(nombre)) {
+            return new NodoLisp.LlamadaPrimitiva2(binarias.get(nombre), args[0], args[1]);
+        }
+        return new NodoLisp.LlamadaPrimitiva(primitiva, args);
     }
 
-    private List<Object> evaluateArguments(List<?> list, EntornoLisp env, int depth) {
-        List<Object> evaluatedArgs = new ArrayList<>();
+    private NodoLisp[] compileArguments(List<?> list, Ambito ambito) {
+        NodoLisp[] args = new NodoLisp[list.size() - 1];
         for (int i = 1; i < list.size(); i++) {
-            evaluatedArgs.add(evaluate(list.get(i), env, depth + 1));
+            args[i - 1] = compilar(list.get(i), ambito, false);
         }
-        return evaluatedArgs;
+        return args;
+    }
+
+    private Object evaluateAdd(Object[] args) {
+        return NumerosLisp.sumar(args);
     }
 
-    private Object applyUserFunction(String functionName, List<?> list, EntornoLisp env, int depth) {
-        if (!env.existeFuncion(functionName)) {
-            throw new ErrorLisp("Error: función " + functionName + " no definida");
+    private Object evaluateSubtract(Object[] args) {
+        if (args.length == 0) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: - requiere al menos un argumento");
+
+        if (args.length == 1) {
+            return NumerosLisp.negar(NumerosLisp.numero(args[0]));
+        }
+
+        Number result = NumerosLisp.numero(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            result = NumerosLisp.restar(result, NumerosLisp.numero(args[i]));
         }
+        return result;
+    }
+
+    private Object evaluateMultiply(Object[] args) {
+        return NumerosLisp.multiplicar(args);
+    }
 
-        EntornoLisp.DefinicionFuncion function = env.obtenerFuncion(functionName);
-        List<String> params = function.getParametros();
-        Object body = function.getCuerpo();
+    private Object evaluateDivide(Object[] args) {
+        if (args.length == 0) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: / requiere al menos un argumento");
 
-        if (list.size() - 1 != params.size()) {
-            throw new ErrorLisp("Error: se esperaban " + params.size() +
-                              " argumentos, pero se recibieron " + (list.size() - 1));
+        if (args.length == 1) {
+            return NumerosLisp.dividir(1, NumerosLisp.numero(args[0]));
         }
 
-        // Crear un nuevo entorno para la ejecución de la función
-        EntornoLisp localEnv = new EntornoLisp(env);
+        Number result = NumerosLisp.numero(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            result = NumerosLisp.dividir(result, NumerosLisp.numero(args[i]));
+        }
+        return result;
+    }
+
+    private Object evaluateEqual(Object a, Object b) {
+        return a.equals(b) ? SimboloLisp.T : SimboloLisp.NIL;
+    }
 
-        // Evaluar argumentos y asignarlos a los parámetros
-        for (int i = 0; i < params.size(); i++) {
-            Object argValue = evaluate(list.get(i + 1), env, depth + 1);
-            localEnv.asignarVariable(params.get(i), argValue);
+    private Object evaluateNumericEqual(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            return NumerosLisp.comparar((Number) a, (Number) b) == 0 ? SimboloLisp.T : SimboloLisp.NIL;
         }
+        return a.equals(b) ? SimboloLisp.T : SimboloLisp.NIL;
+    }
+
+    // <, >, <= y >=
+    private static int comparar(Object a, Object b, String operador) {
+        if (!(a instanceof Number)) throw new ErrorLisp(CategoriaError.TIPO, "Error: los argumentos de " + operador + " deben ser números");
+        if (!(b instanceof Number)) throw new ErrorLisp(CategoriaError.TIPO, "Error: los argumentos de " + operador + " deben ser números");
+        return NumerosLisp.comparar((Number) a, (Number) b);
+    }
+
+    private Object evaluateAtom(Object value) {
+        return !(value instanceof List) ? SimboloLisp.T : SimboloLisp.NIL;
+    }
+
+    private Object evaluateList(Object[] args, ContextoEvaluacion ctx) {
+        if (ctx != null) ctx.reservar((long) ConsLisp.BYTES_CELDA * args.length);
+        return ConsLisp.de(args);
+    }
+
+    private Object evaluateCar(Object value) {
+        ConsLisp list = lista(value, "car");
+        return list.esVacia() ? SimboloLisp.NIL : list.car();
+    }
+
+    private Object evaluateCdr(Object value) {
+        return lista(value, "cdr").cdr();
+    }
+
+    private Object evaluateCons(Object car, Object cdr) {
+        return ConsLisp.cons(car, lista(cdr, "cons"));
+    }
+
+    private Object evaluateNull(Object value) {
+        boolean empty = value == SimboloLisp.NIL || (value instanceof List && ((List<?>) value).isEmpty());
+        return empty ? SimboloLisp.T : SimboloLisp.NIL;
+    }
+
+    private Object evaluateLength(Object value) {
+        if (value instanceof VectorLisp) return ((VectorLisp) value).longitud();
+        return lista(value, "length").size();
+    }
+
+    private Object evaluateVector(Object[] args, ContextoEvaluacion ctx) {
+        if (ctx != null) ctx.reservar(VectorLisp.bytes(args.length));
+        return new VectorLisp.General(args.clone());
+    }
+
+    // (make-array n [tipo [inicial]]), tipo t, long o double
+    private Object evaluateMakeArray(Object[] args, ContextoEvaluacion ctx) {
+        if (args.length < 1 || args.length > 3) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: make-array requiere entre uno y tres argumentos");
+        SimboloLisp tipo = args.length > 1 ? simbolo(args[1]) : SimboloLisp.T;
+        if (tipo == null) throw new ErrorLisp(CategoriaError.TIPO, "Error: el tipo de make-array debe ser t, long o double");
+        int n = entero(args[0], "make-array");
+        if (ctx != null) ctx.reservar(VectorLisp.bytes(n));
+        return VectorLisp.crear(n, tipo, args.length > 2 ? args[2] : null);
+    }
+
+    private Object evaluateAref(Object vector, Object indice) {
+        return vector(vector, "aref").obtener(entero(indice, "aref"));
+    }
+
+    private Object evaluateAset(Object[] args) {
+        if (args.length != 3) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: aset requiere exactamente tres argumentos");
+        vector(args[0], "aset").asignar(entero(args[1], "aset"), args[2]);
+        return args[2];
+    }
+
+    private Object evaluateMakeHashTable(Object[] args) {
+        if (args.length != 0) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: make-hash-table no admite argumentos");
+        return new TablaLisp();
+    }
+
+    // (gethash clave tabla [defecto])
+    private Object evaluateGethash(Object[] args) {
+        if (args.length < 2 || args.length > 3) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: gethash requiere dos o tres argumentos");
+        return tabla(args[1], "gethash").obtener(args[0], args.length == 3 ? args[2] : SimboloLisp.NIL);
+    }
+
+    // (puthash clave valor tabla): devuelve el valor
+    private Object evaluatePuthash(Object[] args) {
+        if (args.length != 3) throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: puthash requiere exactamente tres argumentos");
+        return tabla(args[2], "puthash").poner(args[0], args[1]);
+    }
+
+    private Object evaluateRemhash(Object clave, Object tabla) {
+        return tabla(tabla, "remhash").quitar(clave) ? SimboloLisp.T : SimboloLisp.NIL;
+    }
+
+    private Object evaluateHashTableCount(Object tabla) {
+        return tabla(tabla, "hash-table-count").cantidad();
+    }
+
+    private static VectorLisp vector(Object value, String operador) {
+        if (value instanceof VectorLisp) return (VectorLisp) value;
+        throw new ErrorLisp(CategoriaError.TIPO, "Error: " + operador + " requiere un vector pero se encontró: " + value);
+    }
+
+    private static TablaLisp tabla(Object value, String operador) {
+        if (value instanceof TablaLisp) return (TablaLisp) value;
+        throw new ErrorLisp(CategoriaError.TIPO, "Error: " + operador + " requiere una tabla hash pero se encontró: " + value);
+    }
+
+    // Índices y tamaños: los vectores no pasan de Integer.MAX_VALUE elementos
+    private static int entero(Object value, String operador) {
+        if (!(value instanceof Integer)) {
+            throw new ErrorLisp(CategoriaError.TIPO, "Error: " + operador + " requiere un entero pero se encontró: " + value);
+        }
+        return (Integer) value;
+    }
+
+    // nil se acepta como lista vacía
+    static ConsLisp lista(Object value, String operador) {
+        if (value instanceof List) return ConsLisp.desde((List<?>) value);
+        if (value == SimboloLisp.NIL) return ConsLisp.VACIA;
+        throw new ErrorLisp(CategoriaError.TIPO, "Error: " + operador + " requiere una lista pero se encontró: " + value);
+    }
 
-        // Evaluar el cuerpo de la función en el entorno local
-        return evaluate(body, localEnv, depth + 1);
+    // nil y la lista vacía son falsos
+    static boolean isTrue(Object value) {
+        return value != null && value != SimboloLisp.NIL && value != ConsLisp.VACIA;
     }
-}
\ No newline at end of file
+}
@@ -2,16 +2,37 @@ package Interprete;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
+@RunWith(Parameterized.class)
 public class LispEvaluatorTest {
 
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> motores() {
+        return Arrays.asList(new Object[][] {
+            { LispEvaluator.Motor.RECURSIVO },
+            { LispEvaluator.Motor.PILA }
+        });
+    }
+
+    private final LispEvaluator.Motor motor;
+
+    public LispEvaluatorTest(LispEvaluator.Motor motor) {
+        this.motor = motor;
+    }
+
     @Test
     public void testEvaluateArithmetic() {
-        LispEvaluator evaluator = new LispEvaluator();
+        LispEvaluator evaluator = new LispEvaluator(motor);
         EntornoLisp env = new EntornoLisp();
         
         Object result = evaluator.evaluate(List.of("+", 1, 2), env);
@@ -20,7 +41,7 @@ public class LispEvaluatorTest {
 
     @Test
     public void testEvaluateSetq() {
-        LispEvaluator evaluator = new LispEvaluator();
+        LispEvaluator evaluator = new LispEvaluator(motor);
         EntornoLisp env = new EntornoLisp();
         
         evaluator.evaluate(List.of("setq", "x", 10), env);
@@ -29,7 +50,7 @@ public class LispEvaluatorTest {
 
     @Test
     public void testEvaluateDefun() {
-        LispEvaluator evaluator = new LispEvaluator();
+        LispEvaluator evaluator = new LispEvaluator(motor);
         EntornoLisp env = new EntornoLisp();
         
         evaluator.evaluate(
@@ -38,4 +59,29 @@ public class LispEvaluatorTest {
         );
         assertTrue(env.existeFuncion("suma"));
     }
+
+    @Test
+    public void testParametersAreLexical() {
+        LispEvaluator evaluator = new LispEvaluator(motor);
+        EntornoLisp env = new EntornoLisp();
+
+        evaluator.evaluate(List.of("setq", "x", 1), env);
+        evaluator.evaluate(List.of("defun", "leer", List.of(), "x"), env);
+        evaluator.evaluate(List.of("defun", "llamar", List.of("x"), List.of("leer")), env);
+        assertEquals(1, evaluator.evaluate(List.of("llamar", 5), env));
+    }
+
+    @Test
+    public void testDefunArity() {
+        LispProcessor processor = new LispProcessor(motor);
+        for (String forma : new String[] { "(defun)", "(defun f)", "(defun-memo)" }) {
+            try {
+                processor.procesar(forma);
+                fail("Se esperaba un error en " + forma);
+            } catch (ErrorLisp e) {
+                assertTrue(forma, e.getMessage().contains("requiere exactamente tres argumentos"));
+                assertEquals(forma, MetricasLisp.CategoriaError.ARGUMENTOS, e.getCategoria());
+            }
+        }
+    }
 }
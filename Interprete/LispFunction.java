@@ -2,6 +2,8 @@ package Interprete;
 
 import java.util.List;
 
+import Interprete.MetricasLisp.CategoriaError;
+
 public class LispFunction {
     private final List<String> parametros;
     private final Object cuerpo;
@@ -14,7 +16,7 @@ public class LispFunction {
     public Object apply(List<?> args, EntornoLisp env) {
         // Verificar que el número de argumentos coincida con el número de parámetros
         if (args.size() - 1 != parametros.size()) {
-            throw new ErrorLisp("Error: se esperaban " + parametros.size() + 
+            throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: se esperaban " + parametros.size() + 
                               " argumentos, pero se recibieron " + (args.size() - 1));
         }
         
@@ -1,29 +1,39 @@
 package Interprete;
 
-import java.util.ArrayList;
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
 
+import Interprete.MetricasLisp.CategoriaError;
+
 public class LispParser {
 
+    private final TokenizadorLisp tokenizer = new TokenizadorLisp();
+    private final TokenizadorLisp.Tokens tokensReutilizados = new TokenizadorLisp.Tokens();
+
+    private TokenizadorLisp.Tokens tokens;
     private int position;
 
+    // Elementos de las listas abiertas; cada lista ocupa un tramo al final
+    private Object[] elementos = new Object[64];
+    private int tope;
+
     public Object parse(String input) {
-        if (input == null || input.trim().isEmpty()) {
+        if (input == null || input.isEmpty()) {
             return null;
         }
 
-        TokenizadorLisp tokenizer = new TokenizadorLisp();
-        List<String> tokens = tokenizer.analizar(input);
+        char[] fuente = input.toCharArray();
+        TokenizadorLisp.Tokens lista = tokenizer.tokenizar(fuente, 0, fuente.length, tokensReutilizados);
 
-        if (tokens.isEmpty()) {
+        if (lista.cantidad() == 0) {
             return null;
         }
 
-        position = 0;
-        Object result = parseExpression(tokens);
+        Object result = parse(lista);
 
-        if (position < tokens.size()) {
-            throw new RuntimeException("Error: paréntesis extra detectado");
+        if (position < lista.cantidad()) {
+            throw new ErrorLisp(CategoriaError.SINTAXIS, "Error: paréntesis extra detectado");
         }
 
         return result;
@@ -34,84 +44,110 @@ public class LispParser {
             return null;
         }
 
+        char[] fuente = String.join(" ", tokens).toCharArray();
+        return parse(tokenizer.tokenizar(fuente, 0, fuente.length, tokensReutilizados));
+    }
+
+    // Analiza la primera expresión; como parse(List), ignora lo que venga después
+    public Object parse(TokenizadorLisp.Tokens lista) {
+        if (lista.cantidad() == 0) {
+            return null;
+        }
+
+        tokens = lista;
         position = 0;
-        return parseExpression(tokens);
+        tope = 0;
+        try {
+            return parseExpression();
+        } finally {
+            tokens = null;
+            Arrays.fill(elementos, 0, tope, null);
+        }
     }
 
-    private Object parseExpression(List<String> tokens) {
-        if (position >= tokens.size()) {
-            throw new RuntimeException("Fin inesperado de entrada");
+    private Object parseExpression() {
+        if (position >= tokens.cantidad()) {
+            throw new ErrorLisp(CategoriaError.SINTAXIS, "Fin inesperado de entrada");
         }
 
-        String token = tokens.get(position++);
+        int actual = position++;
+        byte tipo = tokens.tipo(actual);
 
-        if (token.equals("(")) {
-            return parseList(tokens);
+        if (tipo == TokenizadorLisp.ABRE) {
+            return parseList();
         }
 
-        if (token.equals("'")) {
-            List<Object> quoteList = new ArrayList<>();
-            quoteList.add("quote");
-            quoteList.add(parseExpression(tokens));
-            return quoteList;
+        if (tipo == TokenizadorLisp.COMILLA) {
+            return ConsLisp.de(SimboloLisp.QUOTE, parseExpression());
         }
 
-        if (isNumeric(token)) {
-            return parseNumber(token);
+        if (tipo == TokenizadorLisp.CIERRA) {
+            // Igual que antes: un ')' suelto se lee como símbolo
+            return SimboloLisp.intern(")");
         }
 
-        return token;
+        return atomo(tokens.fuente(), tokens.inicio(actual), tokens.fin(actual), tipo);
     }
 
-    private List<Object> parseList(List<String> tokens) {
-        List<Object> elements = new ArrayList<>();
-
-        while (position < tokens.size()) {
-            String currentToken = tokens.get(position);
+    private ConsLisp parseList() {
+        int inicio = tope;
 
-            if (currentToken.equals(")")) {
+        while (position < tokens.cantidad()) {
+            if (tokens.tipo(position) == TokenizadorLisp.CIERRA) {
                 position++;
-                return elements;
+                ConsLisp lista = ConsLisp.de(elementos, inicio, tope);
+                Arrays.fill(elementos, inicio, tope, null);
+                tope = inicio;
+                return lista;
             }
 
-            elements.add(parseExpression(tokens));
+            Object elemento = parseExpression();
+            if (tope == elementos.length) {
+                elementos = Arrays.copyOf(elementos, tope * 2);
+            }
+            elementos[tope++] = elemento;
         }
 
-        throw new RuntimeException("Se esperaba un paréntesis de cierre");
+        throw new ErrorLisp(CategoriaError.SINTAXIS, "Se esperaba un paréntesis de cierre");
     }
 
-    private Number parseNumber(String token) {
-        try {
-            return Integer.parseInt(token);
-        } catch (NumberFormatException e) {
-            try {
-                return Double.parseDouble(token);
-            } catch (NumberFormatException e2) {
-                throw new RuntimeException("No se puede convertir '" + token + "' a un número");
-            }
+    // Valor de un átomo construido directamente desde la fuente
+    static Object atomo(char[] fuente, int desde, int hasta, byte tipo) {
+        if (tipo == TokenizadorLisp.ENTERO) {
+            return entero(fuente, desde, hasta);
         }
+        if (tipo == TokenizadorLisp.DECIMAL) {
+            return Double.parseDouble(new String(fuente, desde, hasta - desde));
+        }
+        return SimboloLisp.intern(fuente, desde, hasta);
     }
 
-    private boolean isNumeric(String token) {
-        try {
-            Double.parseDouble(token);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
+    private static Number entero(char[] fuente, int desde, int hasta) {
+        boolean negativo = fuente[desde] == '-';
+        int i = fuente[desde] == '-' || fuente[desde] == '+' ? desde + 1 : desde;
+
+        // Hasta 18 dígitos caben siempre en un long
+        if (hasta - i > 18) {
+            return NumerosLisp.entero(new BigInteger(new String(fuente, desde, hasta - desde)));
+        }
+        long valor = 0;
+        for (; i < hasta; i++) {
+            valor = valor * 10 + (fuente[i] - '0');
         }
+        return NumerosLisp.entero(negativo ? -valor : valor);
     }
 
     public String printResult(Object expr) {
         if (expr instanceof List) {
-            @SuppressWarnings("unchecked")
-            List<Object> list = (List<Object>) expr;
             StringBuilder sb = new StringBuilder("[");
+            boolean first = true;
 
-            for (int i = 0; i < list.size(); i++) {
-                sb.append(printResult(list.get(i)));
-                if (i < list.size() - 1) {
+            for (Object element : (List<?>) expr) {
+                if (!first) {
                     sb.append(" ");
                 }
+                sb.append(printResult(element));
+                first = false;
             }
 
             sb.append("]");
@@ -1,8 +1,10 @@
 package Interprete;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.math.BigInteger;
 import java.util.List;
 
 import org.junit.Test;
@@ -15,7 +17,7 @@ public class LispParserTest {
         Object result = parser.parse("(+ 1 2)");
         assertTrue(result instanceof List);
         List<?> list = (List<?>) result;
-        assertEquals("+", list.get(0));
+        assertEquals(SimboloLisp.intern("+"), list.get(0));
         assertEquals(1, list.get(1));
         assertEquals(2, list.get(2));
     }
@@ -26,10 +28,10 @@ public class LispParserTest {
         Object result = parser.parse("(* (+ 1 2) 3)");
         assertTrue(result instanceof List);
         List<?> outerList = (List<?>) result;
-        assertEquals("*", outerList.get(0));
+        assertEquals(SimboloLisp.intern("*"), outerList.get(0));
         
         List<?> innerList = (List<?>) outerList.get(1);
-        assertEquals("+", innerList.get(0));
+        assertEquals(SimboloLisp.intern("+"), innerList.get(0));
         assertEquals(1, innerList.get(1));
         assertEquals(2, innerList.get(2));
         
@@ -42,7 +44,21 @@ public class LispParserTest {
         Object result = parser.parse("'(1 2 3)");
         assertTrue(result instanceof List);
         List<?> list = (List<?>) result;
-        assertEquals("quote", list.get(0));
+        assertSame(SimboloLisp.QUOTE, list.get(0));
         assertTrue(list.get(1) instanceof List);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParseNumbersWithoutExceptions() {
+        LispParser parser = new LispParser();
+        List<?> list = (List<?>) parser.parse("(-5 +5 3000000000 123456789012345678901 2.5 1e3 1+ -)");
+        assertEquals(-5, list.get(0));
+        assertEquals(5, list.get(1));
+        assertEquals(3000000000L, list.get(2));
+        assertEquals(new BigInteger("123456789012345678901"), list.get(3));
+        assertEquals(2.5, list.get(4));
+        assertEquals(1000.0, list.get(5));
+        assertSame(SimboloLisp.intern("1+"), list.get(6));
+        assertSame(SimboloLisp.intern("-"), list.get(7));
+    }
+}
@@ -1,26 +1,47 @@
 package Interprete;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Intérprete con un programa cargado. procesar/evaluar trabajan sobre el
+ * entorno global; para usar el mismo programa desde varios hilos, cada
+ * hilo abre su propia sesión con nuevaSesion().
+ */
 public class LispProcessor {
 
-    private final TokenizadorLisp lexicAnalyzer;
-    private final LispParser syntaxAnalyzer;
     private final LispEvaluator evaluator;
     private final EntornoLisp globalContext;
+    private final SesionLisp principal;
+    private final MetricasLisp metricas;
 
     public LispProcessor() {
-        this.lexicAnalyzer = new TokenizadorLisp();
-        this.syntaxAnalyzer = new LispParser();
-        this.evaluator = new LispEvaluator();
+        this(LispEvaluator.Motor.RECURSIVO);
+    }
+
+    public LispProcessor(LispEvaluator.Motor motor) {
+        this.evaluator = new LispEvaluator(motor);
         this.globalContext = new EntornoLisp();
+        this.metricas = new MetricasLisp(globalContext, evaluator);
+        this.principal = new SesionLisp(evaluator, globalContext, metricas);
 
         configurarContextoInicial();
+        // Las métricas empiezan después del preludio
+        metricas.reiniciar();
     }
 
     private void configurarContextoInicial() {
-        globalContext.asignarVariable("verdadero", "t");
-        globalContext.asignarVariable("falso", "nil");
+        globalContext.asignarVariable("verdadero", SimboloLisp.T);
+        globalContext.asignarVariable("falso", SimboloLisp.NIL);
         
         // Añadir una implementación iterativa de factorial
         // Esta versión evita la recursión profunda que causa desbordamiento de pila
@@ -42,18 +63,134 @@ public class LispProcessor {
         }
     }
 
-    public Object procesar(String expresion) {
-        try {
-            List<String> tokens = lexicAnalyzer.analizar(expresion);
+    public void setCapacidadPila(int capacidad) {
+        evaluator.setCapacidadPila(capacidad);
+    }
 
-            if (tokens.isEmpty()) {
-                return null;
+    // Compilación a bytecode de las funciones muy usadas (ver CompiladorLisp); 0 la desactiva
+    public void setUmbralCompilacion(int umbral) {
+        evaluator.setUmbralCompilacion(umbral);
+    }
+
+    // Optimizador de formas (ver OptimizadorLisp); afecta a todas las sesiones
+    public void setOptimizar(boolean optimizar) {
+        evaluator.setOptimizar(optimizar);
+    }
+
+    // Evalúa todas las formas de un archivo; se detiene en el primer error
+    public void cargarFuente(Path fuente) throws IOException {
+        try (Reader archivo = Files.newBufferedReader(fuente, StandardCharsets.UTF_8);
+             LectorLisp lector = new LectorLisp(archivo)) {
+            for (Object forma = lector.leer(); forma != LectorLisp.FIN; forma = lector.leer()) {
+                evaluar(forma);
             }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-            Object estructura = syntaxAnalyzer.parse(tokens);
-            return evaluator.evaluate(estructura, globalContext);
-        } catch (RuntimeException e) {
-            throw new ErrorLisp("Error en la evaluación: " + e.getMessage(), e);
+    // Variables y funciones globales en formato binario (ver ImagenLisp)
+    public void guardarImagen(Path destino) throws IOException {
+        ImagenLisp.guardar(globalContext, destino, 0);
+    }
+
+    public void cargarImagen(Path origen) throws IOException {
+        ImagenLisp.cargar(globalContext, origen, 0);
+    }
+
+    /**
+     * Carga un preludio desde su imagen si la imagen es de este formato y
+     * de la fuente actual. Si no, carga la fuente y guarda la imagen para
+     * el próximo arranque. Devuelve true si se usó la imagen.
+     */
+    public boolean cargarPreludio(Path fuente, Path imagen) throws IOException {
+        long huella = ImagenLisp.huella(fuente);
+        if (Files.exists(imagen)) {
+            try {
+                ImagenLisp.cargar(globalContext, imagen, huella);
+                return true;
+            } catch (IOException e) {
+                // Imagen vieja o dañada: se vuelve a generar desde la fuente
+            }
         }
+        cargarFuente(fuente);
+        try {
+            ImagenLisp.guardar(globalContext, imagen, huella);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("No se pudo guardar la imagen " + imagen + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    // Métricas de este procesador y de todas sus sesiones
+    public MetricasLisp getMetricas() {
+        return metricas;
+    }
+
+    /**
+     * Publica las métricas en el servidor de MBeans de la plataforma como
+     * Interprete:type=LispProcessor,name=nombre.
+     */
+    public ObjectName registrarMBean(String nombre) throws JMException {
+        ObjectName objeto = new ObjectName("Interprete:type=LispProcessor,name=" + ObjectName.quote(nombre));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metricas, objeto);
+        return objeto;
+    }
+
+    // Perfil de la sesión principal; las demás sesiones se perfilan por separado
+    public void setPerfilado(boolean perfilado) {
+        principal.setPerfilado(perfilado);
+    }
+
+    public PerfilLisp getPerfil() {
+        return principal.getPerfil();
+    }
+
+    public List<PerfilLisp> getPerfilesProfile() {
+        return principal.getPerfilesProfile();
+    }
+
+    // Caché de una función memoizada con sus estadísticas; null si no lo está
+    public MemoLisp obtenerMemo(String funcion) {
+        return principal.getEntorno().obtenerMemo(funcion);
+    }
+
+    /**
+     * Sesión con variables propias que ve las variables globales de este
+     * procesador y comparte sus funciones, incluidas las que defina después.
+     */
+    public SesionLisp nuevaSesion() {
+        return new SesionLisp(evaluator, globalContext.nuevaSesion(), metricas);
+    }
+
+    /**
+     * Sesión que además tiene sus propias funciones: ve las variables y
+     * funciones de este procesador (p. ej. un preludio cargado) pero lo que
+     * defina queda solo en ella.
+     */
+    public SesionLisp nuevaSesionAislada() {
+        return new SesionLisp(evaluator, new EntornoLisp(globalContext), metricas);
+    }
+
+    public Object procesar(String expresion) {
+        return principal.procesar(expresion);
+    }
+
+    public Object procesar(String expresion, GobernadorLisp gobernador) {
+        return principal.procesar(expresion, gobernador);
+    }
+
+    // Evalúa una forma ya leída (p. ej. por LectorLisp) sin volver a tokenizarla
+    public Object evaluar(Object forma) {
+        return principal.evaluar(forma);
+    }
+
+    public Object evaluar(Object forma, GobernadorLisp gobernador) {
+        return principal.evaluar(forma, gobernador);
+    }
+
+    // Límites de cada procesar/evaluar de la sesión principal (ver GobernadorLisp)
+    public void setLimites(LimitesLisp limites) {
+        principal.setLimites(limites);
     }
-}
\ No newline at end of file
+}
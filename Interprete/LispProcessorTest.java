@@ -1,23 +1,191 @@
 package Interprete;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
 
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
+@RunWith(Parameterized.class)
 public class LispProcessorTest {
 
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> motores() {
+        return Arrays.asList(new Object[][] {
+            { LispEvaluator.Motor.RECURSIVO },
+            { LispEvaluator.Motor.PILA }
+        });
+    }
+
+    private final LispEvaluator.Motor motor;
+
+    public LispProcessorTest(LispEvaluator.Motor motor) {
+        this.motor = motor;
+    }
+
     @Test
     public void testProcessSimpleExpression() {
-        LispProcessor processor = new LispProcessor();
+        LispProcessor processor = new LispProcessor(motor);
         Object result = processor.procesar("(+ 1 2)");
         assertEquals(3, result);
     }
 
     @Test
     public void testProcessUserDefinedFunction() {
-        LispProcessor processor = new LispProcessor();
+        LispProcessor processor = new LispProcessor(motor);
         processor.procesar("(defun suma (a b) (+ a b))");
         Object result = processor.procesar("(suma 3 4)");
         assertEquals(7, result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTailRecursionRunsInConstantStack() {
+        LispProcessor processor = new LispProcessor(motor);
+        processor.procesar("(defun cuenta (n acc) (cond ((equal n 0) acc) (t (cuenta (- n 1) (+ acc 1)))))");
+        Object result = processor.procesar("(cuenta 1000000 0)");
+        assertEquals(1000000, result);
+    }
+
+    @Test
+    public void testPcallAndPmap() {
+        LispProcessor processor = new LispProcessor(motor);
+        processor.procesar("(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))");
+        processor.procesar("(defun escala (l k) (pcall list (pmap fib l) (* k 2)))");
+
+        assertEquals(288, processor.procesar("(pcall + (fib 10) (fib 11) (fib 12))"));
+        assertEquals(Arrays.asList(1, 1, 2, 3, 5, 8, 13, 21, 34, 55),
+                     processor.procesar("(pmap fib '(1 2 3 4 5 6 7 8 9 10))"));
+        assertEquals(Arrays.asList(1, 3), processor.procesar("(pmap 'car '((1 2) (3 4)))"));
+        assertEquals(Arrays.asList(Arrays.asList(1, 1, 2), 10), processor.procesar("(escala '(1 2 3) 5)"));
+        assertEquals(ConsLisp.VACIA, processor.procesar("(pmap fib nil)"));
+    }
+
+    @Test
+    public void testParallelErrorsAreDeterministic() {
+        LispProcessor processor = new LispProcessor(motor);
+        processor.procesar("(defun falla (n) (cond ((equal n 3) (car 3)) ((equal n 7) (car 7)) (t n)))");
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                processor.procesar("(pmap falla '(1 2 3 4 5 6 7 8 9 10))");
+                fail("Se esperaba un error");
+            } catch (ErrorLisp e) {
+                assertTrue(e.getMessage(), e.getMessage().endsWith("se encontró: 3"));
+            }
+            try {
+                processor.procesar("(pcall + 1 (falla 7) (falla 3))");
+                fail("Se esperaba un error");
+            } catch (ErrorLisp e) {
+                assertTrue(e.getMessage(), e.getMessage().endsWith("se encontró: 7"));
+            }
+        }
+    }
+
+    @Test
+    public void testRedefinitionTakesEffectAtCachedCallSites() {
+        LispProcessor processor = new LispProcessor(motor);
+        processor.procesar("(defun f (x) (+ x 1))");
+        processor.procesar("(defun g (x) (f x))");
+        assertEquals(2, processor.procesar("(g 1)"));
+        assertEquals(2, processor.procesar("(g 1)"));
+
+        processor.procesar("(defun f (x) (* x 10))");
+        assertEquals(10, processor.procesar("(g 1)"));
+
+        processor.procesar("(defun f (x y) x)");
+        try {
+            processor.procesar("(g 1)");
+            fail("Se esperaba un error de aridad");
+        } catch (ErrorLisp e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("se esperaban 2 argumentos"));
+        }
+    }
+
+    @Test
+    public void testFactorialPreludeUsesWhile() {
+        LispProcessor processor = new LispProcessor(motor);
+        assertEquals(1, processor.procesar("(factorial 0)"));
+        assertEquals(120, processor.procesar("(factorial 5)"));
+        assertEquals(2432902008176640000L, processor.procesar("(factorial 20)"));
+        assertEquals(0, processor.procesar("(factorial -3)"));
+    }
+
+    @Test
+    public void testLetPrognAndMultiFormCond() {
+        LispProcessor processor = new LispProcessor(motor);
+        processor.procesar("(setq x 1)");
+        assertEquals(Arrays.asList(10, 1), processor.procesar("(let ((x 10) (y x)) (list x y))"));
+        assertEquals(1, processor.procesar("x"));
+        assertEquals(SimboloLisp.NIL, processor.procesar("(let (z) z)"));
+
+        processor.procesar("(defun f (x) (let ((x (* x 2)) (y x)) (setq y (+ y 1)) (list x y)))");
+        assertEquals(Arrays.asList(6, 4), processor.procesar("(f 3)"));
+        assertEquals(3, processor.procesar("(progn (setq a 1) (setq b 2) (+ a b))"));
+        assertEquals(5, processor.procesar("(cond ((>= a 1) (setq a 4) (+ a 1)) (t 0))"));
+        assertEquals(SimboloLisp.T, processor.procesar("(<= 2 2)"));
+        assertEquals(SimboloLisp.NIL, processor.procesar("(>= 1 2.5)"));
+    }
+
+    @Test
+    public void testLoopsRunInConstantDepth() {
+        LispProcessor processor = new LispProcessor(motor);
+        processor.procesar("(defun suma (n) (let ((s 0)) (dotimes (i n s) (setq s (+ s i)))))");
+        assertEquals(499999500000L, processor.procesar("(suma 1000000)"));
+        assertEquals(0, processor.procesar("(suma 0)"));
+
+        processor.procesar("(defun uno (x) 1)");
+        processor.procesar("(setq i 0)");
+        processor.procesar("(while (< i 100000) (setq i (+ i (uno i))))");
+        assertEquals(100000, processor.procesar("i"));
+        assertEquals(3, processor.procesar("(dotimes (k 3 k))"));
+
+        // La última forma de let, progn y cond sigue en posición de cola
+        processor.procesar("(defun cuenta (n) (let ((m (- n 1))) (cond ((< m 0) 'fin) (t (setq n m) (progn n (cuenta m))))))");
+        assertEquals(SimboloLisp.intern("fin"), processor.procesar("(cuenta 100000)"));
+    }
+
+    @Test
+    public void testOneAndTwoArgumentPrimitivesMatchVariadicForms() {
+        LispProcessor processor = new LispProcessor(motor);
+        assertEquals(-5, processor.procesar("(- 5)"));
+        assertEquals(0.25, processor.procesar("(/ 4)"));
+        assertEquals(7, processor.procesar("(+ 7)"));
+        assertEquals(2.5, processor.procesar("(* 2.5)"));
+        assertEquals(4294967296L, processor.procesar("(* 65536 65536)"));
+        assertEquals(new BigInteger("9223372036854775808"), processor.procesar("(+ 9223372036854775807 1)"));
+        assertEquals(10, processor.procesar("(+ 1 2 3 4)"));
+        assertEquals(SimboloLisp.T, processor.procesar("(= 2 2.0)"));
+        assertEquals(Arrays.asList(1, 2), processor.procesar("(cons 1 (cdr '(0 2)))"));
+
+        String[][] errores = {
+            {"(car 1 2)", "car requiere exactamente un argumento"},
+            {"(< 1)", "< requiere exactamente dos argumentos"},
+            {"(< 'a 1)", "los argumentos de < deben ser números"},
+            {"(+ 1 'a)", "se esperaba un número"},
+            {"(/ 1 0)", "división por cero"},
+            {"(aref 1 0)", "aref requiere un vector"},
+        };
+        for (String[] error : errores) {
+            try {
+                processor.procesar(error[0]);
+                fail("Se esperaba un error en " + error[0]);
+            } catch (ErrorLisp e) {
+                String mensaje = e.getMessage() + (e.getCause() != null ? " " + e.getCause().getMessage() : "");
+                assertTrue(mensaje, mensaje.contains(error[1]));
+            }
+        }
+
+        if (motor == LispEvaluator.Motor.PILA) {
+            // Una llamada dentro de una primitiva binaria no consume pila de Java
+            processor.procesar("(defun suma (n) (cond ((equal n 0) 0) (t (+ n (suma (- n 1))))))");
+            assertEquals(50005000, processor.procesar("(suma 10000)"));
+        }
+    }
+}
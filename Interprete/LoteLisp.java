@@ -0,0 +1,234 @@
+package Interprete;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Ejecución por lotes de muchos scripts independientes sobre un grupo fijo
+ * de hilos. Cada script corre en una sesión aislada del mismo LispProcessor:
+ * comparte el preludio ya cargado en él pero sus variables y funciones no
+ * son visibles para los demás scripts. Los resultados se entregan en el
+ * orden de la lista de scripts, sin importar cuál termine antes.
+ */
+public class LoteLisp {
+
+    private final LispProcessor preludio;
+    private final int hilos;
+
+    public LoteLisp(LispProcessor preludio, int hilos) {
+        if (hilos < 1) {
+            throw new IllegalArgumentException("El número de hilos debe ser positivo");
+        }
+        this.preludio = preludio;
+        this.hilos = hilos;
+    }
+
+    /**
+     * Scripts de un directorio (los *.lisp, ordenados por nombre) o de un
+     * manifiesto: un archivo con una ruta por línea, relativa al manifiesto;
+     * se ignoran las líneas vacías y las que empiezan por ';'.
+     */
+    public static List<Path> scripts(Path directorioOManifiesto) throws IOException {
+        if (Files.isDirectory(directorioOManifiesto)) {
+            try (Stream<Path> archivos = Files.list(directorioOManifiesto)) {
+                return archivos.filter(archivo -> archivo.toString().endsWith(".lisp") && Files.isRegularFile(archivo))
+                               .sorted()
+                               .collect(Collectors.toList());
+            }
+        }
+        Path base = directorioOManifiesto.toAbsolutePath().getParent();
+        List<Path> scripts = new ArrayList<>();
+        for (String linea : Files.readAllLines(directorioOManifiesto, StandardCharsets.UTF_8)) {
+            linea = linea.trim();
+            if (!linea.isEmpty() && !linea.startsWith(";")) {
+                scripts.add(base.resolve(linea));
+            }
+        }
+        return scripts;
+    }
+
+    public Resumen ejecutar(List<Path> scripts) {
+        List<ResultadoScript> resultados = new ArrayList<>(scripts.size());
+        return ejecutar(scripts, resultados::add).conResultados(resultados);
+    }
+
+    // Entrega cada resultado en orden en cuanto él y los anteriores han terminado
+    public Resumen ejecutar(List<Path> scripts, Consumer<ResultadoScript> alTerminar) {
+        ExecutorService grupo = Executors.newFixedThreadPool(hilos);
+        long inicio = System.nanoTime();
+        int formas = 0;
+        int errores = 0;
+        try {
+            List<Future<ResultadoScript>> pendientes = new ArrayList<>(scripts.size());
+            for (Path script : scripts) {
+                pendientes.add(grupo.submit(() -> ejecutarScript(script)));
+            }
+            for (Future<ResultadoScript> pendiente : pendientes) {
+                ResultadoScript resultado = pendiente.get();
+                formas += resultado.getFormas();
+                errores += resultado.getErrores();
+                alTerminar.accept(resultado);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ErrorLisp("Ejecución por lotes interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new ErrorLisp("Fallo inesperado en la ejecución por lotes: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            grupo.shutdownNow();
+        }
+        return new Resumen(scripts.size(), formas, errores, System.nanoTime() - inicio, hilos);
+    }
+
+    ResultadoScript ejecutarScript(Path script) {
+        long inicio = System.nanoTime();
+        List<String> salida = new ArrayList<>();
+        int formas = 0;
+        int errores = 0;
+
+        SesionLisp sesion = preludio.nuevaSesionAislada();
+        try (Reader origen = Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+            LectorLisp lector = new LectorLisp(origen);
+            while (true) {
+                try {
+                    Object forma = lector.leer();
+                    if (forma == LectorLisp.FIN) {
+                        break;
+                    }
+                    formas++;
+                    Object resultado;
+                    try {
+                        resultado = sesion.evaluar(forma);
+                    } finally {
+                        for (PerfilLisp perfil : sesion.getPerfilesProfile()) {
+                            salida.addAll(perfil.informe().lines().toList());
+                        }
+                    }
+                    if (resultado != null) {
+                        salida.add(String.valueOf(resultado));
+                    }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } catch (RuntimeException e) {
+                    errores++;
+                    salida.add("Error: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            errores++;
+            salida.add("Error al leer el archivo: " + e.getMessage());
+        }
+        return new ResultadoScript(script, salida, formas, errores, System.nanoTime() - inicio);
+    }
+
+    /** Lo que imprimió un script (valores y errores, en orden) y cuánto tardó. */
+    public static final class ResultadoScript {
+        private final Path script;
+        private final List<String> salida;
+        private final int formas;
+        private final int errores;
+        private final long nanos;
+
+        ResultadoScript(Path script, List<String> salida, int formas, int errores, long nanos) {
+            this.script = script;
+            this.salida = Collections.unmodifiableList(salida);
+            this.formas = formas;
+            this.errores = errores;
+            this.nanos = nanos;
+        }
+
+        public Path getScript() {
+            return script;
+        }
+
+        public List<String> getSalida() {
+            return salida;
+        }
+
+        public int getFormas() {
+            return formas;
+        }
+
+        public int getErrores() {
+            return errores;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /** Totales de una ejecución por lotes. */
+    public static final class Resumen {
+        private final int scripts;
+        private final int formas;
+        private final int errores;
+        private final long nanos;
+        private final int hilos;
+        private List<ResultadoScript> resultados = Collections.emptyList();
+
+        Resumen(int scripts, int formas, int errores, long nanos, int hilos) {
+            this.scripts = scripts;
+            this.formas = formas;
+            this.errores = errores;
+            this.nanos = nanos;
+            this.hilos = hilos;
+        }
+
+        private Resumen conResultados(List<ResultadoScript> resultados) {
+            this.resultados = Collections.unmodifiableList(resultados);
+            return this;
+        }
+
+        // Vacía si se usó la variante con Consumer
+        public List<ResultadoScript> getResultados() {
+            return resultados;
+        }
+
+        public int getScripts() {
+            return scripts;
+        }
+
+        public int getFormas() {
+            return formas;
+        }
+
+        public int getErrores() {
+            return errores;
+        }
+
+        public double getSegundos() {
+            return nanos / 1e9;
+        }
+
+        public double getScriptsPorSegundo() {
+            return scripts / Math.max(getSegundos(), 1e-9);
+        }
+
+        public double getFormasPorSegundo() {
+            return formas / Math.max(getSegundos(), 1e-9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d scripts, %d formas, %d errores en %.3f s con %d hilos: "
+                                 + "%.1f scripts/s, %.1f formas/s",
+                                 scripts, formas, errores, getSegundos(), hilos,
+                                 getScriptsPorSegundo(), getFormasPorSegundo());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoteLispTest {
+
+    private Path directorio;
+
+    @Before
+    public void crearDirectorio() throws IOException {
+        directorio = Files.createTempDirectory("lote");
+    }
+
+    @After
+    public void borrarDirectorio() throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            archivos.sorted((a, b) -> b.compareTo(a)).forEach(archivo -> archivo.toFile().delete());
+        }
+    }
+
+    private Path script(String nombre, String contenido) throws IOException {
+        return Files.write(directorio.resolve(nombre), contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testScriptsShareThePreludeButNotTheirDefinitions() throws IOException {
+        LispProcessor preludio = new LispProcessor();
+        preludio.procesar("(defun doble (x) (* 2 x))");
+
+        List<Path> scripts = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            scripts.add(script(String.format("s%02d.lisp", i),
+                    "(defun propia () " + i + ")\n(setq x (doble (propia)))\nx\n"));
+        }
+
+        LoteLisp.Resumen resumen = new LoteLisp(preludio, 4).ejecutar(scripts);
+
+        assertEquals(40, resumen.getScripts());
+        assertEquals(120, resumen.getFormas());
+        assertEquals(0, resumen.getErrores());
+        for (int i = 0; i < 40; i++) {
+            LoteLisp.ResultadoScript resultado = resumen.getResultados().get(i);
+            assertEquals(scripts.get(i), resultado.getScript());
+            assertEquals(Arrays.asList("propia", String.valueOf(2 * i), String.valueOf(2 * i)), resultado.getSalida());
+        }
+        assertFalse(preludio.nuevaSesion().getEntorno().existeFuncion("propia"));
+    }
+
+    @Test
+    public void testErrorsAreCollectedPerScript() throws IOException {
+        List<Path> scripts = Arrays.asList(
+                script("a.lisp", "(+ 1 2)\n(car 5)\n(+ 3 4)\n"),
+                script("b.lisp", "(+ 1 (\n"),
+                directorio.resolve("no-existe.lisp"));
+
+        LoteLisp.Resumen resumen = new LoteLisp(new LispProcessor(), 2).ejecutar(scripts);
+
+        List<String> salidaA = resumen.getResultados().get(0).getSalida();
+        assertEquals("3", salidaA.get(0));
+        assertTrue(salidaA.get(1).startsWith("Error: "));
+        assertEquals("7", salidaA.get(2));
+        assertEquals(1, resumen.getResultados().get(1).getErrores());
+        assertTrue(resumen.getResultados().get(2).getSalida().get(0).startsWith("Error al leer el archivo"));
+        assertEquals(3, resumen.getErrores());
+    }
+
+    @Test
+    public void testProfileReportsStayWithTheirScript() throws IOException {
+        List<Path> scripts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            scripts.add(script(String.format("p%d.lisp", i),
+                    "(defun f" + i + " (x) (+ x 1))\n(profile (f" + i + " 1))\n"));
+        }
+
+        LoteLisp.Resumen resumen = new LoteLisp(new LispProcessor(), 4).ejecutar(scripts);
+
+        for (int i = 0; i < 8; i++) {
+            List<String> salida = resumen.getResultados().get(i).getSalida();
+            assertEquals("f" + i, salida.get(0));
+            assertTrue(salida.get(1), salida.get(1).contains("Llamadas"));
+            assertTrue(salida.get(2), salida.get(2).matches("f" + i + "\\s+1\\s.*"));
+            assertEquals("2", salida.get(salida.size() - 1));
+        }
+    }
+
+    @Test
+    public void testDirectoryAndManifest() throws IOException {
+        script("b.lisp", "1");
+        script("a.lisp", "2");
+        script("notas.txt", "no es un script");
+        Path manifiesto = script("lote.txt", "; orden propio\nb.lisp\n\na.lisp\n");
+
+        assertEquals(Arrays.asList(directorio.resolve("a.lisp"), directorio.resolve("b.lisp")),
+                     LoteLisp.scripts(directorio));
+        assertEquals(Arrays.asList(directorio.resolve("b.lisp"), directorio.resolve("a.lisp")),
+                     LoteLisp.scripts(manifiesto));
+    }
+}
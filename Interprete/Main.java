@@ -1,18 +1,42 @@
 package Interprete;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
 
+import javax.management.JMException;
+
 public class Main {
 
     public static void main(String[] args) {
         LispProcessor interpreter = new LispProcessor();
 
+        if (args.length > 1 && args[0].equals("--servidor")) {
+            startServer(args[1], interpreter);
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("--lote")) {
+            runBatch(args, interpreter);
+            return;
+        }
+
+        // --perfil archivo: ejecuta el archivo y escribe el perfil en stderr
+        if (args.length > 1 && args[0].equals("--perfil")) {
+            interpreter.setPerfilado(true);
+            args = new String[] {args[1]};
+        }
+
         if (args.length > 0) {
             try {
                 executeFile(args[0], interpreter);
+                if (interpreter.getPerfil() != null) {
+                    System.err.print(interpreter.getPerfil().informe());
+                }
                 return;
             } catch (IOException e) {
                 System.err.println("Error al leer el archivo: " + e.getMessage());
@@ -24,42 +48,26 @@ public class Main {
     }
 
     private static void executeFile(String filename, LispProcessor interpreter) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            StringBuilder buffer = new StringBuilder();
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().startsWith(";")) {
-                    continue;
-                }
-
-                buffer.append(line).append(" ");
-
-                int openParens = countOccurrences(buffer.toString(), '(');
-                int closedParens = countOccurrences(buffer.toString(), ')');
+        try (LectorLisp lector = new LectorLisp(new FileReader(filename))) {
+            while (true) {
+                try {
+                    Object forma = lector.leer();
+                    if (forma == LectorLisp.FIN) {
+                        break;
+                    }
 
-                if (openParens > 0 && openParens == closedParens) {
+                    Object result;
                     try {
-                        Object result = interpreter.procesar(buffer.toString());
-
-                        if (result != null) {
-                            System.out.println(result);
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Error: " + e.getMessage());
+                        result = interpreter.evaluar(forma);
+                    } finally {
+                        printProfiles(interpreter);
                     }
 
-                    buffer.setLength(0);
-                }
-            }
-
-            if (buffer.length() > 0) {
-                try {
-                    Object result = interpreter.procesar(buffer.toString());
-
                     if (result != null) {
                         System.out.println(result);
                     }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
                 } catch (Exception e) {
                     System.err.println("Error: " + e.getMessage());
                 }
@@ -67,6 +75,96 @@ public class Main {
         }
     }
 
+    // Informes de las formas (profile ...) de la última evaluación
+    private static void printProfiles(LispProcessor interpreter) {
+        for (PerfilLisp perfil : interpreter.getPerfilesProfile()) {
+            System.out.print(perfil.informe());
+        }
+    }
+
+    // --lote <directorio|manifiesto> [--hilos N] [--preludio archivo] [--imagen archivo]
+    private static void runBatch(String[] args, LispProcessor interpreter) {
+        int hilos = Runtime.getRuntime().availableProcessors();
+        String preludio = null;
+        String imagen = null;
+        try {
+            for (int i = 2; i + 1 < args.length; i += 2) {
+                if (args[i].equals("--hilos")) {
+                    hilos = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("--preludio")) {
+                    preludio = args[i + 1];
+                } else if (args[i].equals("--imagen")) {
+                    imagen = args[i + 1];
+                } else {
+                    System.err.println("Opción desconocida: " + args[i]);
+                    System.exit(1);
+                }
+            }
+            loadPrelude(preludio, imagen, interpreter);
+
+            List<Path> scripts = LoteLisp.scripts(Paths.get(args[1]));
+            LoteLisp.Resumen resumen = new LoteLisp(interpreter, hilos).ejecutar(scripts, resultado -> {
+                System.out.printf("== %s (%.2f ms)%n", resultado.getScript(), resultado.getNanos() / 1e6);
+                for (String linea : resultado.getSalida()) {
+                    System.out.println(linea);
+                }
+            });
+            System.out.println(resumen);
+            if (resumen.getErrores() > 0) {
+                System.exit(2);
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer los scripts: " + e.getMessage());
+            System.exit(1);
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Carga definiciones en el entorno global sin imprimir sus valores. Con
+     * imagen y preludio, la imagen se usa si corresponde al preludio y se
+     * regenera si no; solo con imagen, se carga tal cual.
+     */
+    private static void loadPrelude(String preludio, String imagen, LispProcessor interpreter) throws IOException {
+        if (preludio != null && imagen != null) {
+            interpreter.cargarPreludio(Paths.get(preludio), Paths.get(imagen));
+        } else if (imagen != null) {
+            interpreter.cargarImagen(Paths.get(imagen));
+        } else if (preludio != null) {
+            interpreter.cargarFuente(Paths.get(preludio));
+        }
+    }
+
+    // Atiende clientes hasta que se detenga el proceso
+    private static void startServer(String direccion, LispProcessor interpreter) {
+        ServidorLisp servidor = new ServidorLisp(interpreter, ServidorLisp.direccion(direccion));
+        try {
+            servidor.iniciar();
+            try {
+                interpreter.registrarMBean(direccion);
+            } catch (JMException e) {
+                System.err.println("No se pudieron publicar las métricas por JMX: " + e.getMessage());
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    servidor.close();
+                } catch (IOException e) {
+                    System.err.println("Error al detener el servidor: " + e.getMessage());
+                }
+            }));
+            System.out.println("Servidor LISP escuchando en " + servidor.getDireccion()
+                               + (ServidorLisp.usaHilosVirtuales() ? " (hilos virtuales)" : ""));
+            Thread.currentThread().join();
+        } catch (IOException e) {
+            System.err.println("No se pudo iniciar el servidor: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private static void startREPL(LispProcessor interpreter) {
         Scanner scanner = new Scanner(System.in);
 
@@ -97,7 +195,12 @@ public class Main {
 
             if (openParens > 0 && openParens == closedParens) {
                 try {
-                    Object result = interpreter.procesar(buffer.toString());
+                    Object result;
+                    try {
+                        result = interpreter.procesar(buffer.toString());
+                    } finally {
+                        printProfiles(interpreter);
+                    }
 
                     if (result != null) {
                         System.out.println("=> " + result);
@@ -0,0 +1,112 @@
+package Interprete;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import Interprete.MetricasLisp.CategoriaError;
+
+/**
+ * Resultados guardados de una función memoizada (defun-memo o memoize),
+ * por valores de los argumentos comparados con equal. Guarda como mucho
+ * capacidad entradas y desaloja la usada hace más tiempo. Cada definición
+ * tiene la suya: al redefinir la función con defun la caché se descarta.
+ *
+ * Las funciones se comparten entre sesiones y ramas de pmap, así que el
+ * acceso está sincronizado; dos hilos que fallen a la vez en la misma clave
+ * calculan los dos el resultado.
+ */
+public final class MemoLisp {
+
+    static final int CAPACIDAD_POR_DEFECTO = 10_000;
+
+    private final int capacidad;
+    private final LinkedHashMap<Object, Object> entradas;
+    private long aciertos;
+    private long fallos;
+    private long desalojos;
+
+    MemoLisp(int capacidad) {
+        if (capacidad < 1) {
+            throw new ErrorLisp(CategoriaError.TIPO, "Error: la capacidad de memoize debe ser positiva");
+        }
+        this.capacidad = capacidad;
+        // Orden de acceso: la primera entrada es la usada hace más tiempo
+        this.entradas = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> mayor) {
+                if (size() > MemoLisp.this.capacidad) {
+                    desalojos++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Clave de los argumentos, que ocupan las primeras posiciones del marco
+    static Object clave(Object[] marco, int aridad) {
+        return aridad == 1 ? marco[0] : new Clave(Arrays.copyOf(marco, aridad));
+    }
+
+    // Resultado guardado, o null si no está
+    synchronized Object obtener(Object clave) {
+        Object valor = entradas.get(clave);
+        if (valor == null) {
+            fallos++;
+        } else {
+            aciertos++;
+        }
+        return valor;
+    }
+
+    synchronized void guardar(Object clave, Object valor) {
+        entradas.put(clave, valor);
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    public synchronized int getTamano() {
+        return entradas.size();
+    }
+
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    public synchronized long getDesalojos() {
+        return desalojos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("tamaño=%d/%d aciertos=%d fallos=%d desalojos=%d",
+                             entradas.size(), capacidad, aciertos, fallos, desalojos);
+    }
+
+    private static final class Clave {
+        private final Object[] argumentos;
+        private final int hash;
+
+        Clave(Object[] argumentos) {
+            this.argumentos = argumentos;
+            this.hash = Arrays.hashCode(argumentos);
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            return otro instanceof Clave && Arrays.equals(argumentos, ((Clave) otro).argumentos);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class MemoLispTest {
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> motores() {
+        return Arrays.asList(new Object[][] {
+            { LispEvaluator.Motor.RECURSIVO },
+            { LispEvaluator.Motor.PILA }
+        });
+    }
+
+    private static final String FIB = "(cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2)))))";
+
+    private final LispProcessor processor;
+
+    public MemoLispTest(LispEvaluator.Motor motor) {
+        this.processor = new LispProcessor(motor);
+    }
+
+    @Test
+    public void testDefunMemoCachesResults() {
+        processor.procesar("(defun-memo fib (n) " + FIB + ")");
+        // Sin memo serían unos 10^20 llamadas
+        assertEquals(new BigInteger("354224848179261915075"), processor.procesar("(fib 100)"));
+
+        MemoLisp memo = processor.obtenerMemo("fib");
+        assertEquals(101, memo.getTamano());
+        assertEquals(101, memo.getFallos());
+        // fib(k) con k >= 3 encuentra fib(k - 2) ya calculado
+        assertEquals(98, memo.getAciertos());
+
+        processor.procesar("(fib 100)");
+        assertEquals(99, memo.getAciertos());
+        assertEquals(101, memo.getFallos());
+    }
+
+    @Test
+    public void testMemoizeExistingFunctionAndKeysOnAllArguments() {
+        processor.procesar("(setq llamadas 0)");
+        processor.procesar("(defun resta (a b) (progn (setq llamadas (+ llamadas 1)) (- a b)))");
+        assertNull(processor.obtenerMemo("resta"));
+
+        assertEquals(SimboloLisp.intern("resta"), processor.procesar("(memoize 'resta)"));
+        assertEquals(1, processor.procesar("(resta 3 2)"));
+        assertEquals(-1, processor.procesar("(resta 2 3)"));
+        assertEquals(1, processor.procesar("(resta 3 2)"));
+        // Los argumentos se comparan con equal
+        processor.procesar("(defun-memo largo (l) (progn (setq llamadas (+ llamadas 1)) (length l)))");
+        assertEquals(3, processor.procesar("(largo '(1 2 3))"));
+        assertEquals(3, processor.procesar("(largo (list 1 2 3))"));
+        assertEquals(3, processor.procesar("llamadas"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        processor.procesar("(defun doble (n) (* 2 n))");
+        processor.procesar("(memoize 'doble 2)");
+        processor.procesar("(doble 1)");
+        processor.procesar("(doble 2)");
+        processor.procesar("(doble 1)");
+        // 2 es la menos usada: se desaloja al entrar 3
+        processor.procesar("(doble 3)");
+        MemoLisp memo = processor.obtenerMemo("doble");
+        assertEquals(2, memo.getCapacidad());
+        assertEquals(2, memo.getTamano());
+        assertEquals(1, memo.getDesalojos());
+
+        processor.procesar("(doble 1)");
+        assertEquals(2, memo.getAciertos());
+        processor.procesar("(doble 2)");
+        assertEquals(4, memo.getFallos());
+    }
+
+    @Test
+    public void testRedefinitionDiscardsCache() {
+        processor.procesar("(defun-memo f (n) (* n 10))");
+        assertEquals(50, processor.procesar("(f 5)"));
+        MemoLisp vieja = processor.obtenerMemo("f");
+
+        // Con defun deja de estar memoizada; con defun-memo empieza vacía
+        processor.procesar("(defun f (n) (* n 100))");
+        assertEquals(500, processor.procesar("(f 5)"));
+        assertNull(processor.obtenerMemo("f"));
+
+        processor.procesar("(defun-memo f (n) (* n 1000))");
+        assertEquals(5000, processor.procesar("(f 5)"));
+        MemoLisp nueva = processor.obtenerMemo("f");
+        assertNotSame(vieja, nueva);
+        assertEquals(1, nueva.getFallos());
+        assertEquals(0, nueva.getAciertos());
+    }
+
+    @Test
+    public void testCallersSeeMemoizationAfterCallSiteWasCached() {
+        processor.procesar("(setq llamadas 0)");
+        processor.procesar("(defun g (n) (progn (setq llamadas (+ llamadas 1)) n))");
+        processor.procesar("(defun usa (n) (g n))");
+        processor.procesar("(usa 1)");
+        processor.procesar("(memoize 'g)");
+        processor.procesar("(usa 1)");
+        processor.procesar("(usa 1)");
+        assertEquals(2, processor.procesar("llamadas"));
+    }
+
+    @Test
+    public void testErrorsAreNotCached() {
+        processor.procesar("(defun-memo inverso (n) (/ 1 n))");
+        for (int i = 0; i < 2; i++) {
+            try {
+                processor.procesar("(inverso 0)");
+                fail("Se esperaba división por cero");
+            } catch (ErrorLisp e) {
+                // esperado
+            }
+        }
+        assertEquals(0, processor.obtenerMemo("inverso").getTamano());
+    }
+
+    @Test
+    public void testMemoizeErrors() {
+        assertError("(memoize 'nadie)", "no definida");
+        processor.procesar("(defun h (n) n)");
+        assertError("(memoize 'h 0)", "positiva");
+        assertError("(memoize 'h 'x)", "requiere un entero");
+        assertError("(defun-memo h n n)", "deben ser una lista");
+    }
+
+    private void assertError(String forma, String fragmento) {
+        try {
+            processor.procesar(forma);
+            fail("Se esperaba un error en " + forma);
+        } catch (ErrorLisp e) {
+            String mensaje = e.getMessage() + (e.getCause() != null ? " " + e.getCause().getMessage() : "");
+            assertTrue(mensaje, mensaje.contains(fragmento));
+        }
+    }
+}
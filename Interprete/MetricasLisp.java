@@ -0,0 +1,297 @@
+package Interprete;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de un LispProcessor y de todas sus sesiones: evaluaciones,
+ * latencias, errores por categoría y profundidad máxima alcanzada. Los
+ * contadores son LongAdder y el histograma usa incrementos atómicos, así
+ * que las sesiones de distintos hilos registran sin bloquearse entre sí.
+ *
+ * La tasa de evaluaciones es la de los últimos VENTANA_SEGUNDOS segundos:
+ * la primera evaluación que termina en cada segundo anota el total que
+ * había al empezarlo, y leer la tasa no cambia nada, así que varios
+ * consumidores JMX ven el mismo valor.
+ */
+public class MetricasLisp implements MetricasLispMXBean {
+
+    static final int VENTANA_SEGUNDOS = 10;
+    private static final long SEGUNDO = 1_000_000_000L;
+
+    public enum CategoriaError {
+        SINTAXIS, FUNCION_NO_DEFINIDA, VARIABLE_NO_DEFINIDA, ARGUMENTOS, TIPO, DIVISION_POR_CERO, PROFUNDIDAD, LIMITE, OTRO
+    }
+
+    private final EntornoLisp global;
+    private final LispEvaluator evaluator;
+    private final LongAdder evaluaciones = new LongAdder();
+    private final LongAdder[] errores = new LongAdder[CategoriaError.values().length];
+    private final HistogramaLatencia latencias = new HistogramaLatencia();
+    private final AtomicInteger profundidadMaxima = new AtomicInteger();
+    // {segundo, evaluaciones al empezar ese segundo} en la posición segundo % VENTANA_SEGUNDOS
+    private final AtomicReferenceArray<long[]> inicioSegundo = new AtomicReferenceArray<>(VENTANA_SEGUNDOS);
+    private volatile long origenNanos = System.nanoTime();
+
+    MetricasLisp(EntornoLisp global, LispEvaluator evaluator) {
+        this.global = global;
+        this.evaluator = evaluator;
+        for (int i = 0; i < errores.length; i++) {
+            errores[i] = new LongAdder();
+        }
+    }
+
+    void registrar(long nanos, RuntimeException fallo) {
+        marcarSegundo(System.nanoTime());
+        evaluaciones.increment();
+        latencias.registrar(nanos);
+        if (fallo != null) {
+            errores[categoria(fallo).ordinal()].increment();
+        }
+    }
+
+    private void marcarSegundo(long ahora) {
+        long segundo = Math.floorDiv(ahora, SEGUNDO);
+        int i = (int) Math.floorMod(segundo, (long) VENTANA_SEGUNDOS);
+        long[] marca = inicioSegundo.get(i);
+        if (marca == null || marca[0] != segundo) {
+            inicioSegundo.compareAndSet(i, marca, new long[] {segundo, evaluaciones.sum()});
+        }
+    }
+
+    void registrarProfundidad(int profundidad) {
+        int actual = profundidadMaxima.get();
+        while (profundidad > actual && !profundidadMaxima.compareAndSet(actual, profundidad)) {
+            actual = profundidadMaxima.get();
+        }
+    }
+
+    // Los errores de Java que no son ErrorLisp (p. ej. de una primitiva mal usada desde Java) cuentan como OTRO
+    static CategoriaError categoria(Throwable error) {
+        return error instanceof ErrorLisp ? ((ErrorLisp) error).getCategoria() : CategoriaError.OTRO;
+    }
+
+    public Instantanea instantanea() {
+        return new Instantanea(this);
+    }
+
+    @Override
+    public long getEvaluaciones() {
+        return evaluaciones.sum();
+    }
+
+    @Override
+    public double getEvaluacionesPorSegundo() {
+        return tasa(System.nanoTime());
+    }
+
+    // Desde el principio del segundo más antiguo de la ventana (o desde el último reinicio) hasta ahora
+    double tasa(long ahora) {
+        long segundo = Math.floorDiv(ahora, SEGUNDO);
+        long primero = segundo - VENTANA_SEGUNDOS + 1;
+        // El total al empezar el primer segundo de la ventana con evaluaciones es el del principio de la ventana
+        long[] inicio = null;
+        for (int i = 0; i < VENTANA_SEGUNDOS; i++) {
+            long[] marca = inicioSegundo.get(i);
+            if (marca != null && marca[0] >= primero && marca[0] <= segundo
+                    && (inicio == null || marca[0] < inicio[0])) {
+                inicio = marca;
+            }
+        }
+        if (inicio == null) {
+            return 0;
+        }
+        long nanos = ahora - Math.max(primero * SEGUNDO, origenNanos);
+        return nanos <= 0 ? 0 : (evaluaciones.sum() - inicio[1]) * 1e9 / nanos;
+    }
+
+    @Override
+    public long getErrores() {
+        long total = 0;
+        for (LongAdder contador : errores) {
+            total += contador.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getErroresPorCategoria() {
+        Map<String, Long> mapa = new LinkedHashMap<>();
+        for (CategoriaError categoria : CategoriaError.values()) {
+            mapa.put(categoria.name(), errores[categoria.ordinal()].sum());
+        }
+        return mapa;
+    }
+
+    public HistogramaLatencia getLatencias() {
+        return latencias;
+    }
+
+    @Override
+    public double getLatenciaMediaMicros() {
+        return latencias.media() / 1e3;
+    }
+
+    @Override
+    public double getLatenciaP50Micros() {
+        return latencias.percentil(0.50) / 1e3;
+    }
+
+    @Override
+    public double getLatenciaP99Micros() {
+        return latencias.percentil(0.99) / 1e3;
+    }
+
+    @Override
+    public double getLatenciaP999Micros() {
+        return latencias.percentil(0.999) / 1e3;
+    }
+
+    @Override
+    public double getLatenciaMaximaMicros() {
+        return latencias.maximo() / 1e3;
+    }
+
+    @Override
+    public int getProfundidadMaxima() {
+        return profundidadMaxima.get();
+    }
+
+    @Override
+    public int getFunciones() {
+        return global.cantidadFunciones();
+    }
+
+    @Override
+    public int getVariablesGlobales() {
+        return global.cantidadVariables();
+    }
+
+    @Override
+    public long getCompilacionesFallidas() {
+        return evaluator.getCompilacionesFallidas();
+    }
+
+    @Override
+    public void reiniciar() {
+        evaluaciones.reset();
+        for (LongAdder contador : errores) {
+            contador.reset();
+        }
+        latencias.reiniciar();
+        profundidadMaxima.set(0);
+        origenNanos = System.nanoTime();
+        for (int i = 0; i < VENTANA_SEGUNDOS; i++) {
+            inicioSegundo.set(i, null);
+        }
+    }
+
+    /**
+     * Copia de las métricas en un momento dado. Cada valor se lee por
+     * separado, así que con evaluaciones en curso pueden no cuadrar del todo
+     * entre sí.
+     */
+    public static final class Instantanea {
+        private final long instanteNanos = System.nanoTime();
+        private final long evaluaciones;
+        private final Map<CategoriaError, Long> errores;
+        private final long latenciaP50;
+        private final long latenciaP99;
+        private final long latenciaP999;
+        private final long latenciaMaxima;
+        private final double latenciaMedia;
+        private final int profundidadMaxima;
+        private final int funciones;
+        private final int variablesGlobales;
+
+        private Instantanea(MetricasLisp metricas) {
+            evaluaciones = metricas.evaluaciones.sum();
+            EnumMap<CategoriaError, Long> porCategoria = new EnumMap<>(CategoriaError.class);
+            for (CategoriaError categoria : CategoriaError.values()) {
+                porCategoria.put(categoria, metricas.errores[categoria.ordinal()].sum());
+            }
+            errores = Collections.unmodifiableMap(porCategoria);
+            long[] percentiles = metricas.latencias.percentiles(0.50, 0.99, 0.999);
+            latenciaP50 = percentiles[0];
+            latenciaP99 = percentiles[1];
+            latenciaP999 = percentiles[2];
+            latenciaMaxima = metricas.latencias.maximo();
+            latenciaMedia = metricas.latencias.media();
+            profundidadMaxima = metricas.profundidadMaxima.get();
+            funciones = metricas.getFunciones();
+            variablesGlobales = metricas.getVariablesGlobales();
+        }
+
+        // Evaluaciones por segundo entre una instantánea anterior y esta
+        public double tasaDesde(Instantanea anterior) {
+            long nanos = instanteNanos - anterior.instanteNanos;
+            return nanos <= 0 ? 0 : (evaluaciones - anterior.evaluaciones) * 1e9 / nanos;
+        }
+
+        public long getEvaluaciones() {
+            return evaluaciones;
+        }
+
+        public long getErrores() {
+            long total = 0;
+            for (long n : errores.values()) {
+                total += n;
+            }
+            return total;
+        }
+
+        public long getErrores(CategoriaError categoria) {
+            return errores.get(categoria);
+        }
+
+        public Map<CategoriaError, Long> getErroresPorCategoria() {
+            return errores;
+        }
+
+        public long getLatenciaP50Nanos() {
+            return latenciaP50;
+        }
+
+        public long getLatenciaP99Nanos() {
+            return latenciaP99;
+        }
+
+        public long getLatenciaP999Nanos() {
+            return latenciaP999;
+        }
+
+        public long getLatenciaMaximaNanos() {
+            return latenciaMaxima;
+        }
+
+        public double getLatenciaMediaNanos() {
+            return latenciaMedia;
+        }
+
+        public int getProfundidadMaxima() {
+            return profundidadMaxima;
+        }
+
+        public int getFunciones() {
+            return funciones;
+        }
+
+        public int getVariablesGlobales() {
+            return variablesGlobales;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("evaluaciones=%d errores=%d p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus " +
+                                 "profundidad=%d funciones=%d globales=%d",
+                                 evaluaciones, getErrores(), latenciaP50 / 1e3, latenciaP99 / 1e3,
+                                 latenciaP999 / 1e3, latenciaMaxima / 1e3, profundidadMaxima, funciones,
+                                 variablesGlobales);
+        }
+    }
+}
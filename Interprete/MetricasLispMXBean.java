@@ -0,0 +1,40 @@
+package Interprete;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de las métricas de un LispProcessor. Las latencias son de
+ * procesar/evaluar completos, en microsegundos.
+ */
+public interface MetricasLispMXBean {
+
+    long getEvaluaciones();
+
+    // Media de los últimos MetricasLisp.VENTANA_SEGUNDOS segundos; leerla no cambia nada
+    double getEvaluacionesPorSegundo();
+
+    long getErrores();
+
+    Map<String, Long> getErroresPorCategoria();
+
+    double getLatenciaMediaMicros();
+
+    double getLatenciaP50Micros();
+
+    double getLatenciaP99Micros();
+
+    double getLatenciaP999Micros();
+
+    double getLatenciaMaximaMicros();
+
+    int getProfundidadMaxima();
+
+    int getFunciones();
+
+    int getVariablesGlobales();
+
+    // Funciones cuyo bytecode rechazó la JVM (ver CompiladorLisp); reiniciar no lo pone a cero
+    long getCompilacionesFallidas();
+
+    void reiniciar();
+}
@@ -0,0 +1,177 @@
+package Interprete;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class MetricasLispTest {
+
+    private static void fallar(LispProcessor processor, String expresion) {
+        try {
+            processor.procesar(expresion);
+            fail("Se esperaba un error en " + expresion);
+        } catch (ErrorLisp e) {
+            // esperado
+        }
+    }
+
+    @Test
+    public void testCountsEvaluationsAndErrorsByCategory() {
+        LispProcessor processor = new LispProcessor();
+        processor.procesar("(defun uno () 1)");
+        processor.procesar("(setq x 5)");
+        processor.procesar("(uno)");
+        fallar(processor, "(nada 1)");
+        fallar(processor, "(/ 1 0)");
+        fallar(processor, "(car 5)");
+        fallar(processor, "(uno 1 2)");
+        fallar(processor, "(+ 1 2");
+
+        MetricasLisp.Instantanea instantanea = processor.getMetricas().instantanea();
+        assertEquals(8, instantanea.getEvaluaciones());
+        assertEquals(5, instantanea.getErrores());
+        assertEquals(1, instantanea.getErrores(MetricasLisp.CategoriaError.FUNCION_NO_DEFINIDA));
+        assertEquals(1, instantanea.getErrores(MetricasLisp.CategoriaError.DIVISION_POR_CERO));
+        assertEquals(1, instantanea.getErrores(MetricasLisp.CategoriaError.TIPO));
+        assertEquals(1, instantanea.getErrores(MetricasLisp.CategoriaError.ARGUMENTOS));
+        assertEquals(1, instantanea.getErrores(MetricasLisp.CategoriaError.SINTAXIS));
+        // factorial del preludio y uno
+        assertEquals(2, instantanea.getFunciones());
+        assertTrue(instantanea.getVariablesGlobales() >= 3);
+    }
+
+    @Test
+    public void testCategoryComesFromTheErrorNotItsMessage() {
+        LispProcessor processor = new LispProcessor();
+        fallar(processor, "(quote)");
+        fallar(processor, "(setq 5 1)");
+        fallar(processor, "(pmap car '(1 2 3 4))");
+        MetricasLisp.Instantanea instantanea = processor.getMetricas().instantanea();
+        assertEquals(1, instantanea.getErrores(MetricasLisp.CategoriaError.ARGUMENTOS));
+        assertEquals(2, instantanea.getErrores(MetricasLisp.CategoriaError.TIPO));
+
+        try {
+            processor.nuevaSesion().getEntorno().obtenerVariable("nada");
+            fail("Se esperaba un error");
+        } catch (ErrorLisp e) {
+            assertEquals(MetricasLisp.CategoriaError.VARIABLE_NO_DEFINIDA, MetricasLisp.categoria(e));
+        }
+
+        assertEquals(MetricasLisp.CategoriaError.DIVISION_POR_CERO,
+                     MetricasLisp.categoria(new ErrorLisp(MetricasLisp.CategoriaError.DIVISION_POR_CERO, "requiere")));
+        assertEquals(MetricasLisp.CategoriaError.OTRO, MetricasLisp.categoria(new ErrorLisp("función no definida")));
+        assertEquals(MetricasLisp.CategoriaError.OTRO, MetricasLisp.categoria(new IllegalStateException("división por cero")));
+    }
+
+    @Test
+    public void testMaximumDepth() {
+        for (LispEvaluator.Motor motor : LispEvaluator.Motor.values()) {
+            LispProcessor processor = new LispProcessor(motor);
+            processor.procesar("(defun suma (n) (cond ((equal n 0) 0) (t (+ n (suma (- n 1))))))");
+            processor.procesar("(suma 50)");
+            int profundidad = processor.getMetricas().getProfundidadMaxima();
+            assertTrue(motor + ": " + profundidad, profundidad >= 50);
+
+            processor.getMetricas().reiniciar();
+            processor.procesar("(suma 5)");
+            assertTrue(motor.toString(), processor.getMetricas().getProfundidadMaxima() < 50);
+
+            // La profundidad alcanzada dentro de las ramas de pmap también cuenta
+            processor.getMetricas().reiniciar();
+            processor.procesar("(pmap suma '(5 5 5 5 5 5 5 60))");
+            profundidad = processor.getMetricas().getProfundidadMaxima();
+            assertTrue(motor + ": " + profundidad, profundidad >= 60);
+        }
+    }
+
+    @Test
+    public void testSessionsShareMetrics() throws Exception {
+        LispProcessor processor = new LispProcessor();
+        List<Thread> hilos = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread hilo = new Thread(() -> {
+                SesionLisp sesion = processor.nuevaSesion();
+                for (int j = 0; j < 250; j++) {
+                    sesion.procesar("(+ 1 2)");
+                }
+            });
+            hilos.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        assertEquals(1000, processor.getMetricas().getEvaluaciones());
+        assertEquals(1000, processor.getMetricas().getLatencias().cantidad());
+    }
+
+    @Test
+    public void testRateDoesNotDependOnReaders() {
+        LispProcessor processor = new LispProcessor();
+        for (int i = 0; i < 100; i++) {
+            processor.procesar("(+ 1 2)");
+        }
+        MetricasLisp metricas = processor.getMetricas();
+        double primera = metricas.getEvaluacionesPorSegundo();
+        double segunda = metricas.getEvaluacionesPorSegundo();
+        assertTrue(primera + "", primera > 0);
+        assertTrue(primera + " " + segunda, segunda > 0 && segunda <= primera);
+
+        long ahora = System.nanoTime();
+        assertEquals(metricas.tasa(ahora), metricas.tasa(ahora), 0);
+        // Fuera de la ventana ya no cuentan
+        assertEquals(0, metricas.tasa(ahora + (MetricasLisp.VENTANA_SEGUNDOS + 1) * 1_000_000_000L), 0);
+
+        metricas.reiniciar();
+        assertEquals(0, metricas.getEvaluacionesPorSegundo(), 0);
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        HistogramaLatencia histograma = new HistogramaLatencia();
+        for (int i = 1; i <= 10000; i++) {
+            histograma.registrar(i * 1000L);
+        }
+        assertEquals(10000, histograma.cantidad());
+        assertEquals(10_000_000L, histograma.maximo());
+        assertEquals(5_000_000, histograma.percentil(0.5), 5_000_000 * 0.04);
+        assertEquals(9_900_000, histograma.percentil(0.99), 9_900_000 * 0.04);
+        assertEquals(5_000_500, histograma.media(), 1);
+        assertArrayEquals(new long[] {histograma.percentil(0.5), histograma.percentil(0.99), 10_000_000L},
+                          histograma.percentiles(0.5, 0.99, 1.0));
+    }
+
+    @Test
+    public void testHistogramBucketsCoverTheirValues() {
+        long[] valores = {0, 1, 31, 32, 33, 63, 64, 1000, 123456789, Long.MAX_VALUE};
+        for (long valor : valores) {
+            int indice = HistogramaLatencia.indice(valor);
+            assertTrue(valor + "", HistogramaLatencia.limiteSuperior(indice) >= valor);
+            assertTrue(valor + "", indice == 0 || HistogramaLatencia.limiteSuperior(indice - 1) < valor);
+        }
+    }
+
+    @Test
+    public void testMBeanIsPublished() throws Exception {
+        LispProcessor processor = new LispProcessor();
+        processor.procesar("(+ 1 2)");
+        ObjectName nombre = processor.registrarMBean("prueba-metricas");
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(1L, servidor.getAttribute(nombre, "Evaluaciones"));
+            assertEquals(0L, servidor.getAttribute(nombre, "Errores"));
+        } finally {
+            servidor.unregisterMBean(nombre);
+        }
+    }
+}
@@ -0,0 +1,637 @@
+package Interprete;
+
+import java.util.List;
+
+import Interprete.MetricasLisp.CategoriaError;
+
+/**
+ * Nodo ejecutable producido por {@link LispEvaluator#compilar(Object)}.
+ * Cada forma se analiza una sola vez; al ejecutar ya no se inspecciona la lista
+ * original ni se busca el operador en la tabla.
+ *
+ * Los parámetros de una función se resuelven al compilar su cuerpo a una
+ * posición dentro del marco (Object[]) de la llamada; el resto de símbolos se
+ * buscan en la tabla global del contexto.
+ *
+ * Una llamada en posición de cola no invoca el cuerpo: deja la llamada
+ * pendiente en el contexto y devuelve {@link #LLAMADA_EN_COLA}. La llamada que
+ * no está en cola más cercana la ejecuta en un bucle, sin crecer la pila.
+ */
+public abstract class NodoLisp {
+
+    static final Object LLAMADA_EN_COLA = new Object();
+
+    public abstract Object ejecutar(Object[] marco, ContextoEvaluacion ctx);
+
+    @FunctionalInterface
+    interface Primitiva {
+        Object aplicar(Object[] args);
+
+        default Object aplicar(Object[] args, ContextoEvaluacion ctx) {
+            return aplicar(args);
+        }
+    }
+
+    // Primitivas que asignan según sus argumentos: reservan la memoria en el gobernador del contexto
+    interface PrimitivaConContexto extends Primitiva {
+        @Override
+        Object aplicar(Object[] args, ContextoEvaluacion ctx);
+
+        // Sin contexto (p. ej. al plegar constantes) no hay gobernador
+        @Override
+        default Object aplicar(Object[] args) {
+            return aplicar(args, null);
+        }
+    }
+
+    // Llamadas de uno y dos argumentos sin arreglo de argumentos
+    interface Primitiva1 {
+        Object aplicar(Object a);
+    }
+
+    interface Primitiva2 {
+        Object aplicar(Object a, Object b);
+    }
+
+    // Cuerpo de una función ya compilado junto con el tamaño de su marco
+    static final class CuerpoFuncion {
+        final SimboloLisp nombre;
+        final NodoLisp cuerpo;
+        final int tamanoMarco;
+        // Ejecuciones que faltan para compilarlo a bytecode; 0 si no se compila
+        int restantes;
+
+        CuerpoFuncion(SimboloLisp nombre, NodoLisp cuerpo, int tamanoMarco) {
+            this.nombre = nombre;
+            this.cuerpo = cuerpo;
+            this.tamanoMarco = tamanoMarco;
+        }
+    }
+
+    static final class Constante extends NodoLisp {
+        final Object valor;
+
+        Constante(Object valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            return valor;
+        }
+    }
+
+    static final class VariableLocal extends NodoLisp {
+        final int posicion;
+
+        VariableLocal(int posicion) {
+            this.posicion = posicion;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            return marco[posicion];
+        }
+    }
+
+    static final class VariableGlobal extends NodoLisp {
+        private final SimboloLisp nombre;
+
+        VariableGlobal(SimboloLisp nombre) {
+            this.nombre = nombre;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            // Un símbolo sin valor se evalúa a sí mismo
+            return ctx.getEntorno().buscarVariable(nombre, nombre);
+        }
+    }
+
+    static final class SetqLocal extends NodoLisp {
+        final int posicion;
+        final NodoLisp valor;
+
+        SetqLocal(int posicion, NodoLisp valor) {
+            this.posicion = posicion;
+            this.valor = valor;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            Object resultado = valor.ejecutar(marco, ctx);
+            marco[posicion] = resultado;
+            return resultado;
+        }
+    }
+
+    static final class SetqGlobal extends NodoLisp {
+        final SimboloLisp variable;
+        final NodoLisp valor;
+
+        SetqGlobal(SimboloLisp variable, NodoLisp valor) {
+            this.variable = variable;
+            this.valor = valor;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            return ctx.getEntorno().asignarVariable(variable, valor.ejecutar(marco, ctx));
+        }
+    }
+
+    static final class Defun extends NodoLisp {
+        private final SimboloLisp nombre;
+        private final List<String> parametros;
+        private final Object cuerpo;
+        private final CuerpoFuncion compilado;
+
+        Defun(SimboloLisp nombre, List<String> parametros, Object cuerpo, CuerpoFuncion compilado) {
+            this.nombre = nombre;
+            this.parametros = parametros;
+            this.cuerpo = cuerpo;
+            this.compilado = compilado;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            return ctx.getEntorno().registrarFuncion(nombre, parametros, cuerpo, compilado);
+        }
+    }
+
+    static final class DefunMemo extends NodoLisp {
+        private final SimboloLisp nombre;
+        private final List<String> parametros;
+        private final Object cuerpo;
+
+        DefunMemo(SimboloLisp nombre, List<String> parametros, Object cuerpo) {
+            this.nombre = nombre;
+            this.parametros = parametros;
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            return ctx.getEntorno().registrarFuncionMemo(nombre, parametros, cuerpo, MemoLisp.CAPACIDAD_POR_DEFECTO);
+        }
+    }
+
+    static final class Memoizar extends NodoLisp {
+        private final SimboloLisp nombre;
+        private final NodoLisp capacidad;
+
+        Memoizar(SimboloLisp nombre, NodoLisp capacidad) {
+            this.nombre = nombre;
+            this.capacidad = capacidad;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            int n = MemoLisp.CAPACIDAD_POR_DEFECTO;
+            if (capacidad != null) {
+                Object valor = capacidad.ejecutar(marco, ctx);
+                if (!(valor instanceof Integer)) {
+                    throw new ErrorLisp(CategoriaError.TIPO, "Error: memoize requiere un entero pero se encontró: " + valor);
+                }
+                n = (Integer) valor;
+            }
+            return ctx.getEntorno().memoizar(nombre, n);
+        }
+    }
+
+    /**
+     * Cuerpo de una función memoizada: busca los argumentos (las primeras
+     * posiciones del marco) en la caché antes de evaluar el cuerpo. El cuerpo
+     * se compila fuera de posición de cola, así que nunca deja una llamada
+     * en cola pendiente.
+     */
+    static final class Memo extends NodoLisp {
+        final MemoLisp memo;
+        final int aridad;
+        final NodoLisp cuerpo;
+
+        Memo(MemoLisp memo, int aridad, NodoLisp cuerpo) {
+            this.memo = memo;
+            this.aridad = aridad;
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            Object clave = MemoLisp.clave(marco, aridad);
+            Object valor = memo.obtener(clave);
+            if (valor == null) {
+                valor = cuerpo.ejecutar(marco, ctx);
+                memo.guardar(clave, valor);
+            }
+            return valor;
+        }
+    }
+
+    static final class Cond extends NodoLisp {
+        final NodoLisp[] condiciones;
+        final NodoLisp[] cuerpos;
+
+        Cond(NodoLisp[] condiciones, NodoLisp[] cuerpos) {
+            this.condiciones = condiciones;
+            this.cuerpos = cuerpos;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            for (int i = 0; i < condiciones.length; i++) {
+                if (LispEvaluator.isTrue(condiciones[i].ejecutar(marco, ctx))) {
+                    return cuerpos[i].ejecutar(marco, ctx);
+                }
+            }
+            return SimboloLisp.NIL;
+        }
+    }
+
+    // Formas en orden; el valor es el de la última, que puede estar en cola
+    static final class Progn extends NodoLisp {
+        final NodoLisp[] formas;
+
+        Progn(NodoLisp[] formas) {
+            this.formas = formas;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            int ultima = formas.length - 1;
+            for (int i = 0; i < ultima; i++) {
+                formas[i].ejecutar(marco, ctx);
+            }
+            return formas[ultima].ejecutar(marco, ctx);
+        }
+    }
+
+    // Las variables de let ocupan posiciones propias del marco de la función
+    static final class Let extends NodoLisp {
+        final int[] posiciones;
+        final NodoLisp[] valores;
+        final NodoLisp cuerpo;
+
+        Let(int[] posiciones, NodoLisp[] valores, NodoLisp cuerpo) {
+            this.posiciones = posiciones;
+            this.valores = valores;
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            // Los valores no ven las variables nuevas, así que se pueden guardar según se calculan
+            for (int i = 0; i < valores.length; i++) {
+                marco[posiciones[i]] = valores[i].ejecutar(marco, ctx);
+            }
+            return cuerpo.ejecutar(marco, ctx);
+        }
+    }
+
+    // (while prueba cuerpo...): devuelve nil
+    static final class While extends NodoLisp {
+        final NodoLisp prueba;
+        final NodoLisp cuerpo;
+
+        While(NodoLisp prueba, NodoLisp cuerpo) {
+            this.prueba = prueba;
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            while (LispEvaluator.isTrue(prueba.ejecutar(marco, ctx))) {
+                ctx.paso();
+                cuerpo.ejecutar(marco, ctx);
+            }
+            return SimboloLisp.NIL;
+        }
+    }
+
+    /**
+     * (dotimes (i n [resultado]) cuerpo...): i va de 0 a n-1 y el resultado se
+     * evalúa con i = n. El contador es propio: un setq sobre i dentro del
+     * cuerpo no cambia el número de vueltas.
+     */
+    static final class Dotimes extends NodoLisp {
+        final int posicion;
+        final NodoLisp cantidad;
+        final NodoLisp cuerpo;
+        final NodoLisp resultado;
+
+        Dotimes(int posicion, NodoLisp cantidad, NodoLisp cuerpo, NodoLisp resultado) {
+            this.posicion = posicion;
+            this.cantidad = cantidad;
+            this.cuerpo = cuerpo;
+            this.resultado = resultado;
+        }
+
+        static long limite(Object valor) {
+            if (!NumerosLisp.esFijo(valor)) {
+                throw new ErrorLisp(CategoriaError.TIPO, "Error: dotimes requiere una cantidad entera pero se encontró: " + valor);
+            }
+            return ((Number) valor).longValue();
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            long n = limite(cantidad.ejecutar(marco, ctx));
+            for (long i = 0; i < n; i++) {
+                ctx.paso();
+                marco[posicion] = NumerosLisp.entero(i);
+                cuerpo.ejecutar(marco, ctx);
+            }
+            marco[posicion] = NumerosLisp.entero(Math.max(n, 0));
+            return resultado.ejecutar(marco, ctx);
+        }
+    }
+
+    // Forma de nivel superior con variables de let o dotimes: les da un marco
+    static final class ConMarco extends NodoLisp {
+        final NodoLisp cuerpo;
+        final int tamanoMarco;
+
+        ConMarco(NodoLisp cuerpo, int tamanoMarco) {
+            this.cuerpo = cuerpo;
+            this.tamanoMarco = tamanoMarco;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            return cuerpo.ejecutar(new Object[tamanoMarco], ctx);
+        }
+    }
+
+    static final class LlamadaPrimitiva extends NodoLisp {
+        final Primitiva primitiva;
+        final NodoLisp[] argumentos;
+
+        LlamadaPrimitiva(Primitiva primitiva, NodoLisp[] argumentos) {
+            this.primitiva = primitiva;
+            this.argumentos = argumentos;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            Object[] valores = new Object[argumentos.length];
+            for (int i = 0; i < argumentos.length; i++) {
+                valores[i] = argumentos[i].ejecutar(marco, ctx);
+            }
+            return primitiva.aplicar(valores, ctx);
+        }
+    }
+
+    static final class LlamadaPrimitiva1 extends NodoLisp {
+        final Primitiva1 primitiva;
+        final NodoLisp argumento;
+
+        LlamadaPrimitiva1(Primitiva1 primitiva, NodoLisp argumento) {
+            this.primitiva = primitiva;
+            this.argumento = argumento;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            return primitiva.aplicar(argumento.ejecutar(marco, ctx));
+        }
+    }
+
+    static final class LlamadaPrimitiva2 extends NodoLisp {
+        final Primitiva2 primitiva;
+        final NodoLisp primero;
+        final NodoLisp segundo;
+
+        LlamadaPrimitiva2(Primitiva2 primitiva, NodoLisp primero, NodoLisp segundo) {
+            this.primitiva = primitiva;
+            this.primero = primero;
+            this.segundo = segundo;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            Object a = primero.ejecutar(marco, ctx);
+            return primitiva.aplicar(a, segundo.ejecutar(marco, ctx));
+        }
+    }
+
+    static final class LlamadaFuncion extends NodoLisp {
+        private final LispEvaluator evaluador;
+        final SimboloLisp nombre;
+        final NodoLisp[] argumentos;
+        final boolean enCola;
+        // Última resolución; inmutable, así que se puede leer sin sincronizar
+        private CacheLlamada cache;
+
+        LlamadaFuncion(LispEvaluator evaluador, SimboloLisp nombre, NodoLisp[] argumentos, boolean enCola) {
+            this.evaluador = evaluador;
+            this.nombre = nombre;
+            this.argumentos = argumentos;
+            this.enCola = enCola;
+        }
+
+        // Busca la función y comprueba el número de argumentos antes de evaluarlos
+        CuerpoFuncion resolver(ContextoEvaluacion ctx) {
+            EntornoLisp entorno = ctx.getEntorno();
+            CacheLlamada c = cache;
+            if (c != null && c.tabla == entorno.tablaFunciones() && c.version == entorno.versionFunciones()) {
+                return c.cuerpo;
+            }
+            return resolverSinCache(entorno);
+        }
+
+        private CuerpoFuncion resolverSinCache(EntornoLisp entorno) {
+            // La versión se lee antes de buscar: si cambia mientras tanto, la caché ya nace inválida
+            int version = entorno.versionFunciones();
+            EntornoLisp.DefinicionFuncion funcion = entorno.buscarFuncion(nombre);
+            if (funcion == null) {
+                throw new ErrorLisp(CategoriaError.FUNCION_NO_DEFINIDA, "Error: función " + nombre + " no definida");
+            }
+
+            int esperados = funcion.getParametros().size();
+            if (argumentos.length != esperados) {
+                throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: se esperaban " + esperados +
+                                    " argumentos, pero se recibieron " + argumentos.length);
+            }
+            CuerpoFuncion cuerpo = evaluador.cuerpoCompilado(nombre, funcion);
+            cache = new CacheLlamada(entorno.tablaFunciones(), version, cuerpo);
+            return cuerpo;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            // Los argumentos se evalúan en el marco del llamador y ocupan las
+            // primeras posiciones del marco nuevo
+            ctx.paso();
+            CuerpoFuncion cuerpo = resolver(ctx);
+            if (cuerpo.restantes > 0 && --cuerpo.restantes == 0) {
+                cuerpo = evaluador.compilarEnCaliente(cuerpo, ctx);
+            }
+            Object[] marcoLocal = new Object[cuerpo.tamanoMarco];
+            for (int i = 0; i < argumentos.length; i++) {
+                marcoLocal[i] = argumentos[i].ejecutar(marco, ctx);
+            }
+
+            if (enCola) {
+                ctx.cuerpoPendiente = cuerpo;
+                ctx.marcoPendiente = marcoLocal;
+                return LLAMADA_EN_COLA;
+            }
+
+            if (++ctx.profundidad > LispEvaluator.PROFUNDIDAD_MAXIMA) {
+                ctx.profundidad--;
+                throw new ErrorLisp(CategoriaError.PROFUNDIDAD, "Se ha excedido la profundidad máxima de recursión (" +
+                                    LispEvaluator.PROFUNDIDAD_MAXIMA + ")");
+            }
+            if (ctx.profundidad > ctx.profundidadMaxima) {
+                ctx.profundidadMaxima = ctx.profundidad;
+            }
+            if (ctx.perfil != null) {
+                return ejecutarPerfilado(cuerpo, marcoLocal, ctx);
+            }
+            try {
+                Object resultado = cuerpo.cuerpo.ejecutar(marcoLocal, ctx);
+                while (resultado == LLAMADA_EN_COLA) {
+                    CuerpoFuncion siguiente = ctx.cuerpoPendiente;
+                    Object[] marcoSiguiente = ctx.marcoPendiente;
+                    ctx.cuerpoPendiente = null;
+                    ctx.marcoPendiente = null;
+                    if (siguiente.restantes > 0 && --siguiente.restantes == 0) {
+                        siguiente = evaluador.compilarEnCaliente(siguiente, ctx);
+                    }
+                    resultado = siguiente.cuerpo.ejecutar(marcoSiguiente, ctx);
+                }
+                return resultado;
+            } finally {
+                ctx.profundidad--;
+            }
+        }
+
+        // Igual que el trampolín de ejecutar, pero cada llamada en cola abre una
+        // activación más en el perfil; todas se cierran al volver
+        private static Object ejecutarPerfilado(CuerpoFuncion cuerpo, Object[] marcoLocal, ContextoEvaluacion ctx) {
+            PerfilLisp perfil = ctx.perfil;
+            int nivel = perfil.nivel();
+            perfil.entrar(cuerpo.nombre);
+            try {
+                Object resultado = cuerpo.cuerpo.ejecutar(marcoLocal, ctx);
+                while (resultado == LLAMADA_EN_COLA) {
+                    CuerpoFuncion siguiente = ctx.cuerpoPendiente;
+                    Object[] marcoSiguiente = ctx.marcoPendiente;
+                    ctx.cuerpoPendiente = null;
+                    ctx.marcoPendiente = null;
+                    perfil.entrar(siguiente.nombre);
+                    resultado = siguiente.cuerpo.ejecutar(marcoSiguiente, ctx);
+                }
+                return resultado;
+            } finally {
+                ctx.profundidad--;
+                perfil.cerrarHasta(nivel);
+            }
+        }
+    }
+
+    private static final class CacheLlamada {
+        final Object tabla;
+        final int version;
+        final CuerpoFuncion cuerpo;
+
+        CacheLlamada(Object tabla, int version, CuerpoFuncion cuerpo) {
+            this.tabla = tabla;
+            this.version = version;
+            this.cuerpo = cuerpo;
+        }
+    }
+
+    // (pcall f a b ...): evalúa los argumentos en paralelo y llama a f con los valores en orden
+    static final class Pcall extends NodoLisp {
+        private final LispEvaluator evaluador;
+        final NodoLisp[] argumentos;
+        private final CuerpoFuncion aplicacion;
+
+        Pcall(LispEvaluator evaluador, NodoLisp[] argumentos, CuerpoFuncion aplicacion) {
+            this.evaluador = evaluador;
+            this.argumentos = argumentos;
+            this.aplicacion = aplicacion;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            Object[] valores = EvaluacionParalela.ejecutar(argumentos.length,
+                    (i, rama) -> evaluador.ejecutar(argumentos[i], marco, rama), ctx, evaluador.getUmbralParalelo());
+            return evaluador.ejecutar(aplicacion.cuerpo, valores, ctx);
+        }
+    }
+
+    // (pmap f lista): aplica f a cada elemento en paralelo; el resultado conserva el orden
+    static final class Pmap extends NodoLisp {
+        private final LispEvaluator evaluador;
+        private final NodoLisp lista;
+        private final CuerpoFuncion aplicacion;
+
+        Pmap(LispEvaluator evaluador, NodoLisp lista, CuerpoFuncion aplicacion) {
+            this.evaluador = evaluador;
+            this.lista = lista;
+            this.aplicacion = aplicacion;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            Object[] elementos = LispEvaluator.lista(evaluador.ejecutar(lista, marco, ctx), "pmap").toArray();
+            Object[] resultados = EvaluacionParalela.ejecutar(elementos.length,
+                    (i, rama) -> evaluador.ejecutar(aplicacion.cuerpo, new Object[] {elementos[i]}, rama),
+                    ctx, evaluador.getUmbralParalelo());
+            return ConsLisp.de(resultados);
+        }
+    }
+
+    /**
+     * (profile expr): evalúa expr perfilando las funciones de usuario y
+     * devuelve el valor; el perfil queda en la sesión (getPerfilesProfile)
+     * para que quien la use muestre el informe. Si el contexto ya se está perfilando
+     * (sesión con perfil activo) las llamadas se suman a ese perfil.
+     */
+    static final class Perfilar extends NodoLisp {
+        private final LispEvaluator evaluador;
+        private final NodoLisp expresion;
+
+        Perfilar(LispEvaluator evaluador, NodoLisp expresion) {
+            this.evaluador = evaluador;
+            this.expresion = expresion;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            if (ctx.perfil != null) {
+                return evaluador.ejecutar(expresion, marco, ctx);
+            }
+            PerfilLisp perfil = new PerfilLisp();
+            ctx.perfil = perfil;
+            try {
+                return evaluador.ejecutar(expresion, marco, ctx);
+            } finally {
+                ctx.perfil = null;
+                perfil.cerrarHasta(0);
+                ctx.guardarPerfil(perfil);
+            }
+        }
+    }
+
+    /**
+     * Forma mal construida. El error se difiere hasta la ejecución para que se
+     * reporte en el mismo momento que lo hacía el evaluador por recorrido.
+     */
+    static final class FormaInvalida extends NodoLisp {
+        private final CategoriaError categoria;
+        private final String mensaje;
+
+        FormaInvalida(CategoriaError categoria, String mensaje) {
+            this.categoria = categoria;
+            this.mensaje = mensaje;
+        }
+
+        @Override
+        public Object ejecutar(Object[] marco, ContextoEvaluacion ctx) {
+            throw new ErrorLisp(categoria, mensaje);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package Interprete;
+
+import java.math.BigInteger;
+
+import Interprete.MetricasLisp.CategoriaError;
+
+/**
+ * Torre numérica del intérprete. Los enteros se representan como Integer
+ * mientras caben en 32 bits, como Long hasta 64 bits y como BigInteger a
+ * partir de ahí; las operaciones entre enteros se hacen con long y
+ * Math.*Exact, y solo pasan a BigInteger al desbordar. Los Double aparecen
+ * únicamente cuando interviene un operando decimal o una división inexacta.
+ */
+final class NumerosLisp {
+
+    private static final int CACHE_MINIMO = -1024;
+    private static final int CACHE_MAXIMO = 16383;
+    private static final Integer[] CACHE = new Integer[CACHE_MAXIMO - CACHE_MINIMO + 1];
+
+    private static final BigInteger LONG_MINIMO = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAXIMO = BigInteger.valueOf(Long.MAX_VALUE);
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = i + CACHE_MINIMO;
+        }
+    }
+
+    private NumerosLisp() {
+    }
+
+    // Forma canónica de un entero: Integer (de la caché si es pequeño) o Long
+    static Number entero(long valor) {
+        if (valor >= CACHE_MINIMO && valor <= CACHE_MAXIMO) {
+            return CACHE[(int) valor - CACHE_MINIMO];
+        }
+        if (valor == (int) valor) {
+            return (int) valor;
+        }
+        return valor;
+    }
+
+    static Number entero(BigInteger valor) {
+        if (valor.compareTo(LONG_MINIMO) >= 0 && valor.compareTo(LONG_MAXIMO) <= 0) {
+            return entero(valor.longValue());
+        }
+        return valor;
+    }
+
+    static Number numero(Object valor) {
+        if (!(valor instanceof Number)) {
+            throw new ErrorLisp(CategoriaError.TIPO, "Error: se esperaba un número pero se encontró: " + valor);
+        }
+        return (Number) valor;
+    }
+
+    // Enteros que caben en un long
+    static boolean esFijo(Object valor) {
+        return valor instanceof Integer || valor instanceof Long
+            || valor instanceof Short || valor instanceof Byte;
+    }
+
+    static boolean esDecimal(Object valor) {
+        return valor instanceof Double || valor instanceof Float;
+    }
+
+    private static BigInteger grande(Number valor) {
+        return valor instanceof BigInteger ? (BigInteger) valor : BigInteger.valueOf(valor.longValue());
+    }
+
+    static Number sumar(Number a, Number b) {
+        if (esFijo(a) && esFijo(b)) {
+            long x = a.longValue();
+            long y = b.longValue();
+            try {
+                return entero(Math.addExact(x, y));
+            } catch (ArithmeticException desborde) {
+                return BigInteger.valueOf(x).add(BigInteger.valueOf(y));
+            }
+        }
+        if (esDecimal(a) || esDecimal(b)) {
+            return a.doubleValue() + b.doubleValue();
+        }
+        return entero(grande(a).add(grande(b)));
+    }
+
+    static Number restar(Number a, Number b) {
+        if (esFijo(a) && esFijo(b)) {
+            long x = a.longValue();
+            long y = b.longValue();
+            try {
+                return entero(Math.subtractExact(x, y));
+            } catch (ArithmeticException desborde) {
+                return BigInteger.valueOf(x).subtract(BigInteger.valueOf(y));
+            }
+        }
+        if (esDecimal(a) || esDecimal(b)) {
+            return a.doubleValue() - b.doubleValue();
+        }
+        return entero(grande(a).subtract(grande(b)));
+    }
+
+    static Number multiplicar(Number a, Number b) {
+        if (esFijo(a) && esFijo(b)) {
+            long x = a.longValue();
+            long y = b.longValue();
+            try {
+                return entero(Math.multiplyExact(x, y));
+            } catch (ArithmeticException desborde) {
+                return BigInteger.valueOf(x).multiply(BigInteger.valueOf(y));
+            }
+        }
+        if (esDecimal(a) || esDecimal(b)) {
+            return a.doubleValue() * b.doubleValue();
+        }
+        return entero(grande(a).multiply(grande(b)));
+    }
+
+    // División exacta entre enteros devuelve entero; si no es exacta, Double
+    static Number dividir(Number a, Number b) {
+        if (esDecimal(a) || esDecimal(b)) {
+            double divisor = b.doubleValue();
+            if (divisor == 0) throw new ErrorLisp(CategoriaError.DIVISION_POR_CERO, "Error: división por cero");
+            return a.doubleValue() / divisor;
+        }
+        if (esFijo(a) && esFijo(b)) {
+            long x = a.longValue();
+            long y = b.longValue();
+            if (y == 0) throw new ErrorLisp(CategoriaError.DIVISION_POR_CERO, "Error: división por cero");
+            if (x % y != 0) {
+                return (double) x / (double) y;
+            }
+            if (x != Long.MIN_VALUE || y != -1) {
+                return entero(x / y);
+            }
+        }
+        BigInteger divisor = grande(b);
+        if (divisor.signum() == 0) throw new ErrorLisp(CategoriaError.DIVISION_POR_CERO, "Error: división por cero");
+        BigInteger[] cocienteResto = grande(a).divideAndRemainder(divisor);
+        if (cocienteResto[1].signum() == 0) {
+            return entero(cocienteResto[0]);
+        }
+        return a.doubleValue() / b.doubleValue();
+    }
+
+    static Number negar(Number a) {
+        return restar(0, a);
+    }
+
+    static int comparar(Number a, Number b) {
+        if (esFijo(a) && esFijo(b)) {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        if (esDecimal(a) || esDecimal(b)) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        return grande(a).compareTo(grande(b));
+    }
+
+    // Suma de varios argumentos acumulando en un long sin crear objetos intermedios
+    static Number sumar(Object[] args) {
+        long acumulado = 0;
+        int i = 0;
+        for (; i < args.length && esFijo(args[i]); i++) {
+            long valor = ((Number) args[i]).longValue();
+            long suma = acumulado + valor;
+            if (((acumulado ^ suma) & (valor ^ suma)) < 0) {
+                break; // desbordamiento: se continúa por el camino general
+            }
+            acumulado = suma;
+        }
+        Number resultado = entero(acumulado);
+        for (; i < args.length; i++) {
+            resultado = sumar(resultado, numero(args[i]));
+        }
+        return resultado;
+    }
+
+    static Number multiplicar(Object[] args) {
+        long acumulado = 1;
+        int i = 0;
+        for (; i < args.length && esFijo(args[i]); i++) {
+            long valor = ((Number) args[i]).longValue();
+            long alto = Math.multiplyHigh(acumulado, valor);
+            long producto = acumulado * valor;
+            if (alto != (producto >> 63)) {
+                break; // desbordamiento: se continúa por el camino general
+            }
+            acumulado = producto;
+        }
+        Number resultado = entero(acumulado);
+        for (; i < args.length; i++) {
+            resultado = multiplicar(resultado, numero(args[i]));
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,33 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+public class NumerosLispTest {
+
+    @Test
+    public void testIntegerOverflowPromotes() {
+        assertEquals(2147483648L, NumerosLisp.sumar(Integer.MAX_VALUE, 1));
+        assertEquals(new BigInteger("9223372036854775808"), NumerosLisp.sumar(Long.MAX_VALUE, 1));
+        assertEquals(new BigInteger("18446744073709551614"),
+                     NumerosLisp.multiplicar(new Object[] { Long.MAX_VALUE, 2 }));
+    }
+
+    @Test
+    public void testResultsAreCanonical() {
+        assertEquals(3, NumerosLisp.restar(new BigInteger("9223372036854775810"),
+                                           new BigInteger("9223372036854775807")));
+        assertEquals(5, NumerosLisp.dividir(10, 2));
+        assertEquals(2.5, NumerosLisp.dividir(5, 2));
+        assertEquals(3.0, NumerosLisp.sumar(1.5, 1.5));
+    }
+
+    @Test
+    public void testSmallIntegersAreCached() {
+        assertSame(NumerosLisp.entero(1000), NumerosLisp.sumar(999, 1));
+    }
+}
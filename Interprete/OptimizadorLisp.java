@@ -0,0 +1,234 @@
+package Interprete;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reescritura de formas ya leídas antes de compilarlas:
+ * - primitivas con todos los argumentos constantes se sustituyen por su
+ *   valor, y en + y * se agrupan las constantes iniciales;
+ * - las cláusulas de cond con prueba constante falsa se eliminan, y las que
+ *   siguen a una prueba constante verdadera también;
+ * - en progn, while, let y dotimes se optimizan las subformas que son
+ *   expresiones (no los nombres de variables);
+ * - '5, 't y 'nil se escriben sin quote.
+ *
+ * Las variables nunca se tratan como constantes, así que setq no puede
+ * invalidar nada, y una forma con efectos (setq, llamadas a funciones de
+ * usuario) nunca desaparece. Si evaluar una primitiva lanza un error (p. ej.
+ * división por cero) se deja tal cual, para que falle al ejecutarse como
+ * sin optimizar. Los cuerpos de defun no se tocan aquí: se optimizan al
+ * compilarlos, y la definición guardada conserva la forma original.
+ */
+final class OptimizadorLisp {
+
+    private static final SimboloLisp SETQ = SimboloLisp.intern("setq");
+    private static final SimboloLisp DEFUN = SimboloLisp.intern("defun");
+    private static final SimboloLisp COND = SimboloLisp.intern("cond");
+    private static final SimboloLisp PCALL = SimboloLisp.intern("pcall");
+    private static final SimboloLisp PMAP = SimboloLisp.intern("pmap");
+    private static final SimboloLisp PROFILE = SimboloLisp.intern("profile");
+    private static final SimboloLisp PROGN = SimboloLisp.intern("progn");
+    private static final SimboloLisp WHILE = SimboloLisp.intern("while");
+    private static final SimboloLisp LET = SimboloLisp.intern("let");
+    private static final SimboloLisp DOTIMES = SimboloLisp.intern("dotimes");
+    private static final SimboloLisp SUMA = SimboloLisp.intern("+");
+    private static final SimboloLisp PRODUCTO = SimboloLisp.intern("*");
+
+    private final LispEvaluator evaluador;
+
+    OptimizadorLisp(LispEvaluator evaluador) {
+        this.evaluador = evaluador;
+    }
+
+    Object optimizar(Object forma) {
+        if (!(forma instanceof List) || ((List<?>) forma).isEmpty()) {
+            return forma;
+        }
+        Object[] elementos = ((List<?>) forma).toArray();
+        SimboloLisp cabeza = LispEvaluator.simbolo(elementos[0]);
+
+        if (cabeza == SimboloLisp.QUOTE) {
+            return elementos.length == 2 && esAutoevaluado(elementos[1]) ? elementos[1] : forma;
+        }
+        if (cabeza == COND) {
+            return optimizarCond(elementos);
+        }
+        if (cabeza == SETQ || cabeza == PCALL || cabeza == PMAP) {
+            // El primer argumento es un nombre, no una expresión
+            return optimizarDesde(forma, elementos, 2);
+        }
+        if (cabeza == PROFILE || cabeza == PROGN || cabeza == WHILE) {
+            return optimizarDesde(forma, elementos, 1);
+        }
+        if ((cabeza == LET || cabeza == DOTIMES) && elementos.length >= 2 && elementos[1] instanceof List) {
+            // Lo que sigue a la lista de variables es el cuerpo
+            boolean cambio = optimizarElementos(elementos, 2);
+            Object variables = cabeza == LET ? optimizarEnlaces((List<?>) elementos[1]) : optimizarEspecificacion((List<?>) elementos[1]);
+            cambio |= variables != elementos[1];
+            elementos[1] = variables;
+            return cambio ? ConsLisp.de(elementos) : forma;
+        }
+        if (cabeza == DEFUN || (cabeza != null && evaluador.esFormaEspecial(cabeza))) {
+            return forma;
+        }
+
+        boolean cambio = optimizarElementos(elementos, 1);
+        NodoLisp.Primitiva primitiva = cabeza == null ? null : evaluador.primitiva(cabeza);
+        if (primitiva != null) {
+            Object plegada = plegar(primitiva, elementos, 1);
+            if (plegada != null) {
+                return plegada;
+            }
+            if (cabeza == SUMA || cabeza == PRODUCTO) {
+                Object[] agrupados = agruparConstantes(primitiva, elementos);
+                if (agrupados != null) {
+                    return ConsLisp.de(agrupados);
+                }
+            }
+        }
+        return cambio ? ConsLisp.de(elementos) : forma;
+    }
+
+    private Object optimizarDesde(Object forma, Object[] elementos, int desde) {
+        return optimizarElementos(elementos, desde) ? ConsLisp.de(elementos) : forma;
+    }
+
+    // Optimiza elementos[desde..] en el sitio; devuelve true si alguno cambió
+    private boolean optimizarElementos(Object[] elementos, int desde) {
+        boolean cambio = false;
+        for (int i = desde; i < elementos.length; i++) {
+            Object optimizado = optimizar(elementos[i]);
+            cambio |= optimizado != elementos[i];
+            elementos[i] = optimizado;
+        }
+        return cambio;
+    }
+
+    // ((x 1) y) -> valores optimizados; los nombres no se tocan
+    private Object optimizarEnlaces(List<?> enlaces) {
+        Object[] elementos = enlaces.toArray();
+        boolean cambio = false;
+        for (int i = 0; i < elementos.length; i++) {
+            if (elementos[i] instanceof List && ((List<?>) elementos[i]).size() == 2) {
+                Object[] enlace = ((List<?>) elementos[i]).toArray();
+                if (optimizarElementos(enlace, 1)) {
+                    elementos[i] = ConsLisp.de(enlace);
+                    cambio = true;
+                }
+            }
+        }
+        return cambio ? ConsLisp.de(elementos) : enlaces;
+    }
+
+    // (i n [resultado]) de dotimes
+    private Object optimizarEspecificacion(List<?> especificacion) {
+        Object[] elementos = especificacion.toArray();
+        return optimizarElementos(elementos, 1) ? ConsLisp.de(elementos) : especificacion;
+    }
+
+    private Object optimizarCond(Object[] elementos) {
+        List<Object> clausulas = new ArrayList<>();
+        clausulas.add(elementos[0]);
+        for (int i = 1; i < elementos.length; i++) {
+            Object clausula = elementos[i];
+            if (!(clausula instanceof List) || ((List<?>) clausula).size() < 2) {
+                // Mal formada: se conserva para que el error salga al ejecutarla
+                clausulas.add(clausula);
+                continue;
+            }
+            Object[] partes = ((List<?>) clausula).toArray();
+            boolean cambio = optimizarElementos(partes, 0);
+            if (!esConstante(partes[0])) {
+                clausulas.add(cambio ? ConsLisp.de(partes) : clausula);
+                continue;
+            }
+            if (!LispEvaluator.isTrue(valor(partes[0]))) {
+                continue;
+            }
+            if (clausulas.size() == 1) {
+                // Primera cláusula alcanzable y siempre verdadera: el cond es su cuerpo
+                if (partes.length == 2) {
+                    return partes[1];
+                }
+                partes[0] = PROGN;
+                return ConsLisp.de(partes);
+            }
+            clausulas.add(ConsLisp.de(partes));
+            break;
+        }
+        if (clausulas.size() == 1) {
+            return SimboloLisp.NIL;
+        }
+        return ConsLisp.de(clausulas.toArray());
+    }
+
+    // Valor de la primitiva si todos los argumentos desde el índice dado son constantes
+    private Object plegar(NodoLisp.Primitiva primitiva, Object[] elementos, int desde) {
+        Object[] argumentos = new Object[elementos.length - desde];
+        for (int i = desde; i < elementos.length; i++) {
+            if (!esConstante(elementos[i])) {
+                return null;
+            }
+            argumentos[i - desde] = valor(elementos[i]);
+        }
+        try {
+            return comoForma(primitiva.aplicar(argumentos));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // (+ 1 2 x) -> (+ 3 x): + y * se evalúan de izquierda a derecha, así que el prefijo constante se puede plegar
+    private Object[] agruparConstantes(NodoLisp.Primitiva primitiva, Object[] elementos) {
+        int prefijo = 1;
+        while (prefijo < elementos.length && esConstante(elementos[prefijo])) {
+            prefijo++;
+        }
+        if (prefijo - 1 < 2) {
+            return null;
+        }
+        Object[] constantes = new Object[prefijo - 1];
+        for (int i = 1; i < prefijo; i++) {
+            constantes[i - 1] = valor(elementos[i]);
+        }
+        Object parcial;
+        try {
+            parcial = primitiva.aplicar(constantes);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        Object[] agrupados = new Object[elementos.length - prefijo + 2];
+        agrupados[0] = elementos[0];
+        agrupados[1] = comoForma(parcial);
+        System.arraycopy(elementos, prefijo, agrupados, 2, elementos.length - prefijo);
+        return agrupados;
+    }
+
+    private static boolean esAutoevaluado(Object forma) {
+        return forma instanceof Number || forma == SimboloLisp.T || forma == SimboloLisp.NIL;
+    }
+
+    private static boolean esConstante(Object forma) {
+        if (esAutoevaluado(forma)) {
+            return true;
+        }
+        if (!(forma instanceof List)) {
+            return false;
+        }
+        List<?> lista = (List<?>) forma;
+        return lista.isEmpty() || (lista.size() == 2 && LispEvaluator.simbolo(lista.get(0)) == SimboloLisp.QUOTE);
+    }
+
+    private static Object valor(Object constante) {
+        if (constante instanceof List && !((List<?>) constante).isEmpty()) {
+            return ((List<?>) constante).get(1);
+        }
+        return constante;
+    }
+
+    // Forma que al evaluarse da exactamente el valor
+    private static Object comoForma(Object valor) {
+        return esAutoevaluado(valor) ? valor : ConsLisp.de(SimboloLisp.QUOTE, valor);
+    }
+}
@@ -0,0 +1,105 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OptimizadorLispTest {
+
+    private final LispParser parser = new LispParser();
+    private final OptimizadorLisp optimizador = new OptimizadorLisp(new LispEvaluator());
+
+    private void assertOptimiza(String esperado, String forma) {
+        assertEquals(parser.parse(esperado), optimizador.optimizar(parser.parse(forma)));
+    }
+
+    @Test
+    public void testFoldsConstantArithmeticAndComparisons() {
+        assertOptimiza("14", "(* 2 (+ 3 4))");
+        assertOptimiza("t", "(< 1 (+ 1 1))");
+        assertOptimiza("nil", "(equal '(1 2) '(1 3))");
+        assertOptimiza("(quote (1 2))", "(list 1 (+ 1 1))");
+        assertOptimiza("(quote a)", "(car '(a b))");
+        assertOptimiza("(+ 3 x)", "(+ 1 2 x)");
+        assertOptimiza("(f 3 (g 2))", "(f (+ 1 2) (g (* 1 2)))");
+        assertOptimiza("5", "'5");
+    }
+
+    @Test
+    public void testLeavesErrorsForRuntime() {
+        assertOptimiza("(/ 1 0)", "(/ 1 0)");
+        assertOptimiza("(car 5)", "(car 5)");
+        assertOptimiza("(- x 3)", "(- x (+ 1 2))");
+    }
+
+    @Test
+    public void testPrunesDeadCondClauses() {
+        assertOptimiza("2", "(cond (nil 1) (t 2) (x 3))");
+        assertOptimiza("a", "(cond ((< 1 2) a) (t b))");
+        assertOptimiza("(cond ((equal x 1) 1) (t 3))", "(cond ((equal x 1) 1) (nil 2) (t 3) (y 4))");
+        assertOptimiza("nil", "(cond (nil 1) ((> 1 2) 2))");
+        assertOptimiza("(cond ((setq x nil) 1) (t 2))", "(cond ((setq x nil) 1) (t (+ 1 1)))");
+        assertOptimiza("(progn (setq x 1) 3)", "(cond (nil 0) (t (setq x 1) (+ 1 2)) (x 4))");
+        assertOptimiza("(cond (x (print x) 2))", "(cond (x (print x) (+ 1 1)) ((> 1 2) 3))");
+    }
+
+    @Test
+    public void testOptimizesInsideIterationForms() {
+        assertOptimiza("(let ((x 3) y) (+ x 2))", "(let ((x (+ 1 2)) y) (+ x (* 1 2)))");
+        assertOptimiza("(dotimes (i 10 (+ 2 i)) (setq s (+ s i)))", "(dotimes (i (* 2 5) (+ 1 1 i)) (setq s (+ s i)))");
+        assertOptimiza("(while (< i 3) (setq i (+ i 1)))", "(while (< i (+ 1 2)) (setq i (+ i 1)))");
+        assertOptimiza("(progn 3 x)", "(progn (+ 1 2) x)");
+    }
+
+    @Test
+    public void testRespectsSpecialForms() {
+        assertOptimiza("(setq x 3)", "(setq x (+ 1 2))");
+        Object defun = parser.parse("(defun f (x) (+ 1 2 x))");
+        assertSame(defun, optimizador.optimizar(defun));
+        Object quote = parser.parse("'(+ 1 2)");
+        assertSame(quote, optimizador.optimizar(quote));
+    }
+
+    // Cada programa se evalúa con y sin optimizar; resultados y errores deben coincidir
+    private static final String[][] PROGRAMAS = {
+        {"(* 2 (+ 3 4))", "(- 10 (/ 9 3) 1.5)", "(+ 1 2 3000000000 4000000000)", "(* 99999999999 99999999999 2)"},
+        {"(setq x 5)", "(+ x (* 2 3))", "(setq x (+ x 1))", "(cond ((equal x 6) (setq x 0)) (t 1))", "x"},
+        {"(defun fib (n) (cond ((< n (+ 1 1)) n) (nil 0) (t (+ (fib (- n 1)) (fib (- n (* 1 2)))))))", "(fib 15)"},
+        {"(defun f (x) (cond (nil (car 5)) ((> 1 2) 0) (t (list x (+ 1 1) '(a b)))))", "(f 7)", "(car (f 1))"},
+        {"(/ 1 0)", "(car 5)", "(cond (t (/ 5 0)))", "(cond (nil 1))", "(+ 1 'a)"},
+        {"(setq l (cons 1 '(2 3)))", "(cdr l)", "(atom (car l))", "(null (cdr '(1)))", "(equal l '(1 2 3))"},
+        {"(defun g (n acc) (cond ((equal n 0) acc) (t (g (- n 1) (+ acc 1 2)))))", "(g 500 (* 0 5))"},
+        {"(pmap fib '(1 2 (+ 1 2)))", "(defun fib (n) n)", "(pcall + (+ 1 2) (* 2 3))", "(pmap fib (list 1 (+ 1 1)))"},
+        {"(cond (x 1) (t 2))", "(setq x nil)", "(cond (x 1) (t 2))", "(cond ((quote nil) 1) ('t 2))"},
+        {"(factorial (+ 2 3))", "(let ((x (+ 1 2)) (y x)) (list x y))", "(dotimes (i (* 2 3) (+ i 1)) (setq s i))", "s"},
+        {"(defun suma (n) (let ((s 0)) (dotimes (i n s) (setq s (+ s i)))))", "(suma (* 10 10))", "(dotimes (i 'a) 1)"},
+        {"(setq i 0)", "(while (< i (+ 2 3)) (setq i (+ i 1)))", "i", "(cond (t (setq i 1) (+ i 1)))", "(progn)"},
+    };
+
+    @Test
+    public void testOptimizedEvaluationIsEquivalent() {
+        for (LispEvaluator.Motor motor : LispEvaluator.Motor.values()) {
+            for (String[] programa : PROGRAMAS) {
+                assertEquals(motor + " " + programa[0], ejecutar(motor, false, programa), ejecutar(motor, true, programa));
+            }
+        }
+    }
+
+    private static List<String> ejecutar(LispEvaluator.Motor motor, boolean optimizar, String[] programa) {
+        LispProcessor processor = new LispProcessor(motor);
+        processor.setOptimizar(optimizar);
+        List<String> salida = new ArrayList<>();
+        for (String forma : programa) {
+            try {
+                salida.add(String.valueOf(processor.procesar(forma)));
+            } catch (ErrorLisp e) {
+                salida.add("error: " + e.getMessage());
+            }
+        }
+        return salida;
+    }
+}
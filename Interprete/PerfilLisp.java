@@ -0,0 +1,196 @@
+package Interprete;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Perfil de las funciones de usuario durante una evaluación: llamadas,
+ * tiempo y bytes asignados, inclusivos (con las funciones llamadas) y
+ * exclusivos (sin ellas). Una llamada en cola cuenta como anidada en la
+ * función que la hizo, igual que si no se eliminara. En una función
+ * recursiva el tiempo inclusivo solo se suma en la activación más externa.
+ *
+ * Los bytes salen del contador de asignación del hilo de la JVM, así que
+ * incluyen todo lo que se asignó mientras la función estaba activa; son una
+ * estimación. No es seguro para varios hilos: cada sesión tiene el suyo, y
+ * cada rama de pcall/pmap perfila en uno propio que se combina con el de la
+ * sesión al terminar. El tiempo de las ramas se suma al de sus funciones,
+ * así que puede superar al tiempo real de la llamada que las lanzó.
+ */
+public class PerfilLisp {
+
+    private static final com.sun.management.ThreadMXBean HILOS = hilos();
+
+    private final Map<SimboloLisp, Estadistica> estadisticas = new HashMap<>();
+
+    // Pila de activaciones abiertas
+    private Estadistica[] activas = new Estadistica[64];
+    private long[] inicioNanos = new long[64];
+    private long[] inicioBytes = new long[64];
+    private long[] hijosNanos = new long[64];
+    private long[] hijosBytes = new long[64];
+    private int tope;
+
+    private static com.sun.management.ThreadMXBean hilos() {
+        java.lang.management.ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        if (hilos instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) hilos).isThreadAllocatedMemorySupported()) {
+            return (com.sun.management.ThreadMXBean) hilos;
+        }
+        return null;
+    }
+
+    static boolean midePorHilo() {
+        return HILOS != null;
+    }
+
+    static long bytesAsignados() {
+        return HILOS != null ? HILOS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    void entrar(SimboloLisp funcion) {
+        Estadistica estadistica = estadisticas.get(funcion);
+        if (estadistica == null) {
+            estadistica = new Estadistica(funcion);
+            estadisticas.put(funcion, estadistica);
+        }
+        estadistica.llamadas++;
+        estadistica.activas++;
+
+        if (tope == activas.length) {
+            int nueva = tope * 2;
+            activas = Arrays.copyOf(activas, nueva);
+            inicioNanos = Arrays.copyOf(inicioNanos, nueva);
+            inicioBytes = Arrays.copyOf(inicioBytes, nueva);
+            hijosNanos = Arrays.copyOf(hijosNanos, nueva);
+            hijosBytes = Arrays.copyOf(hijosBytes, nueva);
+        }
+        activas[tope] = estadistica;
+        hijosNanos[tope] = 0;
+        hijosBytes[tope] = 0;
+        inicioBytes[tope] = bytesAsignados();
+        inicioNanos[tope] = System.nanoTime();
+        tope++;
+    }
+
+    void salir() {
+        long nanos = System.nanoTime();
+        long bytes = bytesAsignados();
+        tope--;
+        Estadistica estadistica = activas[tope];
+        activas[tope] = null;
+
+        long totalNanos = nanos - inicioNanos[tope];
+        long totalBytes = bytes - inicioBytes[tope];
+        estadistica.exclusivoNanos += totalNanos - hijosNanos[tope];
+        estadistica.exclusivoBytes += totalBytes - hijosBytes[tope];
+        if (--estadistica.activas == 0) {
+            estadistica.inclusivoNanos += totalNanos;
+            estadistica.inclusivoBytes += totalBytes;
+        }
+        if (tope > 0) {
+            hijosNanos[tope - 1] += totalNanos;
+            hijosBytes[tope - 1] += totalBytes;
+        }
+    }
+
+    int nivel() {
+        return tope;
+    }
+
+    // Cierra las activaciones que dejó abiertas un error
+    void cerrarHasta(int nivel) {
+        while (tope > nivel) {
+            salir();
+        }
+    }
+
+    // Suma las estadísticas de otro perfil ya cerrado, p. ej. el de una rama de pmap
+    void combinar(PerfilLisp otro) {
+        for (Estadistica suya : otro.estadisticas.values()) {
+            Estadistica estadistica = estadisticas.get(suya.funcion);
+            if (estadistica == null) {
+                estadistica = new Estadistica(suya.funcion);
+                estadisticas.put(suya.funcion, estadistica);
+            }
+            estadistica.llamadas += suya.llamadas;
+            estadistica.inclusivoNanos += suya.inclusivoNanos;
+            estadistica.exclusivoNanos += suya.exclusivoNanos;
+            estadistica.inclusivoBytes += suya.inclusivoBytes;
+            estadistica.exclusivoBytes += suya.exclusivoBytes;
+        }
+    }
+
+    public void reiniciar() {
+        estadisticas.clear();
+        Arrays.fill(activas, 0, tope, null);
+        tope = 0;
+    }
+
+    // Ordenadas de mayor a menor tiempo exclusivo
+    public List<Estadistica> getEstadisticas() {
+        List<Estadistica> lista = new ArrayList<>(estadisticas.values());
+        lista.sort(Comparator.comparingLong(Estadistica::getExclusivoNanos).reversed());
+        return lista;
+    }
+
+    public Estadistica getEstadistica(String funcion) {
+        return estadisticas.get(SimboloLisp.intern(funcion));
+    }
+
+    public String informe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-24s %10s %12s %12s %12s %12s%n",
+                                "Función", "Llamadas", "Incl. ms", "Excl. ms", "Incl. KB", "Excl. KB"));
+        for (Estadistica e : getEstadisticas()) {
+            sb.append(String.format("%-24s %10d %12.3f %12.3f %12.1f %12.1f%n",
+                                    e.funcion, e.llamadas, e.inclusivoNanos / 1e6, e.exclusivoNanos / 1e6,
+                                    e.inclusivoBytes / 1024.0, e.exclusivoBytes / 1024.0));
+        }
+        return sb.toString();
+    }
+
+    public static final class Estadistica {
+        private final SimboloLisp funcion;
+        private long llamadas;
+        private long inclusivoNanos;
+        private long exclusivoNanos;
+        private long inclusivoBytes;
+        private long exclusivoBytes;
+        // Activaciones abiertas de esta función, para no sumar dos veces el inclusivo
+        private int activas;
+
+        Estadistica(SimboloLisp funcion) {
+            this.funcion = funcion;
+        }
+
+        public String getFuncion() {
+            return funcion.getNombre();
+        }
+
+        public long getLlamadas() {
+            return llamadas;
+        }
+
+        public long getInclusivoNanos() {
+            return inclusivoNanos;
+        }
+
+        public long getExclusivoNanos() {
+            return exclusivoNanos;
+        }
+
+        public long getInclusivoBytes() {
+            return inclusivoBytes;
+        }
+
+        public long getExclusivoBytes() {
+            return exclusivoBytes;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class PerfilLispTest {
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> motores() {
+        return Arrays.asList(new Object[][] {
+            { LispEvaluator.Motor.RECURSIVO },
+            { LispEvaluator.Motor.PILA }
+        });
+    }
+
+    private final LispEvaluator.Motor motor;
+
+    public PerfilLispTest(LispEvaluator.Motor motor) {
+        this.motor = motor;
+    }
+
+    private LispProcessor perfilado() {
+        LispProcessor processor = new LispProcessor(motor);
+        processor.procesar("(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))");
+        processor.procesar("(defun cuenta (n acc) (cond ((equal n 0) acc) (t (cuenta (- n 1) (+ acc 1)))))");
+        processor.procesar("(defun hoja (x) (list x x))");
+        processor.procesar("(defun rama (x) (cons (hoja x) (hoja x)))");
+        processor.setPerfilado(true);
+        return processor;
+    }
+
+    @Test
+    public void testOffByDefault() {
+        assertNull(new LispProcessor(motor).getPerfil());
+    }
+
+    @Test
+    public void testCountsRecursiveCalls() {
+        LispProcessor processor = perfilado();
+        assertEquals(55, processor.procesar("(fib 10)"));
+
+        PerfilLisp.Estadistica fib = processor.getPerfil().getEstadistica("fib");
+        assertEquals(177, fib.getLlamadas());
+        assertTrue(fib.getExclusivoNanos() <= fib.getInclusivoNanos());
+        assertTrue(fib.getInclusivoNanos() > 0);
+    }
+
+    @Test
+    public void testCountsTailCalls() {
+        LispProcessor processor = perfilado();
+        assertEquals(100, processor.procesar("(cuenta 100 0)"));
+        assertEquals(101, processor.getPerfil().getEstadistica("cuenta").getLlamadas());
+    }
+
+    @Test
+    public void testInclusiveIsExclusivePlusCallees() {
+        LispProcessor processor = perfilado();
+        processor.procesar("(rama 1)");
+        PerfilLisp perfil = processor.getPerfil();
+        PerfilLisp.Estadistica rama = perfil.getEstadistica("rama");
+        PerfilLisp.Estadistica hoja = perfil.getEstadistica("hoja");
+
+        assertEquals(2, hoja.getLlamadas());
+        assertEquals(rama.getInclusivoNanos(), rama.getExclusivoNanos() + hoja.getInclusivoNanos());
+        assertEquals(rama.getInclusivoBytes(), rama.getExclusivoBytes() + hoja.getInclusivoBytes());
+    }
+
+    @Test
+    public void testParallelBranchesAreProfiled() {
+        LispProcessor processor = perfilado();
+        processor.procesar("(pmap rama '(1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16))");
+        PerfilLisp perfil = processor.getPerfil();
+        assertEquals(16, perfil.getEstadistica("rama").getLlamadas());
+        assertEquals(32, perfil.getEstadistica("hoja").getLlamadas());
+        assertEquals(0, perfil.nivel());
+    }
+
+    @Test
+    public void testStatisticsSortedByExclusiveTime() {
+        LispProcessor processor = perfilado();
+        processor.procesar("(fib 12)");
+        processor.procesar("(rama 1)");
+        List<PerfilLisp.Estadistica> estadisticas = processor.getPerfil().getEstadisticas();
+        for (int i = 1; i < estadisticas.size(); i++) {
+            assertTrue(estadisticas.get(i - 1).getExclusivoNanos() >= estadisticas.get(i).getExclusivoNanos());
+        }
+        assertTrue(processor.getPerfil().informe().contains("fib"));
+    }
+
+    @Test
+    public void testErrorClosesOpenActivations() {
+        LispProcessor processor = perfilado();
+        processor.procesar("(defun falla (n) (cond ((equal n 0) (car 5)) (t (falla (- n 1)))))");
+        try {
+            processor.procesar("(falla 3)");
+            fail("Se esperaba un error");
+        } catch (ErrorLisp e) {
+            // esperado
+        }
+        assertEquals(0, processor.getPerfil().nivel());
+        assertEquals(4, processor.getPerfil().getEstadistica("falla").getLlamadas());
+
+        assertEquals(8, processor.procesar("(fib 6)"));
+        assertEquals(25, processor.getPerfil().getEstadistica("fib").getLlamadas());
+    }
+
+    @Test
+    public void testProfileFormKeepsReportInSessionAndReturnsValue() {
+        LispProcessor processor = new LispProcessor(motor);
+        processor.procesar("(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))");
+
+        PrintStream original = System.out;
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(salida, true));
+        try {
+            assertEquals(55, processor.procesar("(profile (fib 10))"));
+        } finally {
+            System.setOut(original);
+        }
+        assertEquals("", salida.toString());
+
+        List<PerfilLisp> perfiles = processor.getPerfilesProfile();
+        assertEquals(1, perfiles.size());
+        String informe = perfiles.get(0).informe();
+        assertTrue(informe, informe.contains("Llamadas"));
+        assertTrue(informe, informe.matches("(?s).*fib\\s+177\\s.*"));
+        assertNull(processor.getPerfil());
+
+        // Solo los de la última evaluación, también si falló
+        processor.procesar("(+ 1 2)");
+        assertTrue(processor.getPerfilesProfile().isEmpty());
+        try {
+            processor.procesar("(profile (car (fib 3)))");
+            fail("Se esperaba un error");
+        } catch (ErrorLisp e) {
+            // esperado
+        }
+        assertEquals(5, processor.getPerfilesProfile().get(0).getEstadistica("fib").getLlamadas());
+    }
+}
@@ -0,0 +1,234 @@
+package Interprete;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Servidor REPL sobre TCP o sockets de dominio Unix. Cada conexión tiene su
+ * propia SesionLisp sobre el programa del LispProcessor y se atiende en un
+ * hilo virtual cuando la JVM los tiene (Java 21+), o en un hilo de
+ * plataforma si no.
+ *
+ * Protocolo por líneas en UTF-8: cada línea no vacía es una expresión y
+ * recibe exactamente una línea de respuesta, "OK <resultado>" o
+ * "ERROR <mensaje>", precedida del informe de cada (profile ...) que
+ * haya evaluado, una línea "PERFIL <texto>" por línea del informe. La
+ * línea "salir" cierra la conexión. Las respuestas
+ * se acumulan en un búfer y se envían cuando no quedan peticiones
+ * completas por leer, así que varias peticiones enviadas seguidas se
+ * contestan con una sola escritura.
+ */
+public class ServidorLisp implements Closeable {
+
+    private static final int TAMANO_BUFER = 8192;
+    static final int LINEA_MAXIMA = 1 << 20;
+
+    private final LispProcessor procesador;
+    private final SocketAddress direccionSolicitada;
+    private final Set<SocketChannel> conexiones = ConcurrentHashMap.newKeySet();
+
+    private ServerSocketChannel servidor;
+    private ExecutorService ejecutor;
+    private Thread aceptador;
+
+    public ServidorLisp(LispProcessor procesador, SocketAddress direccion) {
+        this.procesador = procesador;
+        this.direccionSolicitada = direccion;
+    }
+
+    // Un número es un puerto TCP en localhost; cualquier otra cosa, la ruta de un socket Unix
+    public static SocketAddress direccion(String texto) {
+        if (!texto.isEmpty() && texto.chars().allMatch(Character::isDigit)) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(texto));
+        }
+        return UnixDomainSocketAddress.of(texto);
+    }
+
+    public synchronized void iniciar() throws IOException {
+        if (servidor != null) {
+            throw new IllegalStateException("El servidor ya está iniciado");
+        }
+        if (direccionSolicitada instanceof UnixDomainSocketAddress) {
+            servidor = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            servidor = ServerSocketChannel.open();
+        }
+        servidor.bind(direccionSolicitada, 1024);
+        ejecutor = crearEjecutor();
+
+        ServerSocketChannel canal = servidor;
+        aceptador = new Thread(() -> aceptar(canal), "servidor-lisp");
+        aceptador.setDaemon(true);
+        aceptador.start();
+    }
+
+    // Dirección real, con el puerto asignado si se pidió el 0
+    public SocketAddress getDireccion() throws IOException {
+        return servidor.getLocalAddress();
+    }
+
+    public static boolean usaHilosVirtuales() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    static ExecutorService crearEjecutor() {
+        try {
+            Method metodo = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) metodo.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Antes de Java 21: un hilo de plataforma por conexión
+            return Executors.newCachedThreadPool(tarea -> {
+                Thread hilo = new Thread(tarea, "sesion-lisp");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (servidor == null) {
+            return;
+        }
+        servidor.close();
+        for (SocketChannel conexion : conexiones) {
+            conexion.close();
+        }
+        ejecutor.shutdownNow();
+        if (direccionSolicitada instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) direccionSolicitada).getPath());
+        }
+        servidor = null;
+    }
+
+    private void aceptar(ServerSocketChannel canal) {
+        try {
+            while (true) {
+                SocketChannel conexion = canal.accept();
+                conexiones.add(conexion);
+                ejecutor.execute(() -> atender(conexion));
+            }
+        } catch (ClosedChannelException e) {
+            // close() detuvo el servidor
+        } catch (IOException e) {
+            System.err.println("Error al aceptar conexiones: " + e.getMessage());
+        }
+    }
+
+    private void atender(SocketChannel conexion) {
+        SesionLisp sesion = procesador.nuevaSesion();
+        ByteBuffer entrada = ByteBuffer.allocate(TAMANO_BUFER);
+        ByteBuffer salida = ByteBuffer.allocate(TAMANO_BUFER);
+        // Bytes del principio de entrada ya revisados sin encontrar '\n'
+        int revisados = 0;
+
+        try (conexion) {
+            while (conexion.read(entrada) >= 0) {
+                byte[] datos = entrada.array();
+                int inicio = 0;
+                for (int i = revisados; i < entrada.position(); i++) {
+                    if (datos[i] == '\n') {
+                        int fin = i > inicio && datos[i - 1] == '\r' ? i - 1 : i;
+                        String linea = new String(datos, inicio, fin - inicio, StandardCharsets.UTF_8).trim();
+                        inicio = i + 1;
+                        if (linea.equalsIgnoreCase("salir")) {
+                            vaciar(conexion, salida);
+                            return;
+                        }
+                        if (!linea.isEmpty()) {
+                            escribir(conexion, salida, responder(sesion, linea));
+                        }
+                    }
+                }
+
+                entrada.flip().position(inicio);
+                entrada.compact();
+                revisados = entrada.position();
+
+                if (!entrada.hasRemaining()) {
+                    if (entrada.capacity() >= LINEA_MAXIMA) {
+                        escribir(conexion, salida, "ERROR línea demasiado larga (máximo " + LINEA_MAXIMA + " bytes)");
+                        vaciar(conexion, salida);
+                        return;
+                    }
+                    ByteBuffer mayor = ByteBuffer.allocate(entrada.capacity() * 2);
+                    entrada.flip();
+                    mayor.put(entrada);
+                    entrada = mayor;
+                }
+
+                vaciar(conexion, salida);
+            }
+        } catch (IOException e) {
+            // El cliente cerró la conexión o el servidor se detuvo
+        } finally {
+            conexiones.remove(conexion);
+        }
+    }
+
+    static String responder(SesionLisp sesion, String linea) {
+        String respuesta;
+        try {
+            Object resultado = sesion.procesar(linea);
+            respuesta = resultado == null ? "OK" : "OK " + unaLinea(String.valueOf(resultado));
+        } catch (RuntimeException e) {
+            respuesta = "ERROR " + unaLinea(String.valueOf(e.getMessage()));
+        }
+        if (sesion.getPerfilesProfile().isEmpty()) {
+            return respuesta;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (PerfilLisp perfil : sesion.getPerfilesProfile()) {
+            perfil.informe().lines().forEach(l -> sb.append("PERFIL ").append(l).append('\n'));
+        }
+        return sb.append(respuesta).toString();
+    }
+
+    private static String unaLinea(String texto) {
+        return texto.replace('\r', ' ').replace('\n', ' ');
+    }
+
+    private static void escribir(SocketChannel conexion, ByteBuffer salida, String respuesta) throws IOException {
+        byte[] bytes = (respuesta + "\n").getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > salida.remaining()) {
+            vaciar(conexion, salida);
+        }
+        if (bytes.length > salida.remaining()) {
+            ByteBuffer grande = ByteBuffer.wrap(bytes);
+            while (grande.hasRemaining()) {
+                conexion.write(grande);
+            }
+        } else {
+            salida.put(bytes);
+        }
+    }
+
+    private static void vaciar(SocketChannel conexion, ByteBuffer salida) throws IOException {
+        salida.flip();
+        while (salida.hasRemaining()) {
+            conexion.write(salida);
+        }
+        salida.clear();
+    }
+}
@@ -0,0 +1,147 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class ServidorLispTest {
+
+    private static final class Cliente implements AutoCloseable {
+        private final SocketChannel canal;
+        private final BufferedReader lector;
+        private final OutputStream salida;
+
+        Cliente(SocketChannel canal) {
+            this.canal = canal;
+            this.lector = new BufferedReader(new InputStreamReader(Channels.newInputStream(canal), StandardCharsets.UTF_8));
+            this.salida = Channels.newOutputStream(canal);
+        }
+
+        void enviar(String texto) throws IOException {
+            salida.write(texto.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String pedir(String linea) throws IOException {
+            enviar(linea + "\n");
+            return lector.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+
+    private static ServidorLisp iniciarTcp(LispProcessor procesador) throws IOException {
+        ServidorLisp servidor = new ServidorLisp(procesador, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        servidor.iniciar();
+        return servidor;
+    }
+
+    @Test
+    public void testRequestsGetOneLineResponses() throws IOException {
+        LispProcessor procesador = new LispProcessor();
+        procesador.procesar("(defun doble (x) (* 2 x))");
+        try (ServidorLisp servidor = iniciarTcp(procesador);
+             Cliente cliente = new Cliente(SocketChannel.open(servidor.getDireccion()))) {
+            assertEquals("OK 42", cliente.pedir("(doble 21)"));
+            assertEquals("OK", cliente.pedir("; solo un comentario"));
+            assertTrue(cliente.pedir("(car 5)").startsWith("ERROR "));
+            assertEquals("OK 3", cliente.pedir("(+ 1 2)"));
+        }
+    }
+
+    @Test
+    public void testProfileReportGoesToTheClient() throws IOException {
+        LispProcessor procesador = new LispProcessor();
+        procesador.procesar("(defun doble (x) (* 2 x))");
+        try (ServidorLisp servidor = iniciarTcp(procesador);
+             Cliente cliente = new Cliente(SocketChannel.open(servidor.getDireccion()))) {
+            String linea = cliente.pedir("(profile (doble (doble 1)))");
+            assertTrue(linea, linea.startsWith("PERFIL ") && linea.contains("Llamadas"));
+            while (linea.startsWith("PERFIL ")) {
+                assertFalse(linea, linea.contains("\n"));
+                if (linea.contains("doble")) {
+                    assertTrue(linea, linea.matches("PERFIL doble\\s+2\\s.*"));
+                }
+                linea = cliente.lector.readLine();
+            }
+            assertEquals("OK 4", linea);
+            assertEquals("OK 3", cliente.pedir("(+ 1 2)"));
+        }
+    }
+
+    @Test
+    public void testPipelinedRequestsAndPartialLines() throws IOException {
+        try (ServidorLisp servidor = iniciarTcp(new LispProcessor());
+             Cliente cliente = new Cliente(SocketChannel.open(servidor.getDireccion()))) {
+            cliente.enviar("(+ 1 1)\r\n\n(+ 2 2)\n(+ 3");
+            cliente.enviar(" 3)\n");
+            assertEquals("OK 2", cliente.lector.readLine());
+            assertEquals("OK 4", cliente.lector.readLine());
+            assertEquals("OK 6", cliente.lector.readLine());
+        }
+    }
+
+    @Test
+    public void testConnectionsHaveSeparateSessions() throws IOException {
+        try (ServidorLisp servidor = iniciarTcp(new LispProcessor());
+             Cliente a = new Cliente(SocketChannel.open(servidor.getDireccion()));
+             Cliente b = new Cliente(SocketChannel.open(servidor.getDireccion()))) {
+            a.pedir("(setq x 1)");
+            b.pedir("(setq x 2)");
+            a.pedir("(defun tres () 3)");
+            assertEquals("OK 1", a.pedir("x"));
+            assertEquals("OK 2", b.pedir("x"));
+            assertEquals("OK 3", b.pedir("(tres)"));
+        }
+    }
+
+    @Test
+    public void testSalirClosesConnection() throws IOException {
+        try (ServidorLisp servidor = iniciarTcp(new LispProcessor());
+             Cliente cliente = new Cliente(SocketChannel.open(servidor.getDireccion()))) {
+            cliente.enviar("salir\n");
+            assertNull(cliente.lector.readLine());
+        }
+    }
+
+    @Test
+    public void testUnixDomainSocket() throws IOException {
+        Path directorio = Files.createTempDirectory("lisp");
+        Path ruta = directorio.resolve("lisp.sock");
+        try (ServidorLisp servidor = new ServidorLisp(new LispProcessor(), UnixDomainSocketAddress.of(ruta))) {
+            servidor.iniciar();
+            SocketChannel canal = SocketChannel.open(StandardProtocolFamily.UNIX);
+            canal.connect(UnixDomainSocketAddress.of(ruta));
+            try (Cliente cliente = new Cliente(canal)) {
+                assertEquals("OK 10", cliente.pedir("(* 2 5)"));
+            }
+        }
+        assertFalse(Files.exists(ruta));
+        Files.delete(directorio);
+    }
+
+    @Test
+    public void testDireccion() {
+        assertEquals(new InetSocketAddress(InetAddress.getLoopbackAddress(), 4000), ServidorLisp.direccion("4000"));
+        assertEquals(UnixDomainSocketAddress.of("/tmp/lisp.sock"), ServidorLisp.direccion("/tmp/lisp.sock"));
+    }
+}
@@ -0,0 +1,154 @@
+package Interprete;
+
+import java.util.List;
+
+/**
+ * Sesión de un LispProcessor. Tiene su propio analizador y sus propias
+ * variables; las funciones definidas con defun son las del procesador y
+ * se comparten con todas sus sesiones. Una sesión no debe usarse desde
+ * dos hilos a la vez, pero cada hilo puede tener la suya sobre el mismo
+ * programa cargado.
+ *
+ * Con setPerfilado(true) la sesión acumula un PerfilLisp de todas las
+ * llamadas a funciones de usuario hasta que se desactiva o se reinicia.
+ * Los perfiles de las formas (profile ...) no se imprimen: quedan en
+ * getPerfilesProfile hasta la siguiente evaluación.
+ *
+ * Con setLimites cada procesar/evaluar se hace con un GobernadorLisp nuevo
+ * con esos límites; para poder cancelar desde otro hilo, el llamador crea
+ * el gobernador y lo pasa a procesar/evaluar. Si se alcanza un límite se
+ * lanza ErrorLimiteLisp sin envolver.
+ */
+public class SesionLisp {
+
+    private final TokenizadorLisp lexicAnalyzer = new TokenizadorLisp();
+    private final LispParser syntaxAnalyzer = new LispParser();
+    private final TokenizadorLisp.Tokens tokensReutilizados = new TokenizadorLisp.Tokens();
+    private final LispEvaluator evaluator;
+    private final EntornoLisp entorno;
+    private final MetricasLisp metricas;
+    private PerfilLisp perfil;
+    private List<PerfilLisp> perfilesProfile = List.of();
+    private volatile LimitesLisp limites = LimitesLisp.NINGUNO;
+
+    SesionLisp(LispEvaluator evaluator, EntornoLisp entorno, MetricasLisp metricas) {
+        this.evaluator = evaluator;
+        this.entorno = entorno;
+        this.metricas = metricas;
+    }
+
+    public EntornoLisp getEntorno() {
+        return entorno;
+    }
+
+    public void setPerfilado(boolean perfilado) {
+        if (!perfilado) {
+            perfil = null;
+        } else if (perfil == null) {
+            perfil = new PerfilLisp();
+        }
+    }
+
+    // Perfil acumulado, o null si la sesión no se está perfilando
+    public PerfilLisp getPerfil() {
+        return perfil;
+    }
+
+    // Perfiles de las formas (profile ...) de la última evaluación, en el orden en que terminaron
+    public List<PerfilLisp> getPerfilesProfile() {
+        return perfilesProfile;
+    }
+
+    public LimitesLisp getLimites() {
+        return limites;
+    }
+
+    public void setLimites(LimitesLisp limites) {
+        this.limites = limites;
+    }
+
+    public Object procesar(String expresion) {
+        return procesar(expresion, gobernadorPorDefecto());
+    }
+
+    public Object procesar(String expresion, GobernadorLisp gobernador) {
+        long inicio = System.nanoTime();
+        EventoProcesar evento = new EventoProcesar();
+        evento.begin();
+        RuntimeException fallo = null;
+        perfilesProfile = List.of();
+        try {
+            char[] fuente = expresion.toCharArray();
+            TokenizadorLisp.Tokens tokens = lexicAnalyzer.tokenizar(fuente, 0, fuente.length, tokensReutilizados);
+
+            if (tokens.cantidad() == 0) {
+                return null;
+            }
+
+            return ejecutar(syntaxAnalyzer.parse(tokens), gobernador);
+        } catch (ErrorLimiteLisp e) {
+            fallo = e;
+            throw e;
+        } catch (RuntimeException e) {
+            fallo = e;
+            throw new ErrorLisp("Error en la evaluación: " + e.getMessage(), e);
+        } finally {
+            evento.terminar(expresion, fallo);
+            metricas.registrar(System.nanoTime() - inicio, fallo);
+        }
+    }
+
+    // Evalúa una forma ya leída (p. ej. por LectorLisp) sin volver a tokenizarla
+    public Object evaluar(Object forma) {
+        return evaluar(forma, gobernadorPorDefecto());
+    }
+
+    public Object evaluar(Object forma, GobernadorLisp gobernador) {
+        long inicio = System.nanoTime();
+        EventoProcesar evento = new EventoProcesar();
+        evento.begin();
+        RuntimeException fallo = null;
+        perfilesProfile = List.of();
+        try {
+            return ejecutar(forma, gobernador);
+        } catch (ErrorLimiteLisp e) {
+            fallo = e;
+            throw e;
+        } catch (RuntimeException e) {
+            fallo = e;
+            throw new ErrorLisp("Error en la evaluación: " + e.getMessage(), e);
+        } finally {
+            evento.terminar(forma, fallo);
+            metricas.registrar(System.nanoTime() - inicio, fallo);
+        }
+    }
+
+    private GobernadorLisp gobernadorPorDefecto() {
+        LimitesLisp actuales = limites;
+        return actuales.sinLimites() ? null : new GobernadorLisp(actuales);
+    }
+
+    private Object ejecutar(Object forma, GobernadorLisp gobernador) {
+        NodoLisp programa = evaluator.compilar(forma);
+        ContextoEvaluacion ctx = new ContextoEvaluacion(entorno);
+        ctx.perfil = perfil;
+        if (gobernador != null) {
+            gobernador.preparar(ctx);
+        }
+        try {
+            return evaluator.ejecutar(programa, ctx);
+        } finally {
+            if (perfil != null) {
+                perfil.cerrarHasta(0);
+            }
+            if (ctx.perfilesTerminados != null) {
+                perfilesProfile = ctx.perfilesTerminados;
+            }
+            metricas.registrarProfundidad(ctx.profundidadMaxima);
+            // Lo último: si lo asignado desde la última revisión pasa del límite, lanza
+            if (gobernador != null) {
+                gobernador.terminar(ctx);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class SesionLispTest {
+
+    @Test
+    public void testSessionsShareFunctionsButNotVariables() {
+        LispProcessor processor = new LispProcessor();
+        processor.procesar("(setq base 100)");
+        SesionLisp a = processor.nuevaSesion();
+        SesionLisp b = processor.nuevaSesion();
+
+        a.procesar("(defun doble (x) (* 2 x))");
+        a.procesar("(setq base 1)");
+
+        assertEquals(8, b.procesar("(doble 4)"));
+        assertEquals(1, a.procesar("base"));
+        assertEquals(100, b.procesar("base"));
+        assertEquals(100, processor.procesar("base"));
+    }
+
+    @Test
+    public void testSessionSeesLaterDefinitions() {
+        LispProcessor processor = new LispProcessor();
+        SesionLisp sesion = processor.nuevaSesion();
+        processor.procesar("(defun uno () 1)");
+        assertEquals(1, sesion.procesar("(uno)"));
+    }
+
+    @Test
+    public void testUnboundSymbolInSessionEvaluatesToItself() {
+        SesionLisp sesion = new LispProcessor().nuevaSesion();
+        assertSame(SimboloLisp.intern("libre"), sesion.procesar("libre"));
+    }
+
+    @Test
+    public void testConcurrentSessionsOnOneProgram() throws Exception {
+        LispProcessor processor = new LispProcessor();
+        processor.procesar("(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))");
+        processor.procesar("(defun cuenta (n acc) (cond ((equal n 0) acc) (t (cuenta (- n 1) (+ acc 1)))))");
+
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> resultados = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                final int n = i;
+                resultados.add(hilos.submit(() -> {
+                    SesionLisp sesion = processor.nuevaSesion();
+                    sesion.procesar("(setq propio " + n + ")");
+                    int total = 0;
+                    for (int j = 0; j < 20; j++) {
+                        total += (Integer) sesion.procesar("(+ (fib 12) (cuenta 1000 0) propio)");
+                    }
+                    return total;
+                }));
+            }
+            for (int i = 0; i < resultados.size(); i++) {
+                assertEquals(20 * (144 + 1000 + i), (int) resultados.get(i).get());
+            }
+        } finally {
+            hilos.shutdown();
+        }
+    }
+
+    @Test
+    public void testIsolatedSessionsResolveSharedBodiesInTheirOwnTables() {
+        LispProcessor processor = new LispProcessor();
+        processor.procesar("(defun ayuda () 0)");
+        processor.procesar("(defun llama () (ayuda))");
+        SesionLisp a = processor.nuevaSesionAislada();
+        SesionLisp b = processor.nuevaSesionAislada();
+        a.procesar("(defun ayuda () 1)");
+
+        // El cuerpo de llama se compila una vez y su llamada a ayuda se alterna entre entornos
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, a.procesar("(llama)"));
+            assertEquals(0, b.procesar("(llama)"));
+            assertEquals(0, processor.procesar("(llama)"));
+        }
+
+        b.procesar("(defun ayuda () 2)");
+        assertEquals(2, b.procesar("(llama)"));
+        assertEquals(1, a.procesar("(llama)"));
+    }
+}
@@ -0,0 +1,79 @@
+package Interprete;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Símbolo internado. Existe una única instancia por nombre, de modo que dos
+ * símbolos se comparan por identidad y su hash se calcula una sola vez.
+ */
+public final class SimboloLisp {
+
+    private static final ConcurrentHashMap<String, SimboloLisp> TABLA = new ConcurrentHashMap<>();
+
+    // Caché directa por hash para internar desde un char[] sin crear el String;
+    // las escrituras concurrentes son inocuas porque SimboloLisp es inmutable
+    private static final int TAMANO_CACHE = 4096;
+    private static final SimboloLisp[] CACHE = new SimboloLisp[TAMANO_CACHE];
+
+    public static final SimboloLisp T = intern("t");
+    public static final SimboloLisp NIL = intern("nil");
+    public static final SimboloLisp QUOTE = intern("quote");
+
+    private final String nombre;
+    private final int hash;
+
+    private SimboloLisp(String nombre) {
+        this.nombre = nombre;
+        this.hash = nombre.hashCode();
+    }
+
+    public static SimboloLisp intern(String nombre) {
+        SimboloLisp simbolo = TABLA.get(nombre);
+        if (simbolo == null) {
+            simbolo = TABLA.computeIfAbsent(nombre, SimboloLisp::new);
+        }
+        return simbolo;
+    }
+
+    public static SimboloLisp intern(char[] texto, int desde, int hasta) {
+        int h = 0;
+        for (int i = desde; i < hasta; i++) {
+            h = 31 * h + texto[i];
+        }
+        int ranura = (h ^ (h >>> 16)) & (TAMANO_CACHE - 1);
+        SimboloLisp simbolo = CACHE[ranura];
+        if (simbolo != null && simbolo.hash == h && simbolo.mismoNombre(texto, desde, hasta)) {
+            return simbolo;
+        }
+        simbolo = intern(new String(texto, desde, hasta - desde));
+        CACHE[ranura] = simbolo;
+        return simbolo;
+    }
+
+    private boolean mismoNombre(char[] texto, int desde, int hasta) {
+        if (nombre.length() != hasta - desde) {
+            return false;
+        }
+        for (int i = 0; i < nombre.length(); i++) {
+            if (nombre.charAt(i) != texto[desde + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    // equals se hereda de Object: la igualdad es la identidad
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
@@ -0,0 +1,33 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class SimboloLispTest {
+
+    @Test
+    public void testInternReturnsSameInstance() {
+        assertSame(SimboloLisp.intern("factorial"), SimboloLisp.intern(new String("factorial")));
+        assertSame(SimboloLisp.T, SimboloLisp.intern("t"));
+    }
+
+    @Test
+    public void testParserInternsSymbols() {
+        LispParser parser = new LispParser();
+        List<?> first = (List<?>) parser.parse("(f x x)");
+        List<?> second = (List<?>) parser.parse("(g x)");
+        assertSame(first.get(1), first.get(2));
+        assertSame(first.get(1), second.get(1));
+    }
+
+    @Test
+    public void testSymbolIsNotAString() {
+        assertNotEquals("x", SimboloLisp.intern("x"));
+        assertEquals("x", SimboloLisp.intern("x").toString());
+    }
+}
@@ -0,0 +1,44 @@
+package Interprete;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Tabla hash de make-hash-table. Las claves se comparan con equal (equals de
+ * Java sobre los valores LISP), así que un entero y su decimal son claves
+ * distintas. Admite accesos desde varios hilos, como el entorno global: una
+ * tabla guardada en una variable la comparten pcall, pmap y las sesiones.
+ */
+public final class TablaLisp {
+
+    private final Map<Object, Object> entradas = new ConcurrentHashMap<>();
+
+    // Valor de la clave o defecto si no está
+    public Object obtener(Object clave, Object defecto) {
+        Object valor = entradas.get(clave);
+        return valor != null ? valor : defecto;
+    }
+
+    public Object poner(Object clave, Object valor) {
+        entradas.put(clave, valor);
+        return valor;
+    }
+
+    public boolean quitar(Object clave) {
+        return entradas.remove(clave) != null;
+    }
+
+    public int cantidad() {
+        return entradas.size();
+    }
+
+    void recorrer(BiConsumer<Object, Object> accion) {
+        entradas.forEach(accion);
+    }
+
+    @Override
+    public String toString() {
+        return "#<hash-table " + entradas.size() + ">";
+    }
+}
@@ -0,0 +1,61 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class TablaLispTest {
+
+    private final LispProcessor processor = new LispProcessor();
+
+    @Test
+    public void testKeysCompareWithEqual() {
+        processor.procesar("(setq h (make-hash-table))");
+        assertEquals(1, processor.procesar("(puthash '(a 1) 1 h)"));
+        processor.procesar("(puthash 3000000000 'grande h)");
+        processor.procesar("(puthash 2 'entero h)");
+
+        assertEquals(1, processor.procesar("(gethash (list 'a 1) h)"));
+        assertEquals(SimboloLisp.intern("grande"), processor.procesar("(gethash (* 3 1000000000) h)"));
+        assertSame(SimboloLisp.NIL, processor.procesar("(gethash 2.0 h)"));
+        assertEquals(0, processor.procesar("(gethash 'falta h 0)"));
+        assertEquals(3, processor.procesar("(hash-table-count h)"));
+
+        assertSame(SimboloLisp.T, processor.procesar("(remhash 2 h)"));
+        assertSame(SimboloLisp.NIL, processor.procesar("(remhash 2 h)"));
+        assertEquals(2, processor.procesar("(hash-table-count h)"));
+    }
+
+    @Test
+    public void testCountsWordsInALoop() {
+        processor.procesar("(defun cuenta (l h) (cond ((null l) h) "
+                           + "(t (puthash (car l) (+ 1 (gethash (car l) h 0)) h) (cuenta (cdr l) h))))");
+        processor.procesar("(setq h (cuenta '(a b a c a b) (make-hash-table)))");
+        assertEquals(3, processor.procesar("(gethash 'a h)"));
+        assertEquals(2, processor.procesar("(gethash 'b h)"));
+        assertEquals(1, processor.procesar("(gethash 'c h)"));
+    }
+
+    @Test
+    public void testConstructorsAreNotFoldedByTheOptimizer() {
+        processor.setOptimizar(true);
+        processor.procesar("(defun nueva () (make-hash-table))");
+        assertNotSame(processor.procesar("(nueva)"), processor.procesar("(nueva)"));
+        processor.procesar("(defun v () (vector 1 2))");
+        assertNotSame(processor.procesar("(v)"), processor.procesar("(v)"));
+    }
+
+    @Test
+    public void testRequiresATable() {
+        try {
+            processor.procesar("(gethash 'a '(a))");
+            fail("Se esperaba un error");
+        } catch (ErrorLisp e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("gethash requiere una tabla hash"));
+        }
+    }
+}
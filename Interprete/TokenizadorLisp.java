@@ -1,6 +1,7 @@
 package Interprete;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class TokenizadorLisp {
@@ -34,67 +35,181 @@ public class TokenizadorLisp {
         }
     }
 
-    public List<String> analizar(String entrada) {
-        List<String> tokens = new ArrayList<>();
-        List<Simbolo> listaTokens = analizarConUbicacion(entrada);
-        for (Simbolo token : listaTokens) {
-            tokens.add(token.obtenerContenido());
+    // Tipos de token de tokenizar()
+    public static final byte ABRE = 0;
+    public static final byte CIERRA = 1;
+    public static final byte COMILLA = 2;
+    public static final byte ENTERO = 3;
+    public static final byte DECIMAL = 4;
+    public static final byte SIMBOLO = 5;
+
+    /**
+     * Resultado de tokenizar(): por cada token su tipo y sus posiciones
+     * [inicio, fin) en la fuente, en arreglos primitivos. No se copia el
+     * texto de ningún token.
+     */
+    public static final class Tokens {
+        private char[] fuente;
+        private byte[] tipos = new byte[64];
+        private int[] inicios = new int[64];
+        private int[] fines = new int[64];
+        private int cantidad;
+
+        public int cantidad() {
+            return cantidad;
         }
-        return tokens;
-    }
 
-    public List<Simbolo> analizarConUbicacion(String entrada) {
-        List<Simbolo> tokens = new ArrayList<>();
-        int filaActual = 1;
-        int columnaActual = 1;
+        public char[] fuente() {
+            return fuente;
+        }
 
-        StringBuilder tokenTemporal = new StringBuilder();
-        int inicioColumna = 1;
+        public byte tipo(int i) {
+            return tipos[i];
+        }
 
-        for (int i = 0; i < entrada.length(); i++) {
-            char caracter = entrada.charAt(i);
+        public int inicio(int i) {
+            return inicios[i];
+        }
 
-            if (caracter == '\n') {
-                if (tokenTemporal.length() > 0) {
-                    tokens.add(new Simbolo(tokenTemporal.toString(), filaActual, inicioColumna));
-                    tokenTemporal.setLength(0);
-                }
-                filaActual++;
-                columnaActual = 1;
-                continue;
-            }
+        public int fin(int i) {
+            return fines[i];
+        }
 
-            if (caracter == '(' || caracter == ')' || caracter == '\'') {
-                if (tokenTemporal.length() > 0) {
-                    tokens.add(new Simbolo(tokenTemporal.toString(), filaActual, inicioColumna));
-                    tokenTemporal.setLength(0);
-                }
-                tokens.add(new Simbolo(String.valueOf(caracter), filaActual, columnaActual));
-                columnaActual++;
-                continue;
+        public String texto(int i) {
+            return new String(fuente, inicios[i], fines[i] - inicios[i]);
+        }
+
+        private void agregar(byte tipo, int inicio, int fin) {
+            if (cantidad == tipos.length) {
+                tipos = Arrays.copyOf(tipos, cantidad * 2);
+                inicios = Arrays.copyOf(inicios, cantidad * 2);
+                fines = Arrays.copyOf(fines, cantidad * 2);
             }
+            tipos[cantidad] = tipo;
+            inicios[cantidad] = inicio;
+            fines[cantidad] = fin;
+            cantidad++;
+        }
+    }
 
-            if (Character.isWhitespace(caracter)) {
-                if (tokenTemporal.length() > 0) {
-                    tokens.add(new Simbolo(tokenTemporal.toString(), filaActual, inicioColumna));
-                    tokenTemporal.setLength(0);
+    public Tokens tokenizar(char[] fuente, int desde, int hasta) {
+        return tokenizar(fuente, desde, hasta, new Tokens());
+    }
+
+    // Reutiliza los arreglos de destino, que solo crecen
+    public Tokens tokenizar(char[] fuente, int desde, int hasta, Tokens destino) {
+        destino.fuente = fuente;
+        destino.cantidad = 0;
+
+        int i = desde;
+        while (i < hasta) {
+            char caracter = fuente[i];
+
+            if (caracter == '(') {
+                destino.agregar(ABRE, i, ++i);
+            } else if (caracter == ')') {
+                destino.agregar(CIERRA, i, ++i);
+            } else if (caracter == '\'') {
+                destino.agregar(COMILLA, i, ++i);
+            } else if (caracter == ';') {
+                while (i < hasta && fuente[i] != '\n') {
+                    i++;
+                }
+            } else if (Character.isWhitespace(caracter)) {
+                i++;
+            } else {
+                int inicio = i;
+                while (i < hasta && !esDelimitador(fuente[i])) {
+                    i++;
                 }
-                columnaActual++;
-                continue;
+                destino.agregar(clasificar(fuente, inicio, i), inicio, i);
             }
+        }
+        return destino;
+    }
 
-            if (tokenTemporal.length() == 0) {
-                inicioColumna = columnaActual;
-            }
+    static boolean esDelimitador(char c) {
+        return c == '(' || c == ')' || c == '\'' || c == ';' || Character.isWhitespace(c);
+    }
 
-            tokenTemporal.append(caracter);
-            columnaActual++;
+    /**
+     * Lexema numérico sin excepciones: [+-]? dígitos es ENTERO;
+     * [+-]? (dígitos [. dígitos?] | . dígitos) ([eE] [+-]? dígitos)? es
+     * DECIMAL; cualquier otra cosa es SIMBOLO.
+     */
+    static byte clasificar(char[] texto, int desde, int hasta) {
+        int i = desde;
+        if (i < hasta && (texto[i] == '+' || texto[i] == '-')) {
+            i++;
+        }
+        int digitos = 0;
+        while (i < hasta && esDigito(texto[i])) {
+            i++;
+            digitos++;
+        }
+        if (i == hasta) {
+            return digitos > 0 ? ENTERO : SIMBOLO;
+        }
+        if (texto[i] == '.') {
+            i++;
+            while (i < hasta && esDigito(texto[i])) {
+                i++;
+                digitos++;
+            }
+        }
+        if (digitos == 0) {
+            return SIMBOLO;
         }
+        if (i < hasta && (texto[i] == 'e' || texto[i] == 'E')) {
+            i++;
+            if (i < hasta && (texto[i] == '+' || texto[i] == '-')) {
+                i++;
+            }
+            int exponente = i;
+            while (i < hasta && esDigito(texto[i])) {
+                i++;
+            }
+            if (i == exponente) {
+                return SIMBOLO;
+            }
+        }
+        return i == hasta ? DECIMAL : SIMBOLO;
+    }
 
-        if (tokenTemporal.length() > 0) {
-            tokens.add(new Simbolo(tokenTemporal.toString(), filaActual, inicioColumna));
+    private static boolean esDigito(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    public List<String> analizar(String entrada) {
+        char[] fuente = entrada.toCharArray();
+        Tokens lista = tokenizar(fuente, 0, fuente.length);
+        List<String> tokens = new ArrayList<>(lista.cantidad());
+        for (int i = 0; i < lista.cantidad(); i++) {
+            tokens.add(lista.texto(i));
         }
+        return tokens;
+    }
+
+    public List<Simbolo> analizarConUbicacion(String entrada) {
+        char[] fuente = entrada.toCharArray();
+        Tokens lista = tokenizar(fuente, 0, fuente.length);
+        List<Simbolo> tokens = new ArrayList<>(lista.cantidad());
 
+        // Fila y columna se calculan avanzando desde el token anterior
+        int filaActual = 1;
+        int columnaActual = 1;
+        int posicion = 0;
+        for (int i = 0; i < lista.cantidad(); i++) {
+            for (; posicion < lista.inicio(i); posicion++) {
+                if (fuente[posicion] == '\n') {
+                    filaActual++;
+                    columnaActual = 1;
+                } else {
+                    columnaActual++;
+                }
+            }
+            tokens.add(new Simbolo(lista.texto(i), filaActual, columnaActual));
+        }
         return tokens;
     }
-}
\ No newline at end of file
+}
@@ -26,4 +26,51 @@ public class TokenizadorLispTest {
         List<String> tokens = tokenizer.analizar("; Esto es un comentario\n(+ 1 2)");
         assertEquals(5, tokens.size()); // El comentario debe ignorarse
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTokenizarProducesKindsAndOffsets() {
+        char[] fuente = "(f 'x -12 3.5) ; fin".toCharArray();
+        TokenizadorLisp.Tokens tokens = new TokenizadorLisp().tokenizar(fuente, 0, fuente.length);
+
+        byte[] tipos = {TokenizadorLisp.ABRE, TokenizadorLisp.SIMBOLO, TokenizadorLisp.COMILLA,
+                        TokenizadorLisp.SIMBOLO, TokenizadorLisp.ENTERO, TokenizadorLisp.DECIMAL,
+                        TokenizadorLisp.CIERRA};
+        assertEquals(tipos.length, tokens.cantidad());
+        for (int i = 0; i < tipos.length; i++) {
+            assertEquals(tipos[i], tokens.tipo(i));
+        }
+        assertEquals(6, tokens.inicio(4));
+        assertEquals(9, tokens.fin(4));
+        assertEquals("3.5", tokens.texto(5));
+    }
+
+    @Test
+    public void testNumericLexer() {
+        String[] enteros = {"0", "42", "-7", "+3", "123456789012345678901234"};
+        String[] decimales = {"1.5", "-0.25", ".5", "2.", "1e10", "6.02E-23"};
+        String[] simbolos = {"-", "+", ".", "1+", "e5", "1e", "1.2.3", "NaN", "Infinity", "12abc"};
+        for (String texto : enteros) {
+            assertEquals(texto, TokenizadorLisp.ENTERO, clasificar(texto));
+        }
+        for (String texto : decimales) {
+            assertEquals(texto, TokenizadorLisp.DECIMAL, clasificar(texto));
+        }
+        for (String texto : simbolos) {
+            assertEquals(texto, TokenizadorLisp.SIMBOLO, clasificar(texto));
+        }
+    }
+
+    @Test
+    public void testUbicacionSkipsComments() {
+        List<TokenizadorLisp.Simbolo> tokens =
+                new TokenizadorLisp().analizarConUbicacion("; (x\n  (a b)");
+        assertEquals(4, tokens.size());
+        assertEquals(2, tokens.get(1).obtenerFila());
+        assertEquals(4, tokens.get(1).obtenerColumna());
+    }
+
+    private static byte clasificar(String texto) {
+        char[] caracteres = texto.toCharArray();
+        return TokenizadorLisp.clasificar(caracteres, 0, caracteres.length);
+    }
+}
@@ -0,0 +1,190 @@
+package Interprete;
+
+import java.util.Arrays;
+
+import Interprete.MetricasLisp.CategoriaError;
+
+/**
+ * Vector de tamaño fijo con acceso O(1) por índice. Los vectores de enteros
+ * y de decimales guardan sus elementos sin caja en un long[] o un double[];
+ * solo se crea un Number al leer un elemento. Dos vectores son equal solo
+ * si son el mismo objeto.
+ */
+public abstract class VectorLisp {
+
+    static final SimboloLisp LONG = SimboloLisp.intern("long");
+    static final SimboloLisp DOUBLE = SimboloLisp.intern("double");
+    // 128 MB como vector long o double; más grande, mejor una tabla hash
+    static final int LONGITUD_MAXIMA = 1 << 24;
+
+    public abstract int longitud();
+
+    public abstract Object obtener(int indice);
+
+    public abstract void asignar(int indice, Object valor);
+
+    // Tipo de los elementos: t, long o double
+    public abstract SimboloLisp tipo();
+
+    /**
+     * Vector de n elementos del tipo dado (t, long o double). Sin valor
+     * inicial se llena con nil, 0 o 0.0. Un tamaño mayor que
+     * LONGITUD_MAXIMA, o que no cabe en el heap, es un ErrorLisp y no un
+     * OutOfMemoryError que tumbe a quien aloja al intérprete.
+     */
+    static VectorLisp crear(int n, SimboloLisp tipo, Object inicial) {
+        if (n < 0) {
+            throw new ErrorLisp(CategoriaError.OTRO, "Error: el tamaño de un vector no puede ser negativo: " + n);
+        }
+        if (n > LONGITUD_MAXIMA) {
+            throw new ErrorLisp(CategoriaError.ARGUMENTOS, "Error: el tamaño de un vector no puede pasar de "
+                                + LONGITUD_MAXIMA + ": " + n);
+        }
+        VectorLisp vector;
+        try {
+            if (tipo == SimboloLisp.T) {
+                vector = new General(new Object[n]);
+                if (inicial == null) {
+                    inicial = SimboloLisp.NIL;
+                }
+            } else if (tipo == LONG) {
+                vector = new Enteros(new long[n]);
+            } else if (tipo == DOUBLE) {
+                vector = new Decimales(new double[n]);
+            } else {
+                throw new ErrorLisp(CategoriaError.TIPO, "Error: tipo de vector desconocido: " + tipo + " (debe ser t, long o double)");
+            }
+        } catch (OutOfMemoryError e) {
+            // Solo el arreglo que se acaba de pedir: no queda nada a medias
+            throw new ErrorLisp(CategoriaError.OTRO, "Error: no hay memoria para un vector de " + n + " elementos");
+        }
+        if (inicial != null) {
+            for (int i = 0; i < n; i++) {
+                vector.asignar(i, inicial);
+            }
+        }
+        return vector;
+    }
+
+    // Estimación de lo que ocupa un vector de n elementos, para reservarlo antes de crearlo
+    static long bytes(int n) {
+        return 16 + 8L * Math.max(n, 0);
+    }
+
+    final void comprobarIndice(int indice) {
+        if (indice < 0 || indice >= longitud()) {
+            throw new ErrorLisp(CategoriaError.OTRO, "Error: índice " + indice + " fuera del vector de longitud " + longitud());
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("#[");
+        for (int i = 0; i < longitud(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(obtener(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    static final class General extends VectorLisp {
+        final Object[] elementos;
+
+        General(Object[] elementos) {
+            this.elementos = elementos;
+        }
+
+        @Override
+        public int longitud() {
+            return elementos.length;
+        }
+
+        @Override
+        public Object obtener(int indice) {
+            comprobarIndice(indice);
+            return elementos[indice];
+        }
+
+        @Override
+        public void asignar(int indice, Object valor) {
+            comprobarIndice(indice);
+            elementos[indice] = valor;
+        }
+
+        @Override
+        public SimboloLisp tipo() {
+            return SimboloLisp.T;
+        }
+    }
+
+    static final class Enteros extends VectorLisp {
+        final long[] elementos;
+
+        Enteros(long[] elementos) {
+            this.elementos = elementos;
+        }
+
+        @Override
+        public int longitud() {
+            return elementos.length;
+        }
+
+        @Override
+        public Object obtener(int indice) {
+            comprobarIndice(indice);
+            return NumerosLisp.entero(elementos[indice]);
+        }
+
+        @Override
+        public void asignar(int indice, Object valor) {
+            comprobarIndice(indice);
+            if (!NumerosLisp.esFijo(valor)) {
+                throw new ErrorLisp(CategoriaError.TIPO, "Error: un vector long requiere enteros de 64 bits pero se encontró: " + valor);
+            }
+            elementos[indice] = ((Number) valor).longValue();
+        }
+
+        @Override
+        public SimboloLisp tipo() {
+            return LONG;
+        }
+    }
+
+    static final class Decimales extends VectorLisp {
+        final double[] elementos;
+
+        Decimales(double[] elementos) {
+            this.elementos = elementos;
+        }
+
+        @Override
+        public int longitud() {
+            return elementos.length;
+        }
+
+        @Override
+        public Object obtener(int indice) {
+            comprobarIndice(indice);
+            return elementos[indice];
+        }
+
+        // Cualquier número se convierte a double, como en la aritmética mixta
+        @Override
+        public void asignar(int indice, Object valor) {
+            comprobarIndice(indice);
+            elementos[indice] = NumerosLisp.numero(valor).doubleValue();
+        }
+
+        @Override
+        public SimboloLisp tipo() {
+            return DOUBLE;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + Arrays.toString(elementos);
+        }
+    }
+}
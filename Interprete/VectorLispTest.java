@@ -0,0 +1,92 @@
+package Interprete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class VectorLispTest {
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> motores() {
+        return Arrays.asList(new Object[][] {
+            { LispEvaluator.Motor.RECURSIVO },
+            { LispEvaluator.Motor.PILA }
+        });
+    }
+
+    private final LispProcessor processor;
+
+    public VectorLispTest(LispEvaluator.Motor motor) {
+        this.processor = new LispProcessor(motor);
+    }
+
+    private void assertError(String forma, String mensaje) {
+        try {
+            processor.procesar(forma);
+            fail("Se esperaba un error en " + forma);
+        } catch (ErrorLisp e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(mensaje));
+        }
+    }
+
+    @Test
+    public void testGeneralVectors() {
+        processor.procesar("(setq v (vector 1 'a '(2 3)))");
+        assertEquals(3, processor.procesar("(length v)"));
+        assertEquals(SimboloLisp.intern("a"), processor.procesar("(aref v 1)"));
+        assertEquals(SimboloLisp.intern("x"), processor.procesar("(aset v 1 'x)"));
+        assertEquals("#[1, x, [2, 3]]", processor.procesar("v").toString());
+        assertEquals(SimboloLisp.NIL, processor.procesar("(aref (make-array 2) 1)"));
+        assertEquals(7, processor.procesar("(aref (make-array 3 t 7) 2)"));
+        assertSame(SimboloLisp.T, processor.procesar("(atom v)"));
+        assertEquals(2, processor.procesar("(length '(1 2))"));
+    }
+
+    @Test
+    public void testNumericVectorsStoreUnboxed() {
+        processor.procesar("(setq l (make-array 1000 'long))");
+        processor.procesar("(dotimes (i 1000) (aset l i (* i 3000000)))");
+        assertEquals(2997000000L, processor.procesar("(aref l 999)"));
+        assertEquals(0, processor.procesar("(aref l 0)"));
+        assertTrue(processor.procesar("l") instanceof VectorLisp.Enteros);
+
+        processor.procesar("(setq d (make-array 3 'double 0.5))");
+        processor.procesar("(aset d 0 2)");
+        assertEquals(2.0, processor.procesar("(aref d 0)"));
+        assertEquals(0.5, processor.procesar("(aref d 2)"));
+        assertEquals("#[2.0, 0.5, 0.5]", processor.procesar("d").toString());
+
+        processor.procesar("(defun suma (v) (let ((s 0)) (dotimes (i (length v) s) (setq s (+ s (aref v i))))))");
+        assertEquals(1498500000000L, processor.procesar("(suma l)"));
+        assertEquals(3.0, processor.procesar("(suma d)"));
+    }
+
+    @Test
+    public void testVectorErrors() {
+        assertError("(aref (vector 1 2) 2)", "fuera del vector de longitud 2");
+        assertError("(aref (vector 1) -1)", "fuera del vector");
+        assertError("(aref '(1 2) 0)", "aref requiere un vector");
+        assertError("(aset (make-array 1 'long) 0 1.5)", "enteros de 64 bits");
+        assertError("(aset (make-array 1 'long) 0 99999999999999999999)", "enteros de 64 bits");
+        assertError("(aset (make-array 1 'double) 0 'a)", "se esperaba un número");
+        assertError("(make-array 2 'byte)", "tipo de vector desconocido");
+        assertError("(make-array -1)", "negativo");
+        assertError("(aref (vector 1) 1.0)", "requiere un entero");
+    }
+
+    @Test
+    public void testHugeVectorIsAnErrorNotOutOfMemory() {
+        assertError("(make-array 2000000000 'long)", "no puede pasar de " + VectorLisp.LONGITUD_MAXIMA);
+        assertError("(make-array (+ " + VectorLisp.LONGITUD_MAXIMA + " 1))", "no puede pasar de");
+    }
+}
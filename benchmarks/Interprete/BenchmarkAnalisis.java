@@ -0,0 +1,57 @@
+package Interprete;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tokenizador y analizador sintáctico sobre ~64 KB de código generado.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkAnalisis {
+
+    private String fuente;
+    private char[] caracteres;
+    private TokenizadorLisp tokenizador;
+    private TokenizadorLisp.Tokens tokens;
+    private LispParser parser;
+
+    @Setup
+    public void preparar() {
+        fuente = BenchmarkTokenizador.generar(64 * 1024);
+        caracteres = fuente.toCharArray();
+        tokenizador = new TokenizadorLisp();
+        tokens = new TokenizadorLisp.Tokens();
+        parser = new LispParser();
+    }
+
+    @Benchmark
+    public List<String> analizar() {
+        return tokenizador.analizar(fuente);
+    }
+
+    @Benchmark
+    public TokenizadorLisp.Tokens tokenizar() {
+        return tokenizador.tokenizar(caracteres, 0, caracteres.length, tokens);
+    }
+
+    @Benchmark
+    public Object parse() {
+        return parser.parse(fuente);
+    }
+}
@@ -0,0 +1,65 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Suma de 0 a n-1 con un millón de vueltas: recursión en cola con cond
+ * (lo único que había antes de while y dotimes), while sobre variables de
+ * let, y dotimes. Las tres corren con profundidad constante.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkBucles {
+
+    public enum Bucle {
+        RECURSION_COLA("(defun suma (n) (suma-desde 0 n 0))",
+                       "(defun suma-desde (i n s) (cond ((< i n) (suma-desde (+ i 1) n (+ s i))) (t s)))"),
+        WHILE("(defun suma (n) (let ((i 0) (s 0)) (while (< i n) (setq s (+ s i)) (setq i (+ i 1))) s))"),
+        DOTIMES("(defun suma (n) (let ((s 0)) (dotimes (i n s) (setq s (+ s i)))))");
+
+        final String[] definiciones;
+
+        Bucle(String... definiciones) {
+            this.definiciones = definiciones;
+        }
+    }
+
+    @Param
+    public Bucle bucle;
+
+    @Param
+    public LispEvaluator.Motor motor;
+
+    private LispProcessor procesador;
+    private Object expresion;
+
+    @Setup
+    public void preparar() {
+        procesador = new LispProcessor(motor);
+        for (String definicion : bucle.definiciones) {
+            procesador.procesar(definicion);
+        }
+        expresion = new LispParser().parse("(suma 1000000)");
+    }
+
+    @Benchmark
+    public Object evaluar() {
+        return procesador.evaluar(expresion);
+    }
+}
@@ -0,0 +1,89 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BUSQUEDA: una consulta por cada una de 1000 claves, recorriendo una lista de pares
+ * (lo único posible antes de las tablas) o con gethash. SUMA: suma de
+ * 100 000 enteros guardados en una lista (recorrida con car/cdr), en un
+ * vector general o en un vector long, y de decimales en un vector double.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkColecciones {
+
+    public enum Caso {
+        BUSQUEDA_LISTA("(defun busca (k l) (cond ((null l) nil) ((equal k (car (car l))) (car (cdr (car l)))) (t (busca k (cdr l)))))",
+                       "(defun llena (i l) (cond ((< i 0) l) (t (llena (- i 1) (cons (list i (* i i)) l)))))",
+                       "(setq datos (llena 999 nil))",
+                       "(defun consulta (k) (busca k datos))"),
+        BUSQUEDA_TABLA("(setq datos (make-hash-table))",
+                       "(dotimes (i 1000) (puthash i (* i i) datos))",
+                       "(defun consulta (k) (gethash k datos))"),
+        SUMA_LISTA("(defun llena (i l) (cond ((< i 0) l) (t (llena (- i 1) (cons i l)))))",
+                   "(setq datos (llena 99999 nil))",
+                   "(defun suma-lista (l s) (cond ((null l) s) (t (suma-lista (cdr l) (+ s (car l))))))",
+                   "(defun suma () (suma-lista datos 0))"),
+        SUMA_VECTOR("(setq datos (make-array 100000))",
+                    "(dotimes (i 100000) (aset datos i i))",
+                    "(defun suma () (let ((s 0)) (dotimes (i 100000 s) (setq s (+ s (aref datos i))))))"),
+        SUMA_VECTOR_LONG("(setq datos (make-array 100000 'long))",
+                         "(dotimes (i 100000) (aset datos i i))",
+                         "(defun suma () (let ((s 0)) (dotimes (i 100000 s) (setq s (+ s (aref datos i))))))"),
+        SUMA_VECTOR_DOUBLE("(setq datos (make-array 100000 'double))",
+                           "(dotimes (i 100000) (aset datos i i))",
+                           "(defun suma () (let ((s 0)) (dotimes (i 100000 s) (setq s (+ s (aref datos i))))))");
+
+        final String[] definiciones;
+
+        Caso(String... definiciones) {
+            this.definiciones = definiciones;
+        }
+
+        boolean esBusqueda() {
+            return this == BUSQUEDA_LISTA || this == BUSQUEDA_TABLA;
+        }
+    }
+
+    @Param
+    public Caso caso;
+
+    @Param({"RECURSIVO"})
+    public LispEvaluator.Motor motor;
+
+    private LispProcessor procesador;
+    private Object expresion;
+
+    @Setup
+    public void preparar() {
+        procesador = new LispProcessor(motor);
+        for (String definicion : caso.definiciones) {
+            procesador.procesar(definicion);
+        }
+        String llamada = caso.esBusqueda()
+                ? "(let ((s 0)) (dotimes (i 1000 s) (setq s (+ s (consulta (- 999 i))))))"
+                : "(suma)";
+        expresion = new LispParser().parse(llamada);
+    }
+
+    @Benchmark
+    public Object evaluar() {
+        return procesador.evaluar(expresion);
+    }
+}
@@ -0,0 +1,67 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Los mismos programas con el árbol de nodos (umbral 0) y con los cuerpos
+ * compilados a bytecode en la primera llamada (umbral 1), motor RECURSIVO.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkCompilacion {
+
+    public enum Programa {
+        FIB("(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))",
+            "(fib 20)"),
+        COLA("(defun cuenta (n acc) (cond ((= n 0) acc) (t (cuenta (- n 1) (+ acc 1)))))",
+             "(cuenta 10000 0)"),
+        BUCLE("(defun suma-hasta (n) (let ((i 0) (total 0)) (while (< i n) (setq i (+ i 1)) (setq total (+ total i))) total))",
+              "(suma-hasta 10000)");
+
+        final String definicion;
+        final String expresion;
+
+        Programa(String definicion, String expresion) {
+            this.definicion = definicion;
+            this.expresion = expresion;
+        }
+    }
+
+    @Param
+    public Programa programa;
+
+    @Param({"0", "1"})
+    public int umbral;
+
+    private LispProcessor procesador;
+    private Object expresion;
+
+    @Setup
+    public void preparar() {
+        procesador = new LispProcessor(LispEvaluator.Motor.RECURSIVO);
+        procesador.setUmbralCompilacion(umbral);
+        procesador.procesar(programa.definicion);
+        expresion = new LispParser().parse(programa.expresion);
+    }
+
+    @Benchmark
+    public Object evaluar() {
+        return procesador.evaluar(expresion);
+    }
+}
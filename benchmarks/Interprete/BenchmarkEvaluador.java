@@ -0,0 +1,53 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LispEvaluator.evaluate con la expresión ya analizada, por programa y motor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkEvaluador {
+
+    @Param
+    public ProgramaBenchmark programa;
+
+    @Param
+    public LispEvaluator.Motor motor;
+
+    private LispEvaluator evaluador;
+    private EntornoLisp entorno;
+    private Object expresion;
+
+    @Setup
+    public void preparar() {
+        LispParser parser = new LispParser();
+        evaluador = new LispEvaluator(motor);
+        entorno = new EntornoLisp();
+        for (String definicion : programa.definiciones) {
+            evaluador.evaluate(parser.parse(definicion), entorno);
+        }
+        expresion = parser.parse(programa.llamada);
+    }
+
+    @Benchmark
+    public Object evaluate() {
+        return evaluador.evaluate(expresion, entorno);
+    }
+}
@@ -0,0 +1,66 @@
+package Interprete;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coste de los límites de recursos sobre FIB (casi todo llamadas a función):
+ * sin gobernador, con límite de pasos, y con pasos, tiempo y memoria. Los
+ * límites son tan altos que nunca se alcanzan.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkGobernador {
+
+    public enum Limites {
+        NINGUNO(LimitesLisp.NINGUNO),
+        PASOS(LimitesLisp.NINGUNO.conPasos(Long.MAX_VALUE)),
+        TODOS(LimitesLisp.NINGUNO.conPasos(Long.MAX_VALUE).conTiempo(Duration.ofHours(1)).conMemoria(Long.MAX_VALUE));
+
+        final LimitesLisp limites;
+
+        Limites(LimitesLisp limites) {
+            this.limites = limites;
+        }
+    }
+
+    @Param
+    public Limites limites;
+
+    @Param
+    public LispEvaluator.Motor motor;
+
+    private LispProcessor procesador;
+    private Object expresion;
+
+    @Setup
+    public void preparar() {
+        procesador = new LispProcessor(motor);
+        for (String definicion : ProgramaBenchmark.FIB.definiciones) {
+            procesador.procesar(definicion);
+        }
+        procesador.setLimites(limites.limites);
+        expresion = new LispParser().parse(ProgramaBenchmark.FIB.llamada);
+    }
+
+    @Benchmark
+    public Object evaluar() {
+        return procesador.evaluar(expresion);
+    }
+}
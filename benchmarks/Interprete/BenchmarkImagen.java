@@ -0,0 +1,66 @@
+package Interprete;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Carga de un preludio generado desde la fuente (leer, analizar, registrar)
+ * frente a su imagen binaria, en un LispProcessor nuevo cada vez. La primera
+ * medida de cada modo es en frío; la mediana es tras calentar.
+ * Uso: java -cp <clases> Interprete.BenchmarkImagen [directorio]
+ */
+public class BenchmarkImagen {
+
+    private static final int REPETICIONES = 9;
+
+    public static void main(String[] args) throws IOException {
+        Path directorio = args.length > 0 ? Path.of(args[0]) : Files.createTempDirectory("imagen");
+        for (int funciones : new int[] {2_500, 10_000}) {
+            Path fuente = directorio.resolve("preludio" + funciones + ".lisp");
+            Path imagen = directorio.resolve("preludio" + funciones + ".img");
+            String texto = generar(funciones);
+            Files.write(fuente, texto.getBytes(StandardCharsets.UTF_8));
+            new LispProcessor().cargarPreludio(fuente, imagen);
+
+            System.out.printf("%d funciones, %d líneas, fuente %d KB, imagen %d KB%n", funciones,
+                              texto.split("\n").length, Files.size(fuente) / 1024, Files.size(imagen) / 1024);
+            medir("  fuente", () -> new LispProcessor().cargarFuente(fuente));
+            medir("  imagen", () -> new LispProcessor().cargarImagen(imagen));
+        }
+    }
+
+    interface Carga {
+        void cargar() throws IOException;
+    }
+
+    private static void medir(String nombre, Carga carga) throws IOException {
+        long[] tiempos = new long[REPETICIONES];
+        for (int i = 0; i < REPETICIONES; i++) {
+            long inicio = System.nanoTime();
+            carga.cargar();
+            tiempos[i] = System.nanoTime() - inicio;
+        }
+        long primera = tiempos[0];
+        Arrays.sort(tiempos);
+        System.out.printf("%-10s primera %8.2f ms   mediana %8.2f ms%n", nombre, primera / 1e6,
+                          tiempos[REPETICIONES / 2] / 1e6);
+    }
+
+    static String generar(int funciones) {
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < funciones; i++) {
+            texto.append("; función ").append(i).append('\n')
+                 .append("(defun f").append(i).append(" (n acc)\n")
+                 .append("  (cond ((< n ").append(i % 97).append(") (cons acc '(a b ").append(i).append(")))\n")
+                 .append("        ((equal n 1000) (f").append(Math.max(0, i - 1)).append(" (- n 1) (* acc 2.5)))\n")
+                 .append("        (t (f").append(i).append(" (- n 1) (+ acc (* n 3) 12345678901)))))\n");
+            if (i % 10 == 0) {
+                texto.append("(setq v").append(i).append(" '(").append(i).append(" x (y z)))\n");
+            }
+        }
+        return texto.toString();
+    }
+}
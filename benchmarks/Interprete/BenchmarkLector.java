@@ -0,0 +1,94 @@
+package Interprete;
+
+import java.io.StringReader;
+
+/**
+ * Carga de scripts generados: el bucle por líneas que usaba Main.executeFile
+ * (vuelve a contar paréntesis sobre todo el búfer en cada línea) frente a
+ * LectorLisp. Solo se mide la lectura y el análisis, no la evaluación.
+ * Uso: java -cp <clases> Interprete.BenchmarkLector
+ */
+public class BenchmarkLector {
+
+    public static void main(String[] args) {
+        for (int lineas : new int[] {5_000, 20_000, 80_000}) {
+            String muchas = muchasFormas(lineas);
+            String una = unaFormaLarga(lineas);
+            System.out.printf("%6d líneas%n", lineas);
+            medir("  muchas formas, por líneas", muchas, true);
+            medir("  muchas formas, LectorLisp", muchas, false);
+            medir("  una forma,     por líneas", una, true);
+            medir("  una forma,     LectorLisp", una, false);
+        }
+    }
+
+    private static String muchasFormas(int lineas) {
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < lineas; i++) {
+            // El bucle por líneas solo entiende comentarios de línea completa
+            texto.append("; valor ").append(i).append('\n');
+            texto.append("(setq v").append(i).append(" (+ ").append(i).append(" 1))\n");
+        }
+        return texto.toString();
+    }
+
+    private static String unaFormaLarga(int lineas) {
+        StringBuilder texto = new StringBuilder("(list\n");
+        for (int i = 0; i < lineas; i++) {
+            texto.append("  (+ ").append(i).append(" 1)\n");
+        }
+        return texto.append(")\n").toString();
+    }
+
+    private static void medir(String nombre, String texto, boolean porLineas) {
+        int formas = 0;
+        for (int i = 0; i < 3; i++) {
+            formas = porLineas ? porLineas(texto) : conLector(texto);
+        }
+        long inicio = System.nanoTime();
+        formas = porLineas ? porLineas(texto) : conLector(texto);
+        long duracion = System.nanoTime() - inicio;
+        System.out.printf("%-30s %6d formas %10.2f ms %8.2f MB/s%n", nombre, formas,
+                          duracion / 1e6, texto.length() / 1e6 / (duracion / 1e9));
+    }
+
+    private static int conLector(String texto) {
+        LectorLisp lector = new LectorLisp(new StringReader(texto));
+        int formas = 0;
+        while (lector.leer() != LectorLisp.FIN) {
+            formas++;
+        }
+        return formas;
+    }
+
+    // Reproduce el bucle anterior de Main.executeFile, con el análisis en lugar de procesar
+    private static int porLineas(String texto) {
+        LispParser parser = new LispParser();
+        StringBuilder buffer = new StringBuilder();
+        int formas = 0;
+        for (String line : texto.split("\n")) {
+            if (line.trim().startsWith(";")) {
+                continue;
+            }
+            buffer.append(line).append(" ");
+            int abiertos = contar(buffer.toString(), '(');
+            int cerrados = contar(buffer.toString(), ')');
+            if (abiertos > 0 && abiertos == cerrados) {
+                parser.parse(buffer.toString());
+                formas++;
+                buffer.setLength(0);
+            }
+        }
+        return formas;
+    }
+
+    private static int contar(String texto, char c) {
+        int total = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) == c) {
+                total++;
+            }
+        }
+        return total;
+    }
+}
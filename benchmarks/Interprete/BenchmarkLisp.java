@@ -0,0 +1,72 @@
+package Interprete;
+
+/**
+ * Medición sencilla del intérprete completo (tokenizar, analizar y evaluar)
+ * con cada motor de evaluación.
+ * Uso: java -cp <clases> Interprete.BenchmarkLisp
+ */
+public class BenchmarkLisp {
+
+    private static final int CALENTAMIENTO = 10;
+    private static final int RONDAS = 20;
+
+    public static void main(String[] args) {
+        for (LispEvaluator.Motor motor : LispEvaluator.Motor.values()) {
+            System.out.println("Motor " + motor);
+            medirMotor(motor);
+        }
+    }
+
+    private static void medirMotor(LispEvaluator.Motor motor) {
+        LispProcessor fib = new LispProcessor(motor);
+        fib.procesar("(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))");
+        medir("fib 20", () -> fib.procesar("(fib 20)"));
+
+        LispProcessor aritmetica = new LispProcessor(motor);
+        aritmetica.procesar("(defun poli (x) (+ (* 3 x x) (* 2 x) (- x 7) (/ x 2)))");
+        aritmetica.procesar("(defun suma-poli (n) (cond ((< n 1) 0) (t (+ (poli n) (suma-poli (- n 1))))))");
+        medir("suma-poli 100 x 200", () -> {
+            for (int i = 0; i < 200; i++) {
+                aritmetica.procesar("(suma-poli 100)");
+            }
+        });
+
+        // Recursión de cola: 900 iteraciones caben también en el evaluador con pila anidada
+        LispProcessor cola = new LispProcessor(motor);
+        cola.procesar("(defun cuenta (n acc) (cond ((equal n 0) acc) (t (cuenta (- n 1) (+ acc 1)))))");
+        medir("cuenta 900 x 200", () -> {
+            for (int i = 0; i < 200; i++) {
+                cola.procesar("(cuenta 900 0)");
+            }
+        });
+
+        // Listas: construir y recorrer con cons/car/cdr
+        LispProcessor listas = new LispProcessor(motor);
+        listas.procesar("(defun rango (n acc) (cond ((equal n 0) acc) (t (rango (- n 1) (cons n acc)))))");
+        listas.procesar("(defun suma-lista (l acc) (cond ((null l) acc) (t (suma-lista (cdr l) (+ acc (car l))))))");
+        medir("rango + suma 10000", () -> listas.procesar("(suma-lista (rango 10000 '()) 0)"));
+
+        // Recursión que no está en cola; solo el motor PILA admite profundidades grandes
+        LispProcessor profunda = new LispProcessor(motor);
+        profunda.procesar("(defun suma (n) (cond ((equal n 0) 0) (t (+ n (suma (- n 1))))))");
+        String llamada = motor == LispEvaluator.Motor.PILA ? "(suma 50000)" : "(suma 900)";
+        medir(llamada, () -> profunda.procesar(llamada));
+    }
+
+    private static void medir(String nombre, Runnable caso) {
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            caso.run();
+        }
+        long mejor = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < RONDAS; i++) {
+            long inicio = System.nanoTime();
+            caso.run();
+            long duracion = System.nanoTime() - inicio;
+            mejor = Math.min(mejor, duracion);
+            total += duracion;
+        }
+        System.out.printf("%-24s media %8.2f ms   mejor %8.2f ms%n",
+                          nombre, total / 1e6 / RONDAS, mejor / 1e6);
+    }
+}
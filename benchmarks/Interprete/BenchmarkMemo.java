@@ -0,0 +1,64 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * (fib 20) sin memo, con memo vacía en cada operación (memoize crea una
+ * caché nueva y el cuerpo se vuelve a compilar) y con la caché ya llena.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkMemo {
+
+    public enum Variante {
+        SIN_MEMO("(fib 20)"),
+        MEMO_VACIA("(progn (memoize 'fib) (fib 20))"),
+        MEMO_LLENA("(fib 20)");
+
+        final String expresion;
+
+        Variante(String expresion) {
+            this.expresion = expresion;
+        }
+    }
+
+    @Param
+    public Variante variante;
+
+    @Param
+    public LispEvaluator.Motor motor;
+
+    private LispProcessor procesador;
+    private Object expresion;
+
+    @Setup
+    public void preparar() {
+        procesador = new LispProcessor(motor);
+        procesador.procesar("(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))");
+        if (variante == Variante.MEMO_LLENA) {
+            procesador.procesar("(memoize 'fib)");
+        }
+        expresion = new LispParser().parse(variante.expresion);
+    }
+
+    @Benchmark
+    public Object evaluar() {
+        return procesador.evaluar(expresion);
+    }
+}
@@ -0,0 +1,56 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coste de registrar una evaluación en las métricas compartidas de un
+ * procesador. Con -t N los N hilos registran sobre el mismo objeto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkMetricas {
+
+    private MetricasLisp metricas;
+
+    @State(Scope.Thread)
+    public static class Hilo {
+        long latencia;
+
+        @Setup(Level.Iteration)
+        public void preparar() {
+            latencia = 1000 + Thread.currentThread().getId() * 37;
+        }
+    }
+
+    @Setup
+    public void preparar() {
+        metricas = new LispProcessor().getMetricas();
+    }
+
+    @Benchmark
+    public void registrar(Hilo hilo) {
+        hilo.latencia = (hilo.latencia * 1103515245 + 12345) & 0xFFFFF;
+        metricas.registrar(hilo.latencia, null);
+    }
+
+    @Benchmark
+    public Object instantanea() {
+        return metricas.instantanea();
+    }
+}
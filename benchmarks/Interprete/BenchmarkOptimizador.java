@@ -0,0 +1,65 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Un cuerpo de función con subexpresiones constantes y una cláusula de cond
+ * muerta, evaluado 1000 veces, con y sin OptimizadorLisp; y el programa FIB,
+ * que casi no tiene nada que plegar.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkOptimizador {
+
+    private static final String[] CONSTANTES = {
+        "(defun poli (x) (cond ((> 1 2) 0) (nil x) (t (+ (* 2 (+ 3 4)) (* x (- 10 (* 2 3))) (* 60 60 24)))))",
+        "(defun suma (n acc) (cond ((equal n 0) acc) (t (suma (- n 1) (+ acc (poli n))))))"
+    };
+
+    public enum Caso { CONSTANTES, FIB }
+
+    @Param
+    public Caso caso;
+
+    @Param
+    public LispEvaluator.Motor motor;
+
+    @Param({"false", "true"})
+    public boolean optimizar;
+
+    private LispProcessor procesador;
+    private Object expresion;
+
+    @Setup
+    public void preparar() {
+        procesador = new LispProcessor(motor);
+        procesador.setOptimizar(optimizar);
+        String[] definiciones = caso == Caso.FIB ? ProgramaBenchmark.FIB.definiciones : CONSTANTES;
+        for (String definicion : definiciones) {
+            procesador.procesar(definicion);
+        }
+        String llamada = caso == Caso.FIB ? ProgramaBenchmark.FIB.llamada : "(suma 1000 0)";
+        expresion = new LispParser().parse(llamada);
+    }
+
+    @Benchmark
+    public Object evaluar() {
+        return procesador.evaluar(expresion);
+    }
+}
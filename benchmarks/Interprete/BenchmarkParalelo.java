@@ -0,0 +1,54 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Trabajo CPU independiente (16 llamadas a fib 18) recorrido en secuencia
+ * frente a pmap y pcall sobre el ForkJoinPool común.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkParalelo {
+
+    private static final String LISTA = "'(18 18 18 18 18 18 18 18 18 18 18 18 18 18 18 18)";
+
+    private LispProcessor procesador;
+
+    @Setup
+    public void preparar() {
+        procesador = new LispProcessor();
+        procesador.procesar("(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))");
+        procesador.procesar("(defun mapfib (l) (cond ((null l) nil) (t (cons (fib (car l)) (mapfib (cdr l))))))");
+    }
+
+    @Benchmark
+    public Object secuencial() {
+        return procesador.procesar("(mapfib " + LISTA + ")");
+    }
+
+    @Benchmark
+    public Object pmap() {
+        return procesador.procesar("(pmap fib " + LISTA + ")");
+    }
+
+    @Benchmark
+    public Object pcall() {
+        return procesador.procesar("(pcall list (fib 18) (fib 18) (fib 18) (fib 18) (fib 18) (fib 18) (fib 18) (fib 18)"
+                                   + " (fib 18) (fib 18) (fib 18) (fib 18) (fib 18) (fib 18) (fib 18) (fib 18))");
+    }
+}
@@ -0,0 +1,67 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mil vueltas de primitivas de uno y dos argumentos con valores dentro de
+ * la caché de enteros, para medir con -prof gc lo que asigna cada llamada:
+ * aritmética (cuatro operaciones binarias por vuelta), comparaciones en la
+ * prueba de un while y recorrido de una lista con null, car y cdr.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkPrimitivas {
+
+    public enum Programa {
+        ARITMETICA("(defun prueba (n) (let ((s 0)) (dotimes (i n s) (setq s (- (+ (* i 2) s) (+ i i))))))"),
+        COMPARACIONES("(defun prueba (n) (let ((i 0)) (while (< i n) (cond ((> i -1) (setq i (+ i 1))))) i))"),
+        LISTAS("(setq l nil)",
+               "(setq lista (dotimes (i 1000 l) (setq l (cons i l))))",
+               "(defun prueba (n) (let ((l lista) (s 0)) (while (null (null l)) (setq s (car l)) (setq l (cdr l))) s))");
+
+        final String[] definiciones;
+
+        Programa(String... definiciones) {
+            this.definiciones = definiciones;
+        }
+    }
+
+    @Param
+    public Programa programa;
+
+    @Param
+    public LispEvaluator.Motor motor;
+
+    private LispProcessor procesador;
+    private Object expresion;
+
+    @Setup
+    public void preparar() {
+        procesador = new LispProcessor(motor);
+        for (String definicion : programa.definiciones) {
+            procesador.procesar(definicion);
+        }
+        expresion = new LispParser().parse("(prueba 1000)");
+    }
+
+    @Benchmark
+    public Object evaluar() {
+        return procesador.evaluar(expresion);
+    }
+}
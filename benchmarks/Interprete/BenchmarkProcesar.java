@@ -0,0 +1,46 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LispProcessor.procesar de principio a fin: tokenizar, analizar, compilar
+ * y evaluar la llamada de cada programa.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkProcesar {
+
+    @Param
+    public ProgramaBenchmark programa;
+
+    private LispProcessor procesador;
+
+    @Setup
+    public void preparar() {
+        procesador = new LispProcessor();
+        for (String definicion : programa.definiciones) {
+            procesador.procesar(definicion);
+        }
+    }
+
+    @Benchmark
+    public Object procesar() {
+        return procesador.procesar(programa.llamada);
+    }
+}
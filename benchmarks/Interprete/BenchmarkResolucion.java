@@ -0,0 +1,65 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Llamadas a funciones de usuario según dónde se resuelve el nombre: en la
+ * tabla propia (PRINCIPAL) o subiendo por la cadena desde una sesión
+ * aislada anidada NIVELES veces (AISLADA).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkResolucion {
+
+    private static final int NIVELES = 4;
+
+    public enum Entorno { PRINCIPAL, AISLADA }
+
+    @Param
+    public Entorno entorno;
+
+    @Param
+    public LispEvaluator.Motor motor;
+
+    private SesionLisp sesion;
+    private Object expresion;
+
+    @Setup
+    public void preparar() {
+        LispProcessor procesador = new LispProcessor(motor);
+        for (String definicion : ProgramaBenchmark.FIB.definiciones) {
+            procesador.procesar(definicion);
+        }
+        if (entorno == Entorno.PRINCIPAL) {
+            sesion = procesador.nuevaSesion();
+        } else {
+            EntornoLisp aislado = new EntornoLisp(procesador.nuevaSesionAislada().getEntorno());
+            for (int i = 1; i < NIVELES; i++) {
+                aislado = new EntornoLisp(aislado);
+            }
+            sesion = new SesionLisp(new LispEvaluator(motor), aislado, procesador.getMetricas());
+        }
+        expresion = new LispParser().parse(ProgramaBenchmark.FIB.llamada);
+    }
+
+    @Benchmark
+    public Object evaluar() {
+        return sesion.evaluar(expresion);
+    }
+}
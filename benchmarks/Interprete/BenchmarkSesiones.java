@@ -0,0 +1,76 @@
+package Interprete;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Varios hilos evaluando contra un mismo programa cargado, cada uno con su
+ * sesión. Se ejecuta con distinto número de hilos para ver la escala:
+ *   java -jar benchmarks.jar BenchmarkSesiones.procesar -t 1
+ *   java -jar benchmarks.jar BenchmarkSesiones.procesar -t 4
+ * nuevaSesion y nuevoProcesador comparan el coste de preparar un hilo
+ * nuevo con sesiones frente a un intérprete completo por hilo.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkSesiones {
+
+    @State(Scope.Benchmark)
+    public static class Programa {
+        @Param({"FIB", "LISTAS"})
+        public ProgramaBenchmark programa;
+
+        LispProcessor procesador;
+
+        @Setup
+        public void cargar() {
+            procesador = new LispProcessor();
+            for (String definicion : programa.definiciones) {
+                procesador.procesar(definicion);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sesion {
+        SesionLisp sesion;
+
+        @Setup
+        public void abrir(Programa programa) {
+            sesion = programa.procesador.nuevaSesion();
+        }
+    }
+
+    @Benchmark
+    public Object procesar(Programa programa, Sesion sesion) {
+        return sesion.sesion.procesar(programa.programa.llamada);
+    }
+
+    @Benchmark
+    public SesionLisp nuevaSesion(Programa programa) {
+        return programa.procesador.nuevaSesion();
+    }
+
+    @Benchmark
+    public LispProcessor nuevoProcesador(Programa programa) {
+        LispProcessor procesador = new LispProcessor();
+        for (String definicion : programa.programa.definiciones) {
+            procesador.procesar(definicion);
+        }
+        return procesador;
+    }
+}
@@ -0,0 +1,51 @@
+package Interprete;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Rendimiento de tokenizar + analizar (LispParser.parse) sobre ~1 MB de
+ * código generado: MB/s y bytes asignados por MB de fuente.
+ * Uso: java -cp <clases> Interprete.BenchmarkTokenizador
+ */
+public class BenchmarkTokenizador {
+
+    private static final int CALENTAMIENTO = 20;
+    private static final int RONDAS = 20;
+
+    public static void main(String[] args) {
+        String fuente = generar(1_000_000);
+        double megas = fuente.length() / 1e6;
+        LispParser parser = new LispParser();
+
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            parser.parse(fuente);
+        }
+
+        com.sun.management.ThreadMXBean hilos =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().getId();
+        long mejor = Long.MAX_VALUE;
+        long asignadoAntes = hilos.getThreadAllocatedBytes(hilo);
+        for (int i = 0; i < RONDAS; i++) {
+            long inicio = System.nanoTime();
+            parser.parse(fuente);
+            mejor = Math.min(mejor, System.nanoTime() - inicio);
+        }
+        long asignado = (hilos.getThreadAllocatedBytes(hilo) - asignadoAntes) / RONDAS;
+
+        System.out.printf("fuente %.2f MB: mejor %.2f ms, %.1f MB/s, %.1f MB asignados por MB%n",
+                          megas, mejor / 1e6, megas / (mejor / 1e9), asignado / 1e6 / megas);
+    }
+
+    // Una sola forma grande con definiciones, números enteros, grandes y decimales
+    static String generar(int caracteres) {
+        StringBuilder texto = new StringBuilder("(list\n");
+        for (int i = 0; texto.length() < caracteres; i++) {
+            texto.append("  (defun f").append(i % 500).append(" (n acc)\n")
+                 .append("    (cond ((< n ").append(i).append(") acc)\n")
+                 .append("          (t (f").append(i % 500).append(" (- n 1) (+ acc (* n 2.5) 12345678901)))))\n")
+                 .append("  '(a b c ").append(-i).append(")\n");
+        }
+        return texto.append(")\n").toString();
+    }
+}
@@ -0,0 +1,129 @@
+package Interprete;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Prueba de carga del ServidorLisp: muchos clientes concurrentes, cada uno
+ * con su conexión, enviando peticiones de una en una. Informa peticiones
+ * por segundo y latencias p50/p99/máxima.
+ *
+ * Uso: java -cp <clases> Interprete.CargaServidor [clientes] [peticiones] [puerto|ruta.sock]
+ * Sin dirección arranca un servidor en este mismo proceso (TCP, puerto libre).
+ */
+public class CargaServidor {
+
+    private static final String PETICION = "(fib 10)";
+
+    public static void main(String[] args) throws Exception {
+        int clientes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int peticiones = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        ServidorLisp local = null;
+        SocketAddress direccion;
+        if (args.length > 2) {
+            direccion = ServidorLisp.direccion(args[2]);
+        } else {
+            LispProcessor procesador = new LispProcessor();
+            procesador.procesar("(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))");
+            local = new ServidorLisp(procesador, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            local.iniciar();
+            direccion = local.getDireccion();
+        }
+
+        // Una ronda corta para calentar el servidor antes de medir
+        ejecutar(direccion, Math.min(clientes, 16), 200);
+        long[] latencias = new long[clientes * peticiones];
+        long inicio = System.nanoTime();
+        ejecutar(direccion, clientes, peticiones, latencias);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        Arrays.sort(latencias);
+        System.out.printf("%d clientes x %d peticiones contra %s%s%n", clientes, peticiones, direccion,
+                          ServidorLisp.usaHilosVirtuales() ? " (hilos virtuales)" : " (hilos de plataforma)");
+        System.out.printf("rendimiento %.0f peticiones/s%n", latencias.length / segundos);
+        System.out.printf("latencia p50 %.3f ms   p99 %.3f ms   máxima %.3f ms%n",
+                          percentil(latencias, 0.50), percentil(latencias, 0.99),
+                          latencias[latencias.length - 1] / 1e6);
+
+        if (local != null) {
+            local.close();
+        }
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, indice)] / 1e6;
+    }
+
+    private static void ejecutar(SocketAddress direccion, int clientes, int peticiones) throws Exception {
+        ejecutar(direccion, clientes, peticiones, new long[clientes * peticiones]);
+    }
+
+    private static void ejecutar(SocketAddress direccion, int clientes, int peticiones, long[] latencias)
+            throws Exception {
+        CountDownLatch listos = new CountDownLatch(clientes);
+        CountDownLatch salida = new CountDownLatch(1);
+        Thread[] hilos = new Thread[clientes];
+        Exception[] fallo = new Exception[1];
+
+        for (int c = 0; c < clientes; c++) {
+            final int desde = c * peticiones;
+            hilos[c] = new Thread(() -> {
+                try (SocketChannel canal = abrir(direccion)) {
+                    BufferedReader lector = new BufferedReader(
+                            new InputStreamReader(Channels.newInputStream(canal), StandardCharsets.UTF_8));
+                    OutputStream escritor = Channels.newOutputStream(canal);
+                    byte[] peticion = (PETICION + "\n").getBytes(StandardCharsets.UTF_8);
+                    listos.countDown();
+                    salida.await();
+                    for (int i = 0; i < peticiones; i++) {
+                        long t0 = System.nanoTime();
+                        escritor.write(peticion);
+                        String respuesta = lector.readLine();
+                        latencias[desde + i] = System.nanoTime() - t0;
+                        if (respuesta == null || !respuesta.startsWith("OK")) {
+                            throw new IOException("Respuesta inesperada: " + respuesta);
+                        }
+                    }
+                } catch (Exception e) {
+                    synchronized (fallo) {
+                        fallo[0] = e;
+                    }
+                    listos.countDown();
+                }
+            });
+            hilos[c].start();
+        }
+
+        listos.await();
+        salida.countDown();
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        if (fallo[0] != null) {
+            throw fallo[0];
+        }
+    }
+
+    private static SocketChannel abrir(SocketAddress direccion) throws IOException {
+        if (direccion instanceof UnixDomainSocketAddress) {
+            SocketChannel canal = SocketChannel.open(StandardProtocolFamily.UNIX);
+            canal.connect(direccion);
+            return canal;
+        }
+        return SocketChannel.open(direccion);
+    }
+}
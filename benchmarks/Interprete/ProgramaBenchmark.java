@@ -0,0 +1,30 @@
+package Interprete;
+
+/**
+ * Programas de prueba compartidos por los benchmarks de JMH: definiciones
+ * que se cargan una vez y la llamada que se mide.
+ */
+public enum ProgramaBenchmark {
+
+    ARITMETICA("(suma-poli 100)",
+               "(defun poli (x) (+ (* 3 x x) (* 2 x) (- x 7) (/ x 2)))",
+               "(defun suma-poli (n) (cond ((< n 1) 0) (t (+ (poli n) (suma-poli (- n 1))))))"),
+
+    FIB("(fib 15)",
+        "(defun fib (n) (cond ((< n 2) n) (t (+ (fib (- n 1)) (fib (- n 2))))))"),
+
+    FACTORIAL("(fact 20)",
+              "(defun fact (n) (cond ((equal n 0) 1) (t (* n (fact (- n 1))))))"),
+
+    LISTAS("(suma-lista (rango 1000 '()) 0)",
+           "(defun rango (n acc) (cond ((equal n 0) acc) (t (rango (- n 1) (cons n acc)))))",
+           "(defun suma-lista (l acc) (cond ((null l) acc) (t (suma-lista (cdr l) (+ acc (car l))))))");
+
+    final String llamada;
+    final String[] definiciones;
+
+    ProgramaBenchmark(String llamada, String... definiciones) {
+        this.llamada = llamada;
+        this.definiciones = definiciones;
+    }
+}